@@ -0,0 +1,102 @@
+package edu.upenn.cit594.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The datasets the benchmarks run against, written by a {@link DatasetGenerator} with a fixed seed so that every
+ * run reads the same data, including the malformed records and missing values that the readers skip.
+ *
+ * A dataset is written to the system temporary directory the first time it is asked for and reused afterwards,
+ * including by the other JVMs that JMH forks. It is written to a temporary file and moved into place, so a
+ * benchmark never sees a half-written dataset.
+ */
+final class BenchmarkData {
+    /**
+     * The number of ZIP Codes in every dataset.
+     */
+    static final int ZIP_CODES = 1000;
+
+    /**
+     * The first day of the vaccination data. Every ZIP Code has a record for it.
+     */
+    static final String FIRST_DATE = DatasetGenerator.DEFAULT_FIRST_DATE.toString();
+
+    /**
+     * A ZIP Code that has population, properties and vaccination records.
+     */
+    static final String ZIP_CODE = DatasetGenerator.zipCode(0);
+
+    // the datasets are kept apart from those of earlier versions of the generator, which differ
+    private static final Path DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "cit594-benchmarks", "v2");
+    private static final DatasetGenerator GENERATOR = new DatasetGenerator(DatasetGenerator.DEFAULT_SEED, ZIP_CODES,
+            DatasetGenerator.DEFAULT_FIRST_DATE, 0.001, 0.01);
+
+    private interface Writer {
+        void write(Path path) throws IOException;
+    }
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return A population file with one row for each ZIP Code.
+     */
+    static String population() {
+        return dataset("population.csv", GENERATOR::writePopulation);
+    }
+
+    /**
+     * @param rows The number of properties.
+     * @return A property file, with the properties spread evenly over the ZIP Codes.
+     */
+    static String properties(int rows) {
+        return dataset("properties-" + rows + ".csv", path -> GENERATOR.writeProperties(path, rows));
+    }
+
+    /**
+     * @param rows The number of vaccination records.
+     * @return A vaccination CSV file with one record per ZIP Code per day, starting on {@link #FIRST_DATE}.
+     */
+    static String covidCsv(int rows) {
+        return dataset("covid-" + rows + ".csv", path -> GENERATOR.writeCovidCsv(path, rows));
+    }
+
+    /**
+     * @param rows The number of vaccination records.
+     * @return A vaccination JSON file with the same records as {@link #covidCsv(int)}.
+     */
+    static String covidJson(int rows) {
+        return dataset("covid-" + rows + ".json", path -> GENERATOR.writeCovidJson(path, rows));
+    }
+
+    /**
+     * Writes a dataset unless it already exists.
+     *
+     * @return The path of the dataset.
+     */
+    private static synchronized String dataset(String name, Writer writer) {
+        Path path = DIRECTORY.resolve(name);
+        if (Files.exists(path)) {
+            return path.toString();
+        }
+        try {
+            Files.createDirectories(DIRECTORY);
+            Path temporary = Files.createTempFile(DIRECTORY, name, ".tmp");
+            writer.write(temporary);
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return path.toString();
+    }
+}
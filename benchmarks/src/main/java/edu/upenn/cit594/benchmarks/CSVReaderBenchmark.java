@@ -0,0 +1,75 @@
+package edu.upenn.cit594.benchmarks;
+
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.datamanagement.CSVReader;
+import edu.upenn.cit594.datamanagement.CSVRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a whole property file with each of the row accessors of {@link CSVReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVReaderBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private String file;
+
+    @Setup
+    public void setUp() {
+        file = BenchmarkData.properties(rows);
+    }
+
+    @Benchmark
+    public void readRow(Blackhole blackhole) throws IOException, CSVFormatException {
+        try (CSVReader reader = new CSVReader(file)) {
+            String[] row;
+            while ((row = reader.readRow()) != null) {
+                blackhole.consume(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public void readRowAsDict(Blackhole blackhole) throws IOException, CSVFormatException {
+        try (CSVReader reader = new CSVReader(file)) {
+            Map<String, String> row;
+            while ((row = reader.readRowAsDict()) != null) {
+                blackhole.consume(row);
+            }
+        }
+    }
+
+    /**
+     * The allocation-free cursor that the readers use, for comparison with the two accessors above.
+     */
+    @Benchmark
+    public void nextRow(Blackhole blackhole) throws IOException, CSVFormatException {
+        try (CSVReader reader = new CSVReader(file)) {
+            CSVRow row;
+            while ((row = reader.nextRow()) != null) {
+                blackhole.consume(row.length(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package edu.upenn.cit594.benchmarks;
+
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.datamanagement.CsvPropertyReader;
+import edu.upenn.cit594.datamanagement.CsvVaccinationReader;
+import edu.upenn.cit594.datamanagement.PopulationFileReader;
+import edu.upenn.cit594.datamanagement.SnapshotDataReader;
+import edu.upenn.cit594.processor.AverageMarketValueCalculator;
+import edu.upenn.cit594.processor.AverageTotalLivableAreaCalculator;
+import edu.upenn.cit594.processor.DataProcessor;
+import edu.upenn.cit594.processor.MarketValueQuantileCalculator;
+import edu.upenn.cit594.processor.PopulationDataProcessor;
+import edu.upenn.cit594.processor.PropertyDataProcessor;
+import edu.upenn.cit594.processor.TotalLivableAreaQuantileCalculator;
+import edu.upenn.cit594.processor.VaccinationDataProcessor;
+import edu.upenn.cit594.processor.ZipCodeMetric;
+import edu.upenn.cit594.processor.ZipCodeRanking;
+import edu.upenn.cit594.util.getParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every action of the {@link DataProcessor} once the datasets are loaded.
+ *
+ * The warm benchmarks repeat an action on processors that have already answered it, so they measure the
+ * answer from the caches. The cold benchmarks time a single run of an action on processors that have just been
+ * loaded, which includes filling the caches; the loading itself is not timed.
+ *
+ * Standard output is discarded while the benchmarks run, and nothing is logged because the logger is given no
+ * output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataProcessorBenchmark {
+    private static final String VACCINATION_TYPE = "full";
+    private static final int RANKING_SIZE = 10;
+    // a week of every ZIP Code, within the days of the smallest dataset
+    private static final String SERIES_END_DATE = DatasetGenerator.DEFAULT_FIRST_DATE.plusDays(6).toString();
+
+    /**
+     * The dataset files, shared by the warm and cold benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class Datasets {
+        @Param({"10000", "1000000"})
+        public int rows;
+
+        private String populationFile;
+        private String propertyFile;
+        private String covidFile;
+        private PrintStream console;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            populationFile = BenchmarkData.population();
+            propertyFile = BenchmarkData.properties(rows);
+            covidFile = BenchmarkData.covidCsv(rows);
+            console = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.setOut(console);
+        }
+
+        /**
+         * Loads the datasets into new processors. The datasets are decoded from their snapshots after the first
+         * time, so that loading them before every cold iteration stays quick.
+         */
+        DataProcessor load() throws IOException, CSVFormatException {
+            PopulationDataProcessor population = new PopulationDataProcessor(
+                    new SnapshotDataReader<>(new PopulationFileReader(), SnapshotDataReader.POPULATION), populationFile);
+            VaccinationDataProcessor vaccinations = new VaccinationDataProcessor(
+                    new SnapshotDataReader<>(new CsvVaccinationReader(), SnapshotDataReader.VACCINATION), population, covidFile);
+            PropertyDataProcessor properties = new PropertyDataProcessor(propertyFile,
+                    new SnapshotDataReader<>(new CsvPropertyReader(), SnapshotDataReader.PROPERTY), population);
+            return new DataProcessor(population, vaccinations, properties, new getParameter());
+        }
+    }
+
+    /**
+     * Processors that are loaded once and have answered every action before the measurements start.
+     */
+    @State(Scope.Benchmark)
+    public static class Warm {
+        DataProcessor dataProcessor;
+
+        @Setup(Level.Trial)
+        public void setUp(Datasets datasets) throws IOException, CSVFormatException {
+            dataProcessor = datasets.load();
+            runEveryAction(dataProcessor);
+        }
+    }
+
+    /**
+     * Processors that are loaded again before every iteration, so that each action finds empty caches.
+     */
+    @State(Scope.Thread)
+    public static class Cold {
+        DataProcessor dataProcessor;
+
+        @Setup(Level.Iteration)
+        public void setUp(Datasets datasets) throws IOException, CSVFormatException {
+            dataProcessor = datasets.load();
+        }
+    }
+
+    private static final AverageMarketValueCalculator MARKET_VALUE = new AverageMarketValueCalculator();
+    private static final AverageTotalLivableAreaCalculator LIVABLE_AREA = new AverageTotalLivableAreaCalculator();
+    private static final MarketValueQuantileCalculator MARKET_VALUE_QUANTILE = new MarketValueQuantileCalculator();
+    private static final TotalLivableAreaQuantileCalculator LIVABLE_AREA_QUANTILE = new TotalLivableAreaQuantileCalculator();
+
+    private static void runEveryAction(DataProcessor dataProcessor) {
+        dataProcessor.showAvailableActions();
+        dataProcessor.showTotalPopulation();
+        dataProcessor.showVaccinationsPerCapita(VACCINATION_TYPE, BenchmarkData.FIRST_DATE);
+        dataProcessor.showAveragePropertyMetric(MARKET_VALUE, BenchmarkData.ZIP_CODE);
+        dataProcessor.showAveragePropertyMetric(LIVABLE_AREA, BenchmarkData.ZIP_CODE);
+        dataProcessor.showTotalMarketValuePerCapita(BenchmarkData.ZIP_CODE);
+        dataProcessor.showFullyVaxRateToHouseValueCorrelation();
+        dataProcessor.showZipCodeRanking(ZipCodeMetric.FULL_VACCINATIONS_PER_CAPITA, ZipCodeRanking.Order.TOP,
+                RANKING_SIZE, BenchmarkData.FIRST_DATE);
+        dataProcessor.showVaccinationSeries(VACCINATION_TYPE, BenchmarkData.FIRST_DATE, SERIES_END_DATE, null);
+        dataProcessor.showPropertyQuantile(MARKET_VALUE_QUANTILE, 0.5, BenchmarkData.ZIP_CODE);
+        dataProcessor.showPropertyQuantile(LIVABLE_AREA_QUANTILE, 0.9, BenchmarkData.ZIP_CODE);
+    }
+
+    // warm: the actions repeated on processors that have answered them before
+
+    @Benchmark
+    public void availableActions(Warm warm) {
+        warm.dataProcessor.showAvailableActions();
+    }
+
+    @Benchmark
+    public void totalPopulation(Warm warm) {
+        warm.dataProcessor.showTotalPopulation();
+    }
+
+    @Benchmark
+    public void vaccinationsPerCapita(Warm warm) {
+        warm.dataProcessor.showVaccinationsPerCapita(VACCINATION_TYPE, BenchmarkData.FIRST_DATE);
+    }
+
+    @Benchmark
+    public void averageMarketValue(Warm warm) {
+        warm.dataProcessor.showAveragePropertyMetric(MARKET_VALUE, BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    public void averageTotalLivableArea(Warm warm) {
+        warm.dataProcessor.showAveragePropertyMetric(LIVABLE_AREA, BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    public void totalMarketValuePerCapita(Warm warm) {
+        warm.dataProcessor.showTotalMarketValuePerCapita(BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    public void customFeature(Warm warm) {
+        warm.dataProcessor.showFullyVaxRateToHouseValueCorrelation();
+    }
+
+    @Benchmark
+    public void zipCodeRanking(Warm warm) {
+        warm.dataProcessor.showZipCodeRanking(ZipCodeMetric.FULL_VACCINATIONS_PER_CAPITA, ZipCodeRanking.Order.TOP,
+                RANKING_SIZE, BenchmarkData.FIRST_DATE);
+    }
+
+    @Benchmark
+    public void vaccinationSeries(Warm warm) {
+        warm.dataProcessor.showVaccinationSeries(VACCINATION_TYPE, BenchmarkData.FIRST_DATE, SERIES_END_DATE, null);
+    }
+
+    @Benchmark
+    public void marketValueQuantile(Warm warm) {
+        warm.dataProcessor.showPropertyQuantile(MARKET_VALUE_QUANTILE, 0.5, BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    public void totalLivableAreaQuantile(Warm warm) {
+        warm.dataProcessor.showPropertyQuantile(LIVABLE_AREA_QUANTILE, 0.9, BenchmarkData.ZIP_CODE);
+    }
+
+    // cold: the first run of each action on newly loaded processors
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void availableActionsCold(Cold cold) {
+        cold.dataProcessor.showAvailableActions();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void totalPopulationCold(Cold cold) {
+        cold.dataProcessor.showTotalPopulation();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void vaccinationsPerCapitaCold(Cold cold) {
+        cold.dataProcessor.showVaccinationsPerCapita(VACCINATION_TYPE, BenchmarkData.FIRST_DATE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void averageMarketValueCold(Cold cold) {
+        cold.dataProcessor.showAveragePropertyMetric(MARKET_VALUE, BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void averageTotalLivableAreaCold(Cold cold) {
+        cold.dataProcessor.showAveragePropertyMetric(LIVABLE_AREA, BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void totalMarketValuePerCapitaCold(Cold cold) {
+        cold.dataProcessor.showTotalMarketValuePerCapita(BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void customFeatureCold(Cold cold) {
+        cold.dataProcessor.showFullyVaxRateToHouseValueCorrelation();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void zipCodeRankingCold(Cold cold) {
+        cold.dataProcessor.showZipCodeRanking(ZipCodeMetric.FULL_VACCINATIONS_PER_CAPITA, ZipCodeRanking.Order.TOP,
+                RANKING_SIZE, BenchmarkData.FIRST_DATE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void vaccinationSeriesCold(Cold cold) {
+        cold.dataProcessor.showVaccinationSeries(VACCINATION_TYPE, BenchmarkData.FIRST_DATE, SERIES_END_DATE, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void marketValueQuantileCold(Cold cold) {
+        cold.dataProcessor.showPropertyQuantile(MARKET_VALUE_QUANTILE, 0.5, BenchmarkData.ZIP_CODE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void totalLivableAreaQuantileCold(Cold cold) {
+        cold.dataProcessor.showPropertyQuantile(LIVABLE_AREA_QUANTILE, 0.9, BenchmarkData.ZIP_CODE);
+    }
+}
@@ -0,0 +1,97 @@
+package edu.upenn.cit594.benchmarks;
+
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.datamanagement.CsvPropertyReader;
+import edu.upenn.cit594.datamanagement.CsvVaccinationReader;
+import edu.upenn.cit594.datamanagement.DataReader;
+import edu.upenn.cit594.datamanagement.JsonVaccinationReader;
+import edu.upenn.cit594.datamanagement.Population;
+import edu.upenn.cit594.datamanagement.PopulationFileReader;
+import edu.upenn.cit594.datamanagement.Property;
+import edu.upenn.cit594.datamanagement.SnapshotDataReader;
+import edu.upenn.cit594.datamanagement.Vaccination;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a whole dataset through each {@link DataReader} implementation, either parsing the source file or,
+ * with {@code snapshot=true}, decoding the binary snapshot that {@link SnapshotDataReader} keeps of it.
+ * The population file always has one row per ZIP Code, whatever the number of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataReaderBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private String populationFile;
+    private String propertyFile;
+    private String covidCsvFile;
+    private String covidJsonFile;
+    private DataReader<Population> populationReader;
+    private DataReader<Property> propertyReader;
+    private DataReader<Vaccination> covidCsvReader;
+    private DataReader<Vaccination> covidJsonReader;
+
+    @Setup
+    public void setUp() throws IOException, CSVFormatException {
+        populationFile = BenchmarkData.population();
+        propertyFile = BenchmarkData.properties(rows);
+        covidCsvFile = BenchmarkData.covidCsv(rows);
+        covidJsonFile = BenchmarkData.covidJson(rows);
+        populationReader = reader(new PopulationFileReader(), SnapshotDataReader.POPULATION);
+        propertyReader = reader(new CsvPropertyReader(), SnapshotDataReader.PROPERTY);
+        covidCsvReader = reader(new CsvVaccinationReader(), SnapshotDataReader.VACCINATION);
+        covidJsonReader = reader(new JsonVaccinationReader(), SnapshotDataReader.VACCINATION);
+
+        // read every dataset once, which brings the files into the page cache and writes the snapshots
+        populationReader.streamData(populationFile, record -> { });
+        propertyReader.streamData(propertyFile, record -> { });
+        covidCsvReader.streamData(covidCsvFile, record -> { });
+        covidJsonReader.streamData(covidJsonFile, record -> { });
+    }
+
+    private <T> DataReader<T> reader(DataReader<T> reader, SnapshotDataReader.Codec<T> codec) {
+        return snapshot ? new SnapshotDataReader<>(reader, codec) : reader;
+    }
+
+    @Benchmark
+    public void population(Blackhole blackhole) throws IOException, CSVFormatException {
+        populationReader.streamData(populationFile, blackhole::consume);
+    }
+
+    @Benchmark
+    public void properties(Blackhole blackhole) throws IOException, CSVFormatException {
+        propertyReader.streamData(propertyFile, blackhole::consume);
+    }
+
+    @Benchmark
+    public void covidCsv(Blackhole blackhole) throws IOException, CSVFormatException {
+        covidCsvReader.streamData(covidCsvFile, blackhole::consume);
+    }
+
+    @Benchmark
+    public void covidJson(Blackhole blackhole) throws IOException, CSVFormatException {
+        covidJsonReader.streamData(covidJsonFile, blackhole::consume);
+    }
+}
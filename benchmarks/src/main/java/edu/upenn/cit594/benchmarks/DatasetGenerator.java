@@ -0,0 +1,463 @@
+package edu.upenn.cit594.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Generates synthetic population, property and vaccination files in the format of the real datasets, at any size.
+ *
+ * Besides well-formed records, the files contain what the readers have to cope with in the real data: quoted fields
+ * with commas and escaped quotes, nine-digit ZIP Codes, missing and non-numeric values, and malformed records with
+ * an invalid ZIP Code or timestamp that the readers skip. A generator always writes the same files for the same
+ * settings, so benchmark runs against them are reproducible.
+ *
+ * Usage, from the benchmarks directory after {@code mvn package}:
+ * <pre>
+ * java -cp target/benchmarks.jar edu.upenn.cit594.benchmarks.DatasetGenerator --output=data --zips=5000 \
+ *      --properties=100000000 --days=730
+ * </pre>
+ * which writes population.csv, properties.csv, covid_data.csv and covid_data.json to the output directory.
+ */
+public final class DatasetGenerator {
+    /**
+     * The seed used when none is given.
+     */
+    public static final long DEFAULT_SEED = 594;
+
+    /**
+     * The first day of vaccination data when none is given.
+     */
+    public static final LocalDate DEFAULT_FIRST_DATE = LocalDate.of(2021, 3, 25);
+
+    /**
+     * The largest number of ZIP Codes, which are numbered from 10000 upwards.
+     */
+    public static final int MAX_ZIP_CODES = 90000;
+
+    private static final Set<String> ARGUMENT_NAMES = Set.of("output", "seed", "zips", "properties", "days",
+            "start", "malformed", "missing", "datasets");
+    private static final Set<String> DATASETS = Set.of("population", "properties", "covid-csv", "covid-json");
+
+    private static final String[] COUNT_NAMES = {"NEG", "POS", "deaths", "hospitalized", "partially_vaccinated",
+            "fully_vaccinated", "boosted"};
+    private static final String[] STREETS = {"MARKET ST", "CHESTNUT ST", "WALNUT ST", "SPRUCE ST", "PINE ST",
+            "LOCUST ST", "BROAD ST", "GIRARD AVE", "BALTIMORE AVE", "RIDGE AVE"};
+    private static final String[] OWNERS = {"SMITH JOHN", "JOHNSON MARY", "WILLIAMS ROBERT", "BROWN PATRICIA",
+            "JONES MICHAEL", "GARCIA LINDA", "MILLER DAVID", "DAVIS ELIZABETH", "CITY OF PHILADELPHIA",
+            "PHILADELPHIA HOUSING AUTH"};
+    private static final String[] BUILDINGS = {"ROW 2 STY MASONRY", "ROW B/GAR 2 STY MASONRY", "TWIN CONVENTIONAL",
+            "APT 2-4 UNITS 3 STY MASONRY", "DET 2 STY FRAME", "OFF BLD COMMERCIAL"};
+    private static final String[] CATEGORIES = {"Single Family", "Multi Family", "Mixed Use", "Commercial",
+            "Vacant Land"};
+    private static final String TIME_OF_DAY = " 17:20:02";
+    private static final Pattern ZIP_CODE = Pattern.compile("[1-9]\\d{4}");
+    // markers in the drawn counts for a count that is left out, and for one that is not a number
+    private static final int MISSING = -1;
+    private static final int NOT_A_NUMBER = -2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final long seed;
+    private final int zipCodes;
+    private final LocalDate firstDate;
+    private final double malformedFraction;
+    private final double missingFraction;
+
+    /**
+     * @param seed              The seed from which all values are drawn.
+     * @param zipCodes          The number of ZIP Codes, at most {@link #MAX_ZIP_CODES}.
+     * @param firstDate         The first day of vaccination data.
+     * @param malformedFraction The fraction of malformed records added to each file, which the readers skip.
+     * @param missingFraction   The fraction of values that are left empty or are not numbers.
+     */
+    public DatasetGenerator(long seed, int zipCodes, LocalDate firstDate, double malformedFraction, double missingFraction) {
+        if (zipCodes < 1 || zipCodes > MAX_ZIP_CODES) {
+            throw new IllegalArgumentException("The number of ZIP Codes must be between 1 and " + MAX_ZIP_CODES);
+        }
+        if (malformedFraction < 0 || malformedFraction > 1 || missingFraction < 0 || missingFraction > 1) {
+            throw new IllegalArgumentException("Fractions must be between 0 and 1");
+        }
+        this.seed = seed;
+        this.zipCodes = zipCodes;
+        this.firstDate = firstDate;
+        this.malformedFraction = malformedFraction;
+        this.missingFraction = missingFraction;
+    }
+
+    /**
+     * @param index The index of a ZIP Code, from 0.
+     * @return The five-digit ZIP Code.
+     */
+    public static String zipCode(int index) {
+        int zip = 10000 + index;
+        char[] digits = new char[5];
+        for (int i = 4; i >= 0; i--) {
+            digits[i] = (char) ('0' + zip % 10);
+            zip /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Writes a population file with one row for each ZIP Code, and malformed rows in between.
+     *
+     * @param path The file to write.
+     */
+    public void writePopulation(Path path) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = newWriter(path)) {
+            out.write("zip_code,population\n");
+            for (int zip = 0; zip < zipCodes; zip++) {
+                if (random.nextDouble() < malformedFraction) {
+                    out.write(invalidZipCode(random));
+                    out.write(',');
+                    out.write(Integer.toString(random.nextInt(60000)));
+                    out.write('\n');
+                }
+                out.write(zipCode(zip));
+                out.write(',');
+                out.write(Integer.toString(1000 + random.nextInt(60000)));
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes a property file with the properties spread evenly over the ZIP Codes, and malformed rows in between.
+     * Only total_livable_area, market_value and zip_code are read; the other columns are there so that, like the real
+     * file, it has columns to skip and quoted fields to parse.
+     *
+     * @param path The file to write.
+     * @param rows The number of well-formed properties.
+     */
+    public void writeProperties(Path path, long rows) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = newWriter(path)) {
+            out.write("objectid,assessment_date,building_code_description,category_code_description,location,"
+                    + "market_value,number_of_bedrooms,owner_1,sale_price,total_livable_area,year_built,zip_code\n");
+            for (long i = 0; i < rows; i++) {
+                boolean malformed = random.nextDouble() < malformedFraction;
+                writeProperty(out, random, i, malformed ? invalidZipCode(random) : propertyZipCode(random, i));
+                if (malformed) {
+                    writeProperty(out, random, i, propertyZipCode(random, i));
+                }
+            }
+        }
+    }
+
+    private void writeProperty(Writer out, SplittableRandom random, long id, String zipCode) throws IOException {
+        out.write(Long.toString(id));
+        out.write(",\"");
+        out.write(Integer.toString(2022 - random.nextInt(3)));
+        out.write("-05-24 00:00:00\",");
+        out.write(BUILDINGS[random.nextInt(BUILDINGS.length)]);
+        out.write(',');
+        out.write(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        out.write(",\"");
+        out.write(Long.toString(1 + id % 9999));
+        out.write(' ');
+        out.write(STREETS[random.nextInt(STREETS.length)]);
+        if (random.nextInt(4) == 0) {
+            out.write(", UNIT ");
+            out.write(Integer.toString(1 + random.nextInt(40)));
+        }
+        out.write("\",");
+        writeNumber(out, random, 50000 + random.nextInt(900000));
+        out.write(',');
+        out.write(Integer.toString(random.nextInt(6)));
+        out.write(",\"");
+        out.write(OWNERS[random.nextInt(OWNERS.length)]);
+        if (random.nextInt(20) == 0) {
+            out.write(" \"\"TRUSTEE\"\"");
+        }
+        out.write("\",");
+        out.write(Integer.toString(random.nextInt(1000000)));
+        out.write(',');
+        writeNumber(out, random, 400 + random.nextInt(4000));
+        out.write(',');
+        out.write(Integer.toString(1900 + random.nextInt(123)));
+        out.write(',');
+        out.write(zipCode);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a number, or in its place, as often as values are missing, an empty field or a non-numeric value.
+     */
+    private void writeNumber(Writer out, SplittableRandom random, int value) throws IOException {
+        if (random.nextDouble() < missingFraction) {
+            out.write(random.nextBoolean() ? "" : "NaN");
+        } else {
+            out.write(Integer.toString(value));
+        }
+    }
+
+    /**
+     * Returns the ZIP Code of a well-formed property, which is sometimes written with nine digits.
+     */
+    private String propertyZipCode(SplittableRandom random, long index) {
+        String zipCode = zipCode((int) (index % zipCodes));
+        switch (random.nextInt(20)) {
+            case 0:
+                return zipCode + "-" + (1000 + random.nextInt(9000));
+            case 1:
+                return zipCode + (1000 + random.nextInt(9000));
+            default:
+                return zipCode;
+        }
+    }
+
+    /**
+     * Writes a vaccination CSV file with one record per ZIP Code per day, and malformed records in between.
+     *
+     * @param path The file to write.
+     * @param rows The number of well-formed records.
+     */
+    public void writeCovidCsv(Path path, long rows) throws IOException {
+        try (BufferedWriter out = newWriter(path)) {
+            out.write("zip_code,etl_timestamp,NEG,POS,deaths,hospitalized,partially_vaccinated,fully_vaccinated,boosted\n");
+            writeVaccinations(rows, (record, counts, last) -> {
+                out.write(record.zipCode);
+                out.write(",\"");
+                out.write(record.timestamp);
+                out.write('"');
+                for (int count : counts) {
+                    out.write(',');
+                    if (count >= 0) {
+                        out.write(Integer.toString(count));
+                    } else if (count == NOT_A_NUMBER) {
+                        out.write("NaN");
+                    }
+                }
+                out.write('\n');
+            });
+        }
+    }
+
+    /**
+     * Writes a vaccination JSON file with the same records as {@link #writeCovidCsv(Path, long)}. Like the real
+     * file, it leaves out missing counts, and writes ZIP Codes and counts sometimes as strings.
+     *
+     * @param path The file to write.
+     * @param rows The number of well-formed records.
+     */
+    public void writeCovidJson(Path path, long rows) throws IOException {
+        try (BufferedWriter out = newWriter(path)) {
+            out.write("[\n");
+            writeVaccinations(rows, (record, counts, last) -> {
+                boolean quoted = record.style % 8 == 0;
+                boolean number = !quoted && ZIP_CODE.matcher(record.zipCode).matches();
+                out.write("  {\"zip_code\": ");
+                out.write(number ? record.zipCode : "\"" + record.zipCode + "\"");
+                for (int c = 0; c < counts.length; c++) {
+                    if (counts[c] == MISSING) {
+                        continue;
+                    }
+                    out.write(", \"");
+                    out.write(COUNT_NAMES[c]);
+                    out.write("\": ");
+                    if (counts[c] == NOT_A_NUMBER) {
+                        out.write("\"NaN\"");
+                    } else if (quoted) {
+                        out.write('"');
+                        out.write(Integer.toString(counts[c]));
+                        out.write('"');
+                    } else {
+                        out.write(Integer.toString(counts[c]));
+                    }
+                }
+                out.write(", \"etl_timestamp\": \"");
+                out.write(record.timestamp);
+                out.write(last ? "\"}\n" : "\"},\n");
+            });
+            out.write("]\n");
+        }
+    }
+
+    private static final class VaccinationRecord {
+        String zipCode;
+        String timestamp;
+        int style;
+    }
+
+    private interface VaccinationWriter {
+        void write(VaccinationRecord record, int[] counts, boolean last) throws IOException;
+    }
+
+    /**
+     * Draws the vaccination records, the same ones for every format. Counts that are missing are
+     * {@link #MISSING}, and those that are not numbers are {@link #NOT_A_NUMBER}.
+     */
+    private void writeVaccinations(long rows, VaccinationWriter writer) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        VaccinationRecord record = new VaccinationRecord();
+        int[] counts = new int[COUNT_NAMES.length];
+        String[] zipCodes = new String[this.zipCodes];
+        for (int zip = 0; zip < zipCodes.length; zip++) {
+            zipCodes[zip] = zipCode(zip);
+        }
+        String timestamp = null;
+        long day = -1;
+        for (long i = 0; i < rows; i++) {
+            if (i / this.zipCodes != day) {
+                day = i / this.zipCodes;
+                timestamp = firstDate.plusDays(day) + TIME_OF_DAY;
+            }
+            if (random.nextDouble() < malformedFraction) {
+                boolean badZipCode = random.nextBoolean();
+                record.zipCode = badZipCode ? invalidZipCode(random) : zipCodes[(int) (i % this.zipCodes)];
+                record.timestamp = badZipCode ? timestamp : invalidTimestamp(random, timestamp);
+                record.style = random.nextInt(8);
+                drawCounts(random, day, counts);
+                writer.write(record, counts, false);
+            }
+            record.zipCode = zipCodes[(int) (i % this.zipCodes)];
+            record.timestamp = timestamp;
+            record.style = random.nextInt(8);
+            drawCounts(random, day, counts);
+            writer.write(record, counts, i + 1 == rows);
+        }
+    }
+
+    private void drawCounts(SplittableRandom random, long day, int[] counts) {
+        int partial = (int) Math.min(day * 10 + random.nextInt(100), Integer.MAX_VALUE);
+        int full = (int) Math.min(day * 8 + random.nextInt(100), Integer.MAX_VALUE);
+        counts[0] = random.nextInt(50000);
+        counts[1] = random.nextInt(5000);
+        counts[2] = random.nextInt(100);
+        counts[3] = random.nextInt(500);
+        counts[4] = partial;
+        counts[5] = full;
+        counts[6] = full / 2;
+        for (int c = 0; c < counts.length; c++) {
+            if (random.nextDouble() < missingFraction) {
+                counts[c] = random.nextInt(4) == 0 ? NOT_A_NUMBER : MISSING;
+            }
+        }
+    }
+
+    private static String invalidZipCode(SplittableRandom random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "";
+            case 1:
+                return Integer.toString(1000 + random.nextInt(9000));
+            case 2:
+                return "1910X";
+            default:
+                return "PHILA";
+        }
+    }
+
+    private static String invalidTimestamp(SplittableRandom random, String timestamp) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "";
+            case 1:
+                return timestamp.replace('-', '/');
+            default:
+                return "not recorded";
+        }
+    }
+
+    private static BufferedWriter newWriter(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Generates the datasets from the command line. Arguments are given as --name=value:
+     * output (directory, default "."), seed, zips (default 1000), properties (rows, default 1000000),
+     * days (of vaccination data, default 365), start (first day, yyyy-mm-dd), malformed (fraction of
+     * malformed records, default 0.001), missing (fraction of missing values, default 0.01) and datasets
+     * (a comma-separated subset of population, properties, covid-csv and covid-json; all by default).
+     */
+    public static void main(String[] args) {
+        Map<String, String> argMap = parseArguments(args);
+        try {
+            Path output = Paths.get(argMap.getOrDefault("output", "."));
+            long seed = Long.parseLong(argMap.getOrDefault("seed", Long.toString(DEFAULT_SEED)));
+            int zips = Integer.parseInt(argMap.getOrDefault("zips", "1000"));
+            long properties = Long.parseLong(argMap.getOrDefault("properties", "1000000"));
+            long days = Long.parseLong(argMap.getOrDefault("days", "365"));
+            LocalDate start = LocalDate.parse(argMap.getOrDefault("start", DEFAULT_FIRST_DATE.toString()));
+            double malformed = Double.parseDouble(argMap.getOrDefault("malformed", "0.001"));
+            double missing = Double.parseDouble(argMap.getOrDefault("missing", "0.01"));
+            Set<String> datasets = argMap.containsKey("datasets") ?
+                    Set.of(argMap.get("datasets").split(",")) : DATASETS;
+            if (!DATASETS.containsAll(datasets)) {
+                throw new IllegalArgumentException("Unknown dataset in '" + argMap.get("datasets")
+                        + "'. Please use population, properties, covid-csv or covid-json.");
+            }
+            if (properties < 0 || days < 0) {
+                throw new IllegalArgumentException("The number of properties and days cannot be negative");
+            }
+
+            DatasetGenerator generator = new DatasetGenerator(seed, zips, start, malformed, missing);
+            long covidRows = Math.multiplyExact(days, zips);
+            if (datasets.contains("population")) {
+                generate("population.csv", () -> generator.writePopulation(output.resolve("population.csv")));
+            }
+            if (datasets.contains("properties")) {
+                generate("properties.csv", () -> generator.writeProperties(output.resolve("properties.csv"), properties));
+            }
+            if (datasets.contains("covid-csv")) {
+                generate("covid_data.csv", () -> generator.writeCovidCsv(output.resolve("covid_data.csv"), covidRows));
+            }
+            if (datasets.contains("covid-json")) {
+                generate("covid_data.json", () -> generator.writeCovidJson(output.resolve("covid_data.json"), covidRows));
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            System.out.println("Error: Invalid argument value: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.out.println("Error writing dataset: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private interface Generation {
+        void run() throws IOException;
+    }
+
+    private static void generate(String name, Generation generation) throws IOException {
+        long start = System.nanoTime();
+        generation.run();
+        System.out.printf("Wrote %s in %.1f s%n", name, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static Map<String, String> parseArguments(String[] args) {
+        Pattern argPattern = Pattern.compile("^--(?<name>.+?)=(?<value>.+)$");
+        Map<String, String> argMap = new HashMap<>();
+        for (String arg : args) {
+            var matcher = argPattern.matcher(arg);
+            if (!matcher.matches() || !ARGUMENT_NAMES.contains(matcher.group("name"))) {
+                System.out.println("Error: Invalid argument '" + arg + "'. Please use --name=value with output, seed, "
+                        + "zips, properties, days, start, malformed, missing or datasets.");
+                System.exit(1);
+            }
+            if (argMap.put(matcher.group("name"), matcher.group("value")) != null) {
+                System.out.println("Error: Duplicate argument '" + matcher.group("name") + "'.");
+                System.exit(1);
+            }
+        }
+        return argMap;
+    }
+}
@@ -0,0 +1,74 @@
+package edu.upenn.cit594.benchmarks;
+
+import edu.upenn.cit594.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what {@link Logger#logEvent} costs the thread that logs, under each flush policy. With an
+ * asynchronous policy the time includes waiting for room in the queue whenever the writer thread falls behind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerBenchmark {
+    @Param({"SYNC", "BATCH", "INTERVAL"})
+    public Logger.FlushPolicy flushPolicy;
+
+    private final Logger logger = Logger.getInstance();
+    private Path logFile;
+    private double value = 0.1234;
+
+    @Setup
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("cit594-benchmark", ".log");
+        logger.setFlushPolicy(flushPolicy);
+        logger.setLevel(Logger.Level.INFO);
+        logger.setOutputFile(logFile.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        logger.closeLogger();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void logEvent() {
+        logger.logEvent("Total population: 1233991");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logEventFromFourThreads() {
+        logger.logEvent("Total population: 1233991");
+    }
+
+    /**
+     * A debug event below the level of the logger, whose message is never built.
+     */
+    @Benchmark
+    public void logDisabledEvent() {
+        logger.logEvent(Logger.Level.DEBUG, () -> String.format("Vaccinations per capita for %s on %s: %.4f",
+                BenchmarkData.ZIP_CODE, BenchmarkData.FIRST_DATE, value));
+    }
+}
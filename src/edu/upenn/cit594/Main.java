@@ -3,24 +3,34 @@ package edu.upenn.cit594;
 import edu.upenn.cit594.datamanagement.*;
 import edu.upenn.cit594.logging.Logger;
 import edu.upenn.cit594.processor.*;
+import edu.upenn.cit594.ui.BatchQueryRunner;
+import edu.upenn.cit594.ui.QueryServer;
 import edu.upenn.cit594.ui.UserInterface;
 import edu.upenn.cit594.util.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 public class Main {
+    // The names of the runtime arguments; each may be given at most once
+    private static final Set<String> ARGUMENT_NAMES = Set.of("covid", "properties", "population", "log", "loglevel", "logflush", "queries", "serve", "watch");
+
     public static void main(String[] args) throws CSVFormatException, IOException {
         // Initialize Logger
         Logger logger = Logger.getInstance();
 
         // Parse command-line arguments
-        if (args.length < 1 || args.length > 4) {
-            System.out.println("Error: Invalid number of arguments. Please provide between one and four file paths.");
-            logger.logEvent("Error: Invalid number of arguments. Please provide between one and four file paths.");
+        if (args.length < 1 || args.length > ARGUMENT_NAMES.size()) {
+            System.out.println("Error: Invalid number of arguments. Please provide between one and " + ARGUMENT_NAMES.size() + " arguments.");
+            logger.logEvent(Logger.Level.ERROR, "Error: Invalid number of arguments. Please provide between one and " + ARGUMENT_NAMES.size() + " arguments.");
             System.exit(1);
         }
 
@@ -31,42 +41,171 @@ public class Main {
         String populationFilePath = argMap.get("population");
         // If logger is not specified (null) it will default to System.err output
         String logFile = argMap.get("log");
+        // When log events are flushed to the log; by default they are written in the background and flushed in batches
+        String logFlush = argMap.getOrDefault("logflush", "batch");
+        // The least important events that are logged; debug also logs the value of every ZIP Code in a result
+        String logLevel = argMap.getOrDefault("loglevel", "info");
         String covidDataFilePath = argMap.get("covid");
         String propertiesFile = argMap.get("properties");
+        // If a queries file is given, its queries are run instead of the interactive menu
+        String queriesFile = argMap.get("queries");
+        // If a port is given, queries are served over HTTP on it instead of the interactive menu
+        String servePort = argMap.get("serve");
+        // If watch is true, the datasets are reloaded when their files change (see DatasetWatcher)
+        String watch = argMap.getOrDefault("watch", "false");
 
         // Set the log file
+        try {
+            logger.setFlushPolicy(Logger.FlushPolicy.valueOf(logFlush.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: Invalid log flush policy '" + logFlush + "'. Please use sync, batch or interval.");
+            System.exit(1);
+        }
+        try {
+            logger.setLevel(Logger.Level.valueOf(logLevel.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: Invalid log level '" + logLevel + "'. Please use debug, info, warn, error or audit.");
+            System.exit(1);
+        }
         logger.setOutputFile(logFile);
+        if (!watch.equalsIgnoreCase("true") && !watch.equalsIgnoreCase("false")) {
+            System.out.println("Error: Invalid watch value '" + watch + "'. Please use true or false.");
+            System.exit(1);
+        }
 
         // Log command line arguments
-        logger.logEvent("Command line arguments: " + String.join(" ", args));
+        logger.logEvent(Logger.Level.AUDIT, "Command line arguments: " + String.join(" ", args));
 
-        DataReader<Population> populationDataReader = new PopulationFileReader();
+        // Parsed datasets are kept as binary snapshots next to the source files, so unchanged files load without parsing
+        DataReader<Population> populationDataReader = new SnapshotDataReader<>(new PopulationFileReader(), SnapshotDataReader.POPULATION);
         DataReader<Vaccination> vaccinationDataReader;
-        DataReader<Property> propertyDataReader = new CsvPropertyReader();
-        if (covidDataFilePath.toLowerCase().endsWith(".json")) {
-            vaccinationDataReader = new JsonVaccinationReader();
+        DataReader<Property> propertyDataReader = new SnapshotDataReader<>(new CsvPropertyReader(), SnapshotDataReader.PROPERTY);
+        if (covidDataFilePath == null) {
+            vaccinationDataReader = null;
+        } else if (covidDataFilePath.toLowerCase().endsWith(".json")) {
+            vaccinationDataReader = new SnapshotDataReader<>(new JsonVaccinationReader(), SnapshotDataReader.VACCINATION);
         } else if (covidDataFilePath.toLowerCase().endsWith(".csv")) {
-            vaccinationDataReader = new CsvVaccinationReader();
+            vaccinationDataReader = new SnapshotDataReader<>(new CsvVaccinationReader(), SnapshotDataReader.VACCINATION);
         } else {
             System.out.println("Error: Unsupported file format for vaccination data. Please use JSON or CSV.");
-            logger.logEvent("Error: Unsupported file format for vaccination data. Please use JSON or CSV.");
+            logger.logEvent(Logger.Level.ERROR, "Error: Unsupported file format for vaccination data. Please use JSON or CSV.");
             System.exit(1);
             return; // This is to avoid further execution if there's an error
         }
 
-        // Initialize processors and other components
-        PopulationDataProcessor populationDataProcessor = new PopulationDataProcessor(populationDataReader, populationFilePath);
-        VaccinationDataProcessor vaccinationDataProcessor = new VaccinationDataProcessor(vaccinationDataReader, populationDataProcessor, covidDataFilePath);
-        PropertyDataProcessor propertyDataProcessor = new PropertyDataProcessor(propertiesFile, propertyDataReader, populationDataProcessor);
+        // Load the datasets that were given concurrently in the background, so that the menu is available straight
+        // away. A dataset whose file was not given has no future, which marks it as not provided. The vaccination
+        // and property processors only need the population data for some queries, so they load without waiting
+        // for it. The loader threads are daemons and do not keep the program alive after exit.
+        ExecutorService loader = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "dataset-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<PopulationDataProcessor> populationDataProcessor = loadAsync(populationFilePath,
+                () -> new PopulationDataProcessor(populationDataReader, populationFilePath), loader);
+        CompletableFuture<VaccinationDataProcessor> vaccinationDataProcessor = loadAsync(covidDataFilePath,
+                () -> new VaccinationDataProcessor(vaccinationDataReader, populationDataProcessor, covidDataFilePath), loader);
+        CompletableFuture<PropertyDataProcessor> propertyDataProcessor = loadAsync(propertiesFile,
+                () -> new PropertyDataProcessor(propertiesFile, propertyDataReader, populationDataProcessor), loader);
+        loader.shutdown();
+
+        // Initialize other components
         getParameter getParameter = new getParameter();
         DataProcessor dataProcessor = new DataProcessor(populationDataProcessor, vaccinationDataProcessor, propertyDataProcessor, getParameter);
-        UserInterface userInterface = new UserInterface(dataProcessor);
-        userInterface.run();
+        DatasetWatcher datasetWatcher = null;
+        if (watch.equalsIgnoreCase("true")) {
+            datasetWatcher = new DatasetWatcher(dataProcessor, populationFilePath, covidDataFilePath, propertiesFile);
+            datasetWatcher.start();
+        }
+        if (queriesFile != null) {
+            BatchQueryRunner batchQueryRunner = new BatchQueryRunner(dataProcessor);
+            batchQueryRunner.run(queriesFile);
+        }
+        if (servePort != null) {
+            serve(dataProcessor, servePort);
+            return; // The server runs until the program is stopped, and closes the logger then
+        }
+        if (queriesFile == null) {
+            UserInterface userInterface = new UserInterface(dataProcessor);
+            userInterface.run();
+        }
+        if (datasetWatcher != null) {
+            datasetWatcher.close();
+        }
 
         // Close the logger
         logger.closeLogger();
     }
 
+    /**
+     * Starts serving queries over HTTP. The server keeps the program running until it is stopped, for example
+     * with Ctrl-C, at which point the server is stopped and the logger closed.
+     *
+     * @param dataProcessor The data processor to answer the queries with.
+     * @param port The port to listen on.
+     */
+    private static void serve(DataProcessor dataProcessor, String port) throws IOException {
+        Logger logger = Logger.getInstance();
+        int portNumber;
+        try {
+            portNumber = Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            portNumber = -1;
+        }
+        if (portNumber < 0 || portNumber > 65535) {
+            System.out.println("Error: Invalid port '" + port + "'. Please provide a number between 0 and 65535.");
+            logger.logEvent(Logger.Level.ERROR, "Error: Invalid port '" + port + "'");
+            System.exit(1);
+        }
+
+        QueryServer queryServer = new QueryServer(dataProcessor, portNumber);
+        queryServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            queryServer.stop();
+            logger.closeLogger();
+        }));
+        System.out.println("Serving queries on port " + queryServer.getPort() + ". Press Ctrl-C to stop.");
+    }
+
+    /**
+     * Constructs a processor, which loads its dataset.
+     */
+    private interface ProcessorLoader<T> {
+        T load() throws CSVFormatException, IOException;
+    }
+
+    /**
+     * Starts loading a dataset in the background, if its file was given.
+     *
+     * @param filePath The path of the dataset's file, or null if it was not given.
+     * @param processorLoader The loader of the dataset's processor.
+     * @param executor The executor to load it on.
+     * @return The processor once it is loaded, or null if the file was not given.
+     */
+    private static <T> CompletableFuture<T> loadAsync(String filePath, ProcessorLoader<T> processorLoader, Executor executor) {
+        if (filePath == null) {
+            return null;
+        }
+        return CompletableFuture.supplyAsync(() -> load(processorLoader), executor);
+    }
+
+    /**
+     * Runs a processor loader, rethrowing its checked exceptions unchecked so that it can run as a background task.
+     *
+     * @param processorLoader The loader to run.
+     * @return The loaded processor.
+     */
+    private static <T> T load(ProcessorLoader<T> processorLoader) {
+        try {
+            return processorLoader.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CSVFormatException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
 //    private static Map<String, String> parseArguments(String[] args) {
 //        Map<String, String> arguments = new HashMap<>();
 //        for (String arg : args) {
@@ -83,11 +222,16 @@ public class Main {
 
     /**
      * Parses and validates the command-line arguments. Runtime arguments should be in the form “--name=value”.
-     * There are 4 optional runtime arguments to the program:
+     * There are 9 optional runtime arguments to the program:
      * • covid: The name of the COVID data file
      * • properties: The name of the property values file
      * • population: The name of the population data file
      * • log: The name of the log file (described below)
+     * • loglevel: The least important level of the events that are logged: debug, info (the default), warn, error or audit
+     * • logflush: When log events are flushed to the log: sync, batch (the default) or interval (see Logger.FlushPolicy)
+     * • queries: The name of a file of queries to run instead of the interactive menu (see BatchQueryRunner)
+     * • serve: The port to serve queries on over HTTP instead of the interactive menu (see QueryServer)
+     * • watch: Whether to reload the datasets when their files change: true or false (the default) (see DatasetWatcher)
      * @param args The command-line arguments.
      * @return A map of argument names to their values.
      * @throws IllegalArgumentException under any of the following
@@ -115,8 +259,8 @@ public class Main {
                 throw new IllegalArgumentException("Error: Duplicate argument '" + name + "'");
             }
 
-            // Check if the name of the argument is valid as one of the "covid, properties, population, log"
-            if (!Set.of("covid", "properties", "population", "log").contains(name)) {
+            // Check if the name of the argument is valid as one of the "covid, properties, population, log, loglevel, logflush, queries, serve, watch"
+            if (!ARGUMENT_NAMES.contains(name)) {
                 throw new IllegalArgumentException("Error: Unknown argument name '" + name + "'");
             }
 
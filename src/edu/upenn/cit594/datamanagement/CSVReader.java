@@ -1,248 +1,392 @@
-package edu.upenn.cit594.datamanagement;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-
-/**
- * CSV reader to read individual CSV rows
- * as arrays of strings that have been read from a given CSV file.
- */
-public class CSVReader implements AutoCloseable {
-    @SuppressWarnings("unused")
-    private static final long serialVersionUID = 5130409650040L;
-    private final BufferedReader reader;
-    private String[] headers = new String[0];
-    public CSVReader(String filename) throws IOException {
-        this.reader = Files.newBufferedReader(Paths.get(filename));
-        try {
-            this.headers = readRow();
-        } catch (CSVFormatException | IOException e) {
-            System.out.println(e);
-        }
-        if (this.headers == null) {
-            throw new IOException("CSV file is empty or headers are missing");
-        }
-    }
-
-
-    /**
-     * Reads the next row from the CSV file and returns it as an array of strings.
-     *
-     * @return a single row of CSV represented as a string array, where each
-     *         element of the array is a field of the row; or {@code null} when
-     *         there are no more rows left to be read.
-     * @throws IOException when the underlying reader encountered an error
-     * @throws CSVFormatException when the CSV file is formatted incorrectly
-     */
-    // enum for the state machine
-    private enum State {
-        START_FIELD,        // state when starting to parse a new field
-        UNQUOTED_FIELD,     // state when in the middle of an unquoted field
-        QUOTED_FIELD,       // state when in the middle of a quoted field
-        END_QUOTED_FIELD,      // state immediately after a closing quote in a field
-        LAST_WAS_CR     // state to handle \r
-    }
-
-    public String[] readRow() throws IOException, CSVFormatException {
-        // initialize a list to hold individual fields found in the current row
-        List<String> values = new ArrayList<>();
-
-        // Leverage StringBuilder to create a mutable character sequence
-        StringBuilder currentField = new StringBuilder();
-
-        // set the initial state, indicating the start of a field
-        State state = State.START_FIELD;
-
-        // variable to track if we are inside of a quoted field
-        boolean inQuotedField = false;
-
-        // initialize the variables to track where we are for better error tracking
-        int currentChar;    // hold the current character read from the CSV file
-        int line = 1; // line counter, initialized as 1
-
-
-        // While loop to enable continuous reading until it reached the end of the file
-        while ((currentChar = reader.read()) != -1) {
-
-            // read the character and increment the column counter for each character read
-            char c = (char) currentChar;
-
-            // switch statement based on the current state of the parser
-            switch(state) {
-                //the start of a new field
-                case START_FIELD:
-                    // Quote starts a quoted field
-                    if (c == '\"') {
-                        state = State.QUOTED_FIELD;
-                        inQuotedField = true;
-
-                        // comma signifies end of field, save the field and reset the builder
-                    } else if (c == ',') {
-                        values.add(currentField.toString());
-                        currentField.setLength(0);
-
-                        // newline character indicates the end of row
-                    } else if (c == '\n' || c == '\r') {
-                        if (values.size() != 0 || currentField.length() != 0) {
-                            // add the last field and prepare to return the record
-                            values.add(currentField.toString());
-                            return values.toArray(new String[0]);
-                        }
-
-                        // reset the counter to get ready for new row
-                        line++;
-
-
-                        if (c == '\r') {
-                            state = State.LAST_WAS_CR;
-                        }
-
-                        // handling leading and trailing spaces and tabs so they are added to the field
-                    } else if (c == ' ' || c == '\t') {
-                        currentField.append(c);
-
-                        // All the other cases indicate that it is a regular character, and starts an unquoted field
-                    } else {
-                        currentField.append(c);
-                        state = State.UNQUOTED_FIELD;
-                    }
-                    break;
-
-                // within a non-quoted field
-                case UNQUOTED_FIELD:
-                    // commas ends the current field. save it and reset the field
-                    if (c == ',') {
-                        values.add(currentField.toString());
-                        currentField.setLength(0);
-                        // prepare for the next field
-                        state = State.START_FIELD;
-                        // increment the field
-
-                    } else if (c == '"') {
-                        throw new CSVFormatException("Unescaped Double Quotes in Fields", line);
-                    }
-
-                    // newline character indicates the end of row
-                    else if ((c == '\n') || (c== '\r')) {
-                        // check if it's not just an empty line or the filed is not empty, this indicates that we do
-                        // have data to save for the current row
-                        if (values.size() != 0 || currentField.length() != 0) {
-                            // add the last field and prepare to return the record
-                            values.add(currentField.toString());
-                            return values.toArray(new String[0]);
-                        }
-                        // now this is a new line, increment the line and row counters
-                        line++;
-
-
-                        // other characters are part of the current field
-                    } else { currentField.append(c); }
-                    break;
-
-                // within a quoted field
-                case QUOTED_FIELD:
-                    // A second quote indicate the end of the quoted field, or an escaped quote (""), dependent on the
-                    // character. need to check the next character to decide. Therefore, first transition to the
-                    // END_QUOTED_FIELD
-                    if (c == '\"') {
-                        state = State.END_QUOTED_FIELD;
-                        inQuotedField = false;
-
-                        // if we encounter any characters other than a quote. Just add to the field.
-                    } else {
-                        currentField.append(c);
-                    }
-                    break;
-
-                // checking character immediately after a closing quote
-                case END_QUOTED_FIELD:
-                    if (c == '\"') {
-                        // "" are escaped
-                        currentField.append('\"');
-                        // still in quoted field
-                        state = State.QUOTED_FIELD;
-
-                        // Comma ends the field, save it, and reset the field
-                    } else if (c == ',') {
-                        values.add(currentField.toString());
-                        currentField.setLength(0);
-                        // Prepare for the next field.
-                        state = State.START_FIELD;
-
-                        // newline character indicates the end of row
-                    } else if ((c == '\n') || (c== '\r')) {
-                        // add the last field and prepare to return the record
-                    values.add(currentField.toString());
-                    return values.toArray(new String[0]);
-
-                    // Unexpected character (not whitespace) outside of quotes is an error.//
-                } else if (c != ' ' && c != '\t') {
-                    throw new CSVFormatException("Unexpected character after quoted field", line);
-                }break;
-
-                case LAST_WAS_CR:
-                    if (c == '\n') {
-                        state = State.START_FIELD;
-                    } else {
-                        // The '\r' was not followed by '\n', which is an error outside of quotes
-                        if (!inQuotedField) {
-                            throw new CSVFormatException("Carriage return must be followed by newline outside quoted field", line);
-                        }
-                        state = State.UNQUOTED_FIELD; // If we're in a quoted field, we revert to the unquoted state.
-                    }
-                    break;
-            }
-        }
-
-        // At the end of the file, check for a field or line that hasn't been closed properly.
-        if (inQuotedField) {
-            throw new CSVFormatException("Line ended with an unfinished quoted field", line);
-        }
-
-        if (state == State.LAST_WAS_CR) {
-            throw new CSVFormatException("File ended with a carriage return character", line);
-        }
-
-        // If there's data in currentField, a field is still open, so we add it.
-        if (currentField.length() > 0 || state == State.END_QUOTED_FIELD) {
-            values.add(currentField.toString());
-            return values.toArray(new String[0]);
-        }
-
-        // If the row was not empty, we return it, otherwise return null indicating EOF.
-        if (!values.isEmpty()) {
-            return values.toArray(new String[0]);
-        }
-
-        // If EOF is reached and no data is left to process, return null.
-        return null;
-    }
-
-    public Map<String, String> readRowAsDict() throws IOException, CSVFormatException {
-        String[] rowData = readRow();
-        if (rowData == null) {
-            return null; // Return null if end of file is reached
-        }
-
-        if (rowData.length != headers.length) {
-            throw new CSVFormatException("Data row does not match header length");
-        }
-
-        Map<String, String> rowMap = new HashMap<>();
-        for (int i = 0; i < headers.length; i++) {
-            rowMap.put(headers[i], rowData[i]);
-        }
-
-        return rowMap;
-    }
-    @Override
-    public void close() throws IOException {
-        this.reader.close();
-    }
-}
+package edu.upenn.cit594.datamanagement;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * CSV reader to read individual CSV rows
+ * as arrays of strings that have been read from a given CSV file.
+ *
+ * The input is scanned in large character blocks and every row is assembled into a single reused
+ * {@link CSVRow}, so {@link #nextRow()} does not allocate per row; Strings are only created when a
+ * caller asks for them through {@link #readRow()}, {@link #readRowAsDict()} or the CSVRow accessors.
+ */
+public class CSVReader implements AutoCloseable {
+    @SuppressWarnings("unused")
+    private static final long serialVersionUID = 5130409650040L;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // states of the tokenizer
+    private static final int START_FIELD = 0;        // state when starting to parse a new field
+    private static final int UNQUOTED_FIELD = 1;     // state when in the middle of an unquoted field
+    private static final int QUOTED_FIELD = 2;       // state when in the middle of a quoted field
+    private static final int END_QUOTED_FIELD = 3;   // state immediately after a closing quote in a field
+    private static final int LAST_WAS_CR = 4;        // state to handle \r
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;   // index of the next unread character in the buffer
+    private int limit;      // number of valid characters in the buffer
+    private final CSVRow row = new CSVRow();
+    private String[] headers = new String[0];
+    private String[] columnNames = headers;   // names of the columns exposed by each row
+    private boolean projected;                // whether selectColumns has restricted the columns
+    public CSVReader(String filename) throws IOException {
+        this.reader = new InputStreamReader(Files.newInputStream(Paths.get(filename)),
+                StandardCharsets.UTF_8.newDecoder());
+        readHeaders();
+    }
+
+    /**
+     * Creates a reader over a slice of a CSV file that does not start with the header row,
+     * such as one chunk of a file being parsed by {@link ParallelCSVReader}.
+     *
+     * @param reader  the reader positioned at the start of a data row
+     * @param headers the header row of the file the slice was taken from
+     */
+    CSVReader(Reader reader, String[] headers) {
+        this.reader = reader;
+        this.headers = headers;
+        this.columnNames = headers;
+    }
+
+    /**
+     * Creates a reader whose subclass supplies the input by overriding {@link #fill(char[])}.
+     *
+     * @param headers the header row, or {@code null} if the subclass reads it with {@link #readHeaders()}
+     */
+    CSVReader(String[] headers) {
+        this.reader = null;
+        this.headers = headers == null ? new String[0] : headers;
+        this.columnNames = this.headers;
+    }
+
+    /**
+     * Reads the first row of the input as the header row.
+     *
+     * @throws IOException when the input is empty
+     */
+    void readHeaders() throws IOException {
+        try {
+            this.headers = readRow();
+            this.columnNames = this.headers;
+        } catch (CSVFormatException | IOException e) {
+            System.err.println(e);
+        }
+        if (this.headers == null) {
+            throw new IOException("CSV file is empty or headers are missing");
+        }
+    }
+
+    /**
+     * @return the header row of the CSV file
+     */
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Restricts the rows returned from now on to the given columns. The names are resolved against the
+     * header row once; each row then exposes only these columns, in the order given here, and the
+     * tokenizer skips the characters of every other column without copying them. Rows whose number of
+     * fields differs from the header row are rejected, as in {@link #readRowAsDict()}.
+     *
+     * @param columns the names of the columns to keep, each given once
+     * @throws CSVFormatException when a column is not in the header row, is in it more than once, or is given
+     *                            more than once
+     */
+    public void selectColumns(String... columns) throws CSVFormatException {
+        Map<String, Integer> columnByName = new HashMap<>();
+        for (int column = 0; column < headers.length; column++) {
+            // a name that heads several columns maps to -1, since it cannot tell them apart
+            columnByName.merge(headers[column], column, (first, next) -> -1);
+        }
+        int[] slotByColumn = new int[headers.length];
+        Arrays.fill(slotByColumn, -1);
+        for (int slot = 0; slot < columns.length; slot++) {
+            Integer column = columnByName.get(columns[slot]);
+            if (column == null) {
+                throw new CSVFormatException("Missing column " + columns[slot]);
+            }
+            if (column < 0) {
+                throw new CSVFormatException("Ambiguous column " + columns[slot] + ", which heads several columns");
+            }
+            if (slotByColumn[column] >= 0) {
+                throw new CSVFormatException("Duplicate column " + columns[slot]);
+            }
+            slotByColumn[column] = slot;
+        }
+        row.project(slotByColumn, columns.length);
+        columnNames = columns.clone();
+        projected = true;
+    }
+
+    /**
+     * Reads the next row from the CSV file and returns it as an array of strings.
+     *
+     * @return a single row of CSV represented as a string array, where each
+     *         element of the array is a field of the row; or {@code null} when
+     *         there are no more rows left to be read.
+     * @throws IOException when the underlying reader encountered an error
+     * @throws CSVFormatException when the CSV file is formatted incorrectly
+     */
+    public String[] readRow() throws IOException, CSVFormatException {
+        CSVRow next = nextRow();
+        return next == null ? null : next.toArray();
+    }
+
+    /**
+     * Advances to the next row of the CSV file without creating any Strings.
+     * The returned row is reused by this reader and is only valid until the next call.
+     *
+     * @return the row cursor positioned on the next row, or {@code null} when
+     *         there are no more rows left to be read.
+     * @throws IOException when the underlying reader encountered an error
+     * @throws CSVFormatException when the CSV file is formatted incorrectly
+     */
+    public CSVRow nextRow() throws IOException, CSVFormatException {
+        CSVRow next = tokenizeRow();
+        if (next != null && projected && next.fieldCount() != headers.length) {
+            throw new CSVFormatException("Data row does not match header length");
+        }
+        return next;
+    }
+
+    /**
+     * Runs the tokenizer over the next row of the input.
+     *
+     * @return the filled row cursor, or {@code null} at the end of the input
+     */
+    private CSVRow tokenizeRow() throws IOException, CSVFormatException {
+        CSVRow row = this.row;
+        row.clear();
+
+        // set the initial state, indicating the start of a field
+        int state = START_FIELD;
+
+        // variable to track if we are inside of a quoted field
+        boolean inQuotedField = false;
+
+        int line = 1; // line counter, initialized as 1
+        char[] buffer = this.buffer;
+
+        // Loop until the row is complete or the end of the file is reached
+        while (position < limit || fillBuffer()) {
+            char c = buffer[position++];
+
+            // switch statement based on the current state of the parser
+            switch (state) {
+                //the start of a new field
+                case START_FIELD:
+                    // Quote starts a quoted field
+                    if (c == '\"') {
+                        state = QUOTED_FIELD;
+                        inQuotedField = true;
+
+                        // comma signifies end of field
+                    } else if (c == ',') {
+                        row.endField();
+
+                        // newline character indicates the end of row
+                    } else if (c == '\n' || c == '\r') {
+                        if (row.fieldCount() != 0 || row.currentFieldLength() != 0) {
+                            // add the last field and prepare to return the record
+                            row.endField();
+                            return row;
+                        }
+
+                        // reset the counter to get ready for new row
+                        line++;
+
+                        if (c == '\r') {
+                            state = LAST_WAS_CR;
+                        }
+
+                        // handling leading and trailing spaces and tabs so they are added to the field
+                    } else if (c == ' ' || c == '\t') {
+                        row.append(c);
+
+                        // All the other cases indicate that it is a regular character, and starts an unquoted field
+                    } else {
+                        row.append(c);
+                        state = UNQUOTED_FIELD;
+                    }
+                    break;
+
+                // within a non-quoted field
+                case UNQUOTED_FIELD:
+                    // commas ends the current field and prepares for the next one
+                    if (c == ',') {
+                        row.endField();
+                        state = START_FIELD;
+
+                    } else if (c == '"') {
+                        throw new CSVFormatException("Unescaped Double Quotes in Fields", line);
+                    }
+
+                    // newline character indicates the end of row
+                    else if ((c == '\n') || (c == '\r')) {
+                        // check if it's not just an empty line or the filed is not empty, this indicates that we do
+                        // have data to save for the current row
+                        if (row.fieldCount() != 0 || row.currentFieldLength() != 0) {
+                            row.endField();
+                            return row;
+                        }
+                        line++;
+
+                        // other characters are part of the current field: copy the whole run of them at once
+                    } else {
+                        int runEnd = position;
+                        while (runEnd < limit) {
+                            char next = buffer[runEnd];
+                            if (next == ',' || next == '"' || next == '\n' || next == '\r') {
+                                break;
+                            }
+                            runEnd++;
+                        }
+                        row.append(buffer, position - 1, runEnd - position + 1);
+                        position = runEnd;
+                    }
+                    break;
+
+                // within a quoted field
+                case QUOTED_FIELD:
+                    // A second quote indicate the end of the quoted field, or an escaped quote (""), dependent on the
+                    // character. need to check the next character to decide. Therefore, first transition to the
+                    // END_QUOTED_FIELD
+                    if (c == '\"') {
+                        state = END_QUOTED_FIELD;
+                        inQuotedField = false;
+
+                        // any characters other than a quote are part of the field: copy the whole run of them at once
+                    } else {
+                        int runEnd = position;
+                        while (runEnd < limit && buffer[runEnd] != '"') {
+                            runEnd++;
+                        }
+                        row.append(buffer, position - 1, runEnd - position + 1);
+                        position = runEnd;
+                    }
+                    break;
+
+                // checking character immediately after a closing quote
+                case END_QUOTED_FIELD:
+                    if (c == '\"') {
+                        // "" are escaped
+                        row.append('\"');
+                        // still in quoted field
+                        state = QUOTED_FIELD;
+
+                        // Comma ends the field and prepares for the next one
+                    } else if (c == ',') {
+                        row.endField();
+                        state = START_FIELD;
+
+                        // newline character indicates the end of row
+                    } else if ((c == '\n') || (c == '\r')) {
+                        // add the last field and prepare to return the record
+                        row.endField();
+                        return row;
+
+                        // Unexpected character (not whitespace) outside of quotes is an error.//
+                    } else if (c != ' ' && c != '\t') {
+                        throw new CSVFormatException("Unexpected character after quoted field", line);
+                    }
+                    break;
+
+                case LAST_WAS_CR:
+                    if (c == '\n') {
+                        state = START_FIELD;
+                    } else {
+                        // The '\r' was not followed by '\n', which is an error outside of quotes
+                        if (!inQuotedField) {
+                            throw new CSVFormatException("Carriage return must be followed by newline outside quoted field", line);
+                        }
+                        state = UNQUOTED_FIELD; // If we're in a quoted field, we revert to the unquoted state.
+                    }
+                    break;
+            }
+        }
+
+        // At the end of the file, check for a field or line that hasn't been closed properly.
+        if (inQuotedField) {
+            throw new CSVFormatException("Line ended with an unfinished quoted field", line);
+        }
+
+        if (state == LAST_WAS_CR) {
+            throw new CSVFormatException("File ended with a carriage return character", line);
+        }
+
+        // If there's data in the current field, a field is still open, so we add it.
+        if (row.currentFieldLength() > 0 || state == END_QUOTED_FIELD) {
+            row.endField();
+            return row;
+        }
+
+        // If the row was not empty, it ended with a comma, so its last field is empty; otherwise return null
+        // indicating EOF.
+        if (row.fieldCount() != 0) {
+            row.endField();
+            return row;
+        }
+
+        // If EOF is reached and no data is left to process, return null.
+        return null;
+    }
+
+    /**
+     * Refills the character buffer from the underlying input.
+     *
+     * @return {@code true} if at least one character is available, {@code false} at the end of the input
+     */
+    private boolean fillBuffer() throws IOException {
+        int read;
+        do {
+            read = fill(buffer);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    /**
+     * Reads the next block of characters into the buffer.
+     *
+     * @param buffer the buffer to fill from index 0
+     * @return the number of characters read, or -1 at the end of the input
+     */
+    int fill(char[] buffer) throws IOException {
+        return reader.read(buffer, 0, buffer.length);
+    }
+
+    public Map<String, String> readRowAsDict() throws IOException, CSVFormatException {
+        CSVRow rowData = nextRow();
+        if (rowData == null) {
+            return null; // Return null if end of file is reached
+        }
+
+        if (rowData.fieldCount() != headers.length) {
+            throw new CSVFormatException("Data row does not match header length");
+        }
+
+        Map<String, String> rowMap = new HashMap<>();
+        for (int i = 0; i < columnNames.length; i++) {
+            rowMap.put(columnNames[i], rowData.getString(i));
+        }
+
+        return rowMap;
+    }
+    @Override
+    public void close() throws IOException {
+        if (this.reader != null) {
+            this.reader.close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package edu.upenn.cit594.datamanagement;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CSVReaderTests {
+
+    /*
+     * A reader that hands out at most a few characters per read, so that every row and field of a small input
+     * crosses the end of a block of the tokenizer.
+     */
+    private static final class SmallBlockReader extends Reader {
+        private final Reader reader;
+        private final int blockSize;
+
+        SmallBlockReader(String input, int blockSize) {
+            this.reader = new StringReader(input);
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return reader.read(buffer, offset, Math.min(length, blockSize));
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static CSVReader reader(Reader input) throws IOException {
+        CSVReader csvReader = new CSVReader(input, null);
+        csvReader.readHeaders();
+        return csvReader;
+    }
+
+    private static List<String[]> readAll(Reader input) throws IOException, CSVFormatException {
+        List<String[]> rows = new ArrayList<>();
+        try (CSVReader csvReader = reader(input)) {
+            String[] row;
+            while ((row = csvReader.readRow()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /*
+     * Reads the input in one block, and again with blocks of every size from 1 to 7 characters, expecting the
+     * same rows each time.
+     */
+    private static void assertRows(String input, String[]... expected) throws IOException, CSVFormatException {
+        assertRowsEqual(expected, readAll(new StringReader(input)));
+        for (int blockSize = 1; blockSize <= 7; blockSize++) {
+            assertRowsEqual(expected, readAll(new SmallBlockReader(input, blockSize)));
+        }
+    }
+
+    private static void assertRowsEqual(String[][] expected, List<String[]> rows) {
+        assertEquals(expected.length, rows.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals("row " + i + " was " + Arrays.toString(rows.get(i)), expected[i], rows.get(i));
+        }
+    }
+
+    private static void assertMalformed(String input) throws IOException {
+        try {
+            readAll(new StringReader(input));
+            fail("Expected a CSVFormatException");
+        } catch (CSVFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testHeaders() throws Exception {
+        try (CSVReader csvReader = reader(new StringReader("a,b,c\n1,2,3\n"))) {
+            assertArrayEquals(new String[]{"a", "b", "c"}, csvReader.getHeaders());
+        }
+    }
+
+    @Test
+    public void testUnquotedFields() throws Exception {
+        assertRows("a,b,c\n1,22,333\n,x,\n",
+                new String[]{"1", "22", "333"},
+                new String[]{"", "x", ""});
+    }
+
+    @Test
+    public void testQuotedFields() throws Exception {
+        assertRows("a,b\n\"1,2\",\"line\nbreak\"\n\"\",\" spaced \"\n",
+                new String[]{"1,2", "line\nbreak"},
+                new String[]{"", " spaced "});
+    }
+
+    @Test
+    public void testEscapedQuotes() throws Exception {
+        assertRows("a,b\n\"say \"\"hi\"\"\",\"\"\"\"\n",
+                new String[]{"say \"hi\"", "\""});
+    }
+
+    @Test
+    public void testCRLF() throws Exception {
+        assertRows("a,b\r\n1,2\r\n\"3\",\"4\r\n5\"\r\n6,\r\n",
+                new String[]{"1", "2"},
+                new String[]{"3", "4\r\n5"},
+                new String[]{"6", ""});
+    }
+
+    @Test
+    public void testMissingFinalNewline() throws Exception {
+        assertRows("a,b\n1,2", new String[]{"1", "2"});
+        assertRows("a,b\n1,\"2\"", new String[]{"1", "2"});
+        assertRows("a,b\n1,", new String[]{"1", ""});
+    }
+
+    @Test
+    public void testBlankLinesAreSkipped() throws Exception {
+        assertRows("a,b\n\n1,2\n\n\n3,4\n\n",
+                new String[]{"1", "2"},
+                new String[]{"3", "4"});
+    }
+
+    @Test
+    public void testQuotedFieldAcrossBufferBoundary() throws Exception {
+        // the quoted field, with an escaped quote and a newline, starts a few characters before the end of the
+        // tokenizer's 64K block and ends after it
+        StringBuilder input = new StringBuilder("a,b\n");
+        StringBuilder padding = new StringBuilder();
+        while (input.length() + padding.length() + 2 < 64 * 1024 - 3) {
+            padding.append('x');
+        }
+        input.append(padding).append(",\"ab\"\"c\nde\"\n1,2\n");
+
+        assertRows(input.toString(),
+                new String[]{padding.toString(), "ab\"c\nde"},
+                new String[]{"1", "2"});
+    }
+
+    @Test
+    public void testUnescapedQuoteInUnquotedField() throws Exception {
+        assertMalformed("a,b\n1,2\"3\n");
+    }
+
+    @Test
+    public void testCharacterAfterClosingQuote() throws Exception {
+        assertMalformed("a,b\n\"1\"x,2\n");
+    }
+
+    @Test
+    public void testUnfinishedQuotedField() throws Exception {
+        assertMalformed("a,b\n1,\"2\n");
+    }
+
+    @Test
+    public void testRowsWithTooFewOrTooManyFields() throws Exception {
+        // readRow returns rows as they are
+        assertRows("a,b\n1\n1,2,3\n",
+                new String[]{"1"},
+                new String[]{"1", "2", "3"});
+
+        try (CSVReader csvReader = reader(new StringReader("a,b\n1,2\n1\n"))) {
+            Map<String, String> row = csvReader.readRowAsDict();
+            assertEquals("1", row.get("a"));
+            assertEquals("2", row.get("b"));
+            try {
+                csvReader.readRowAsDict();
+                fail("Expected a CSVFormatException for a short row");
+            } catch (CSVFormatException e) {
+                // expected
+            }
+        }
+
+        try (CSVReader csvReader = reader(new StringReader("a,b\n1,2,3\n"))) {
+            csvReader.selectColumns("b");
+            try {
+                csvReader.nextRow();
+                fail("Expected a CSVFormatException for a long row");
+            } catch (CSVFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSelectColumns() throws Exception {
+        try (CSVReader csvReader = reader(new SmallBlockReader("a,b,c\n1,\"x,y\",3\n4,5,6\n", 2))) {
+            csvReader.selectColumns("c", "a");
+            CSVRow row = csvReader.nextRow();
+            assertEquals(2, row.size());
+            assertEquals(3, row.fieldCount());
+            assertEquals("3", row.getString(0));
+            assertEquals("1", row.getString(1));
+            assertArrayEquals(new String[]{"6", "4"}, csvReader.readRow());
+            assertNull(csvReader.nextRow());
+        }
+    }
+
+    @Test(expected = CSVFormatException.class)
+    public void testSelectMissingColumn() throws Exception {
+        try (CSVReader csvReader = reader(new StringReader("a,b\n1,2\n"))) {
+            csvReader.selectColumns("c");
+        }
+    }
+
+    @Test(expected = CSVFormatException.class)
+    public void testSelectColumnTwice() throws Exception {
+        try (CSVReader csvReader = reader(new StringReader("a,b\n1,2\n"))) {
+            csvReader.selectColumns("b", "a", "b");
+        }
+    }
+
+    @Test
+    public void testSelectColumnWithDuplicateHeader() throws Exception {
+        try (CSVReader csvReader = reader(new StringReader("a,b,a\n1,2,3\n"))) {
+            try {
+                csvReader.selectColumns("a");
+                fail("Expected a CSVFormatException for a name that heads two columns");
+            } catch (CSVFormatException e) {
+                // expected
+            }
+            // the columns with unique names can still be selected
+            csvReader.selectColumns("b");
+            assertArrayEquals(new String[]{"2"}, csvReader.readRow());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.util.Arrays;
+
+/**
+ * A reusable cursor over one row of a CSV file, filled in by {@link CSVReader#nextRow()}.
+ * The characters of the fields are kept back to back in one buffer and each field is exposed as an
+ * offset/length slice of it, so no String is created unless a caller asks for one.
+ * The contents are only valid until the reader advances to the next row.
+ *
+ * When the reader has a column projection (see {@link CSVReader#selectColumns(String...)}), the row
+ * exposes only the selected columns, indexed in the order they were selected, and the characters of
+ * every other column are skipped without being copied.
+ */
+public final class CSVRow {
+    private char[] chars = new char[256];
+    private int length;                      // number of characters used in chars
+    private int[] starts = new int[16];      // start offset of each exposed field
+    private int[] ends = new int[16];        // end offset of each exposed field
+    private int fieldCount;                  // number of completed fields in the row, exposed or not
+    private int fieldStart;                  // start offset of the field being read
+    private int skippedLength;               // number of characters seen in the field being read, if it is skipped
+
+    private int[] slotByColumn;              // exposed index of each column, or -1 if skipped; null exposes every column
+    private int slotCount;                   // number of exposed fields when there is a projection
+    private boolean skipping;                // whether the field being read is skipped
+
+    CSVRow() {
+    }
+
+    /**
+     * @return the number of fields exposed by the row
+     */
+    public int size() {
+        return slotByColumn == null ? fieldCount : slotCount;
+    }
+
+    /**
+     * @return the number of fields in the row, including columns skipped by a projection
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param index the index of the field
+     * @return the number of characters in the field
+     */
+    public int length(int index) {
+        checkIndex(index);
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * @param index    the index of the field
+     * @param position the position of the character within the field
+     * @return the character at the given position of the field
+     */
+    public char charAt(int index, int position) {
+        checkIndex(index);
+        if (position < 0 || starts[index] + position >= ends[index]) {
+            throw new IndexOutOfBoundsException("Position " + position + " is outside field " + index);
+        }
+        return chars[starts[index] + position];
+    }
+
+    /**
+     * Returns a view of a field that reads straight from the row buffer. The view must not be kept
+     * past the next call to {@link CSVReader#nextRow()}.
+     *
+     * @param index the index of the field
+     * @return the field as a CharSequence
+     */
+    public CharSequence field(int index) {
+        checkIndex(index);
+        return new Slice(starts[index], ends[index]);
+    }
+
+    /**
+     * @param index the index of the field
+     * @return the field as a new String
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        return new String(chars, starts[index], ends[index] - starts[index]);
+    }
+
+    /**
+     * Equivalent to {@code getString(index).trim()} without creating the untrimmed String.
+     *
+     * @param index the index of the field
+     * @return the field without leading and trailing whitespace as a new String
+     */
+    public String getTrimmedString(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        int end = ends[index];
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(chars, start, end - start);
+    }
+
+    /**
+     * @return every exposed field of the row as a new array of Strings
+     */
+    public String[] toArray() {
+        String[] values = new String[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getString(i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Field " + index + " is outside a row of " + size() + " fields");
+        }
+    }
+
+    // methods used by CSVReader to build the row
+
+    /**
+     * Restricts the row to the given columns.
+     *
+     * @param slotByColumn the exposed index of each column of the file, or -1 for columns to skip
+     * @param slotCount    the number of exposed columns
+     */
+    void project(int[] slotByColumn, int slotCount) {
+        this.slotByColumn = slotByColumn;
+        this.slotCount = slotCount;
+        if (starts.length < slotCount) {
+            starts = new int[slotCount];
+            ends = new int[slotCount];
+        }
+    }
+
+    void clear() {
+        length = 0;
+        fieldCount = 0;
+        if (slotByColumn != null) {
+            // columns missing from a short row read as empty
+            Arrays.fill(starts, 0, slotCount, 0);
+            Arrays.fill(ends, 0, slotCount, 0);
+        }
+        startField();
+    }
+
+    private void startField() {
+        fieldStart = length;
+        skippedLength = 0;
+        skipping = slotByColumn != null && (fieldCount >= slotByColumn.length || slotByColumn[fieldCount] < 0);
+    }
+
+    int currentFieldLength() {
+        return skipping ? skippedLength : length - fieldStart;
+    }
+
+    void append(char c) {
+        if (skipping) {
+            skippedLength++;
+            return;
+        }
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    void append(char[] source, int offset, int count) {
+        if (skipping) {
+            skippedLength += count;
+            return;
+        }
+        if (length + count > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + count));
+        }
+        System.arraycopy(source, offset, chars, length, count);
+        length += count;
+    }
+
+    void endField() {
+        if (!skipping) {
+            int slot = slotByColumn == null ? fieldCount : slotByColumn[fieldCount];
+            if (slot >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+                ends = Arrays.copyOf(ends, ends.length * 2);
+            }
+            starts[slot] = fieldStart;
+            ends[slot] = length;
+        }
+        fieldCount++;
+        startField();
+    }
+
+    /**
+     * A CharSequence view of part of the row buffer.
+     */
+    private final class Slice implements CharSequence {
+        private final int start;
+        private final int end;
+
+        Slice(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || start + index >= end) {
+                throw new IndexOutOfBoundsException("Index " + index + " is outside a field of length " + length());
+            }
+            return chars[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length() || from > to) {
+                throw new IndexOutOfBoundsException("Range " + from + ".." + to + " is outside a field of length " + length());
+            }
+            return new Slice(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, end - start);
+        }
+    }
+}
@@ -1,66 +1,118 @@
-package edu.upenn.cit594.datamanagement;
-import edu.upenn.cit594.util.validateData;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
-/**
- * Reads property data from a CSV file and creates a list of Property objects.
- * The class implements DataReader interface for the Property data type.
- *
- */
-public class CsvPropertyReader implements DataReader<Property> {
-    /**
-     * Reads property data from the specified CSV file.
-     *
-     * @param fileName The name of the file to read from.
-     * @return A list of Property objects representing the data in the file.
-     */
-    @Override
-    public List<Property> readData(String fileName) {
-        List<Property> properties = new ArrayList<>();
-        try (CSVReader csvReader = new CSVReader(fileName)) {
-
-            Map<String, String> row;
-            while ((row = csvReader.readRowAsDict()) != null) {
-                String totalLivableAreaStr = row.get("total_livable_area").trim();
-                String marketValueStr = row.get("market_value").trim();
-                String zipCode = extractFirstFiveDigits(row.get("zip_code").trim());
-
-                try {
-                    double totalLivableArea = validateData.isValidNumeric(totalLivableAreaStr) ?
-                            validateData.parseDoubleOrFlag(totalLivableAreaStr) : Double.NaN;
-                    double marketValue = validateData.isValidNumeric(marketValueStr) ?
-                            Double.parseDouble(marketValueStr) : Double.NaN;
-
-                    Property property = new Property(totalLivableArea, marketValue, zipCode);
-                    properties.add(property);
-                } catch (NumberFormatException e) {
-                    // Handle number format exception, e.g., if parsing totalLivableArea or marketValue fails
-                    System.err.println("Error parsing numeric value in property data: " + e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error reading property data: " + e.getMessage());
-        }
-        return properties;
-    }
-
-    /**
-     * Extracts the first five digits of a ZIP code string.
-     * If the first five characters are not all numeric, it returns an empty string.
-     *
-     * @param zipCode The ZIP code string to process.
-     * @return The first five digits of the ZIP code, or an empty string if invalid.
-     */
-    private String extractFirstFiveDigits(String zipCode) {
-        if (validateData.isValidZipCode(zipCode)) {
-            // Extract first 5 characters and ensure they are all numeric
-            String firstFiveDigits = zipCode.substring(0, Math.min(5, zipCode.length()));
-            if (firstFiveDigits.matches("\\d+")) {
-                return firstFiveDigits;
-            }
-        }
-        return "";
-    }
-}
+package edu.upenn.cit594.datamanagement;
+import edu.upenn.cit594.util.validateData;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads property data from a CSV file and creates Property objects.
+ * The class implements DataReader interface for the Property data type.
+ * Large files are parsed in parallel chunks by {@link ParallelCSVReader}.
+ *
+ */
+public class CsvPropertyReader implements DataReader<Property> {
+    // the only columns of the file that are read, and their indices within each projected row
+    private static final String[] COLUMNS = {"total_livable_area", "market_value", "zip_code"};
+    private static final int TOTAL_LIVABLE_AREA = 0;
+    private static final int MARKET_VALUE = 1;
+    private static final int ZIP_CODE = 2;
+
+    /**
+     * Reads property data from the specified CSV file, passing each Property to the consumer as it is parsed.
+     *
+     * @param fileName The name of the file to read from.
+     * @param consumer The consumer of the Property objects.
+     */
+    @Override
+    public void streamData(String fileName, Consumer<? super Property> consumer) {
+        try {
+            ParallelCSVReader.<Property>read(fileName, this::readProperties, consumer);
+        } catch (Exception e) {
+            System.err.println("Error reading property data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the property records in a byte range of the specified CSV file, such as the rows appended to it.
+     *
+     * @param fileName The name of the file to read from.
+     * @param start The offset of the first byte of the range.
+     * @param end The offset just past the last byte of the range.
+     * @param consumer The consumer of the Property objects.
+     * @return false if the range could not be read, such as when it holds a malformed row, so that the whole
+     * file is read again.
+     */
+    @Override
+    public boolean streamAppended(String fileName, long start, long end, Consumer<? super Property> consumer) {
+        try {
+            ParallelCSVReader.<Property>readRange(fileName, start, end, this::readProperties, consumer);
+        } catch (Exception e) {
+            System.err.println("Error reading property data: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the remaining rows of a CSV reader (the whole file, or one chunk of it) as Property objects.
+     * A malformed row ends the read with an exception, which the callers report.
+     *
+     * @param csvReader The reader to consume.
+     * @param consumer  The consumer of the properties, in row order.
+     */
+    private void readProperties(CSVReader csvReader, Consumer<? super Property> consumer)
+            throws IOException, CSVFormatException {
+        csvReader.selectColumns(COLUMNS);
+        CSVRow row;
+        while ((row = csvReader.nextRow()) != null) {
+            String totalLivableAreaStr = row.getTrimmedString(TOTAL_LIVABLE_AREA);
+            String marketValueStr = row.getTrimmedString(MARKET_VALUE);
+            int zipId = readZipCode(row);
+
+            try {
+                double totalLivableArea = validateData.isValidNumeric(totalLivableAreaStr) ?
+                        validateData.parseDoubleOrFlag(totalLivableAreaStr) : Double.NaN;
+                double marketValue = validateData.isValidNumeric(marketValueStr) ?
+                        Double.parseDouble(marketValueStr) : Double.NaN;
+
+                consumer.accept(new Property(totalLivableArea, marketValue, zipId));
+            } catch (NumberFormatException e) {
+                // Handle number format exception, e.g., if parsing totalLivableArea or marketValue fails
+                System.err.println("Error parsing numeric value in property data: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the ZIP Code of a row as an id in the {@link ZipCodeDictionary}. A field of exactly five digits,
+     * the common case, is encoded without creating a String; anything else goes through
+     * {@link #extractFirstFiveDigits(String)}.
+     *
+     * @param row The row.
+     * @return The id of the ZIP code, or {@link ZipCodeDictionary#NO_ZIP_CODE} if it is invalid.
+     */
+    private int readZipCode(CSVRow row) {
+        int zipId = ZipCodeDictionary.encode(row, ZIP_CODE);
+        if (zipId != ZipCodeDictionary.NO_ZIP_CODE && validateData.isValidZipCode(ZipCodeDictionary.getZipCode(zipId))) {
+            return zipId;
+        }
+        return ZipCodeDictionary.encode(extractFirstFiveDigits(row.getTrimmedString(ZIP_CODE)));
+    }
+
+    /**
+     * Extracts the first five digits of a ZIP code string.
+     * If the first five characters are not all numeric, it returns an empty string.
+     *
+     * @param zipCode The ZIP code string to process.
+     * @return The first five digits of the ZIP code, or an empty string if invalid.
+     */
+    private String extractFirstFiveDigits(String zipCode) {
+        if (validateData.isValidZipCode(zipCode)) {
+            // Extract first 5 characters and ensure they are all numeric
+            String firstFiveDigits = zipCode.substring(0, Math.min(5, zipCode.length()));
+            if (firstFiveDigits.matches("\\d+")) {
+                return firstFiveDigits;
+            }
+        }
+        return "";
+    }
+}
@@ -1,60 +1,102 @@
-package edu.upenn.cit594.datamanagement;
-import edu.upenn.cit594.util.validateData;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
-/**
- * Reads vaccination data from a CSV file.
- * The class implements DataReader interface for the Vaccination data type.
- */
-public class CsvVaccinationReader implements DataReader<Vaccination> {
-
-    /**
-     * Reads vaccination data from a CSV file. Any incomplete record, invalid zip code, or invalid timestamp
-     * will be skipped.
-     *
-     * @param fileName The name of the CSV file to read from.
-     * @return A list of Vaccination objects parsed from the file.
-     */
-    @Override
-    public List<Vaccination> readData(String fileName) throws CSVFormatException, IOException {
-        List<Vaccination> vaccinations = new ArrayList<>();
-        try (CSVReader csvReader = new CSVReader(fileName)) {
-
-            Map<String, String> row;
-            while ((row = csvReader.readRowAsDict()) != null) {
-                try {
-                    int neg = validateData.parseIntOrZero(row.get("NEG").trim());
-                    int pos = validateData.parseIntOrZero(row.get("POS").trim());
-                    int deaths = validateData.parseIntOrZero(row.get("deaths").trim());
-                    int hospitalized = validateData.parseIntOrZero(row.get("hospitalized").trim());
-                    int partiallyVaccinated = validateData.parseIntOrZero(row.get("partially_vaccinated").trim());
-                    int fullyVaccinated = validateData.parseIntOrZero(row.get("fully_vaccinated").trim());
-                    int boosted = validateData.parseIntOrZero(row.get("boosted").trim());
-
-                    String zipCode = row.get("zip_code").trim();
-                    if (! validateData.isValidZipCode(zipCode)) {
-                        continue; // skip invalid zip code
-                    }
-
-                    String etlTimestamp = row.get("etl_timestamp").trim();
-                    etlTimestamp = etlTimestamp.replace("\"", "");
-                    if (!validateData.isValidTimestamp(etlTimestamp)) {
-                        continue;  // Skip invalid timestamp
-                    }
-
-                    Vaccination vaccination = new Vaccination(zipCode, neg, pos, deaths, hospitalized,
-                            partiallyVaccinated, fullyVaccinated, boosted, etlTimestamp);
-                    vaccinations.add(vaccination);
-                } catch (Exception e) {
-                    System.err.println("Error reading vaccination data from CSV file " + fileName + ": " + e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error reading vaccination data: " + e.getMessage());
-        }
-        return vaccinations;
-    }
-}
+package edu.upenn.cit594.datamanagement;
+import edu.upenn.cit594.util.validateData;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads vaccination data from a CSV file.
+ * The class implements DataReader interface for the Vaccination data type.
+ */
+public class CsvVaccinationReader implements DataReader<Vaccination> {
+    // the only columns of the file that are read, and their indices within each projected row
+    private static final String[] COLUMNS = {"zip_code", "etl_timestamp", "NEG", "POS", "deaths", "hospitalized",
+            "partially_vaccinated", "fully_vaccinated", "boosted"};
+    private static final int ZIP_CODE = 0;
+    private static final int ETL_TIMESTAMP = 1;
+    private static final int NEG = 2;
+    private static final int POS = 3;
+    private static final int DEATHS = 4;
+    private static final int HOSPITALIZED = 5;
+    private static final int PARTIALLY_VACCINATED = 6;
+    private static final int FULLY_VACCINATED = 7;
+    private static final int BOOSTED = 8;
+
+    /**
+     * Reads vaccination data from a CSV file, passing each Vaccination to the consumer as it is parsed.
+     * Any incomplete record, invalid zip code, or invalid timestamp will be skipped.
+     *
+     * @param fileName The name of the CSV file to read from.
+     * @param consumer The consumer of the Vaccination objects.
+     */
+    @Override
+    public void streamData(String fileName, Consumer<? super Vaccination> consumer) {
+        try (CSVReader csvReader = new CSVReader(fileName)) {
+            readVaccinations(fileName, csvReader, consumer);
+        } catch (Exception e) {
+            System.err.println("Error reading vaccination data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the vaccination records in a byte range of a CSV file, such as the rows appended to it.
+     *
+     * @param fileName The name of the CSV file to read from.
+     * @param start The offset of the first byte of the range.
+     * @param end The offset just past the last byte of the range.
+     * @param consumer The consumer of the Vaccination objects.
+     * @return false if the range could not be read, such as when it holds a malformed row, so that the whole
+     * file is read again.
+     */
+    @Override
+    public boolean streamAppended(String fileName, long start, long end, Consumer<? super Vaccination> consumer) {
+        try {
+            ParallelCSVReader.<Vaccination>readRange(fileName, start, end,
+                    (csvReader, rowConsumer) -> readVaccinations(fileName, csvReader, rowConsumer), consumer);
+        } catch (Exception e) {
+            System.err.println("Error reading vaccination data: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the remaining rows of a CSV reader as Vaccination objects, skipping invalid records.
+     *
+     * @param fileName The name of the file, for error messages.
+     * @param csvReader The reader to consume.
+     * @param consumer The consumer of the vaccinations, in row order.
+     */
+    private void readVaccinations(String fileName, CSVReader csvReader, Consumer<? super Vaccination> consumer)
+            throws IOException, CSVFormatException {
+        csvReader.selectColumns(COLUMNS);
+        CSVRow row;
+        while ((row = csvReader.nextRow()) != null) {
+            try {
+                int neg = validateData.parseIntOrZero(row.getTrimmedString(NEG));
+                int pos = validateData.parseIntOrZero(row.getTrimmedString(POS));
+                int deaths = validateData.parseIntOrZero(row.getTrimmedString(DEATHS));
+                int hospitalized = validateData.parseIntOrZero(row.getTrimmedString(HOSPITALIZED));
+                int partiallyVaccinated = validateData.parseIntOrZero(row.getTrimmedString(PARTIALLY_VACCINATED));
+                int fullyVaccinated = validateData.parseIntOrZero(row.getTrimmedString(FULLY_VACCINATED));
+                int boosted = validateData.parseIntOrZero(row.getTrimmedString(BOOSTED));
+
+                int zipId = ZipCodeDictionary.encode(row, ZIP_CODE);
+                if (zipId == ZipCodeDictionary.NO_ZIP_CODE
+                        || !validateData.isValidZipCode(ZipCodeDictionary.getZipCode(zipId))) {
+                    continue; // skip invalid zip code
+                }
+
+                String etlTimestamp = row.getTrimmedString(ETL_TIMESTAMP);
+                etlTimestamp = etlTimestamp.replace("\"", "");
+                if (!validateData.isValidTimestamp(etlTimestamp)) {
+                    continue;  // Skip invalid timestamp
+                }
+
+                consumer.accept(new Vaccination(zipId, neg, pos, deaths, hospitalized,
+                        partiallyVaccinated, fullyVaccinated, boosted, etlTimestamp));
+            } catch (Exception e) {
+                System.err.println("Error reading vaccination data from CSV file " + fileName + ": " + e.getMessage());
+            }
+        }
+    }
+}
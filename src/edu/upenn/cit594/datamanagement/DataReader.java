@@ -1,22 +1,56 @@
-package edu.upenn.cit594.datamanagement;
-
-import java.io.IOException;
-import java.util.List;
-
-/**
- * Interface for data reader classes.
- *
- * @param <T> The generic type of data that is read and processed. This generic type allows the implementation
- *           of this interface to be flexible for different types of data (JSON and CSV).
- */
-public interface DataReader<T> {
-
-    /**
-     * Reads data from a specified file (JSON or CSV) and returns a list of data objects of type T.
-     *
-     * @param fileName The name of the file to read from.
-     *
-     * @return A List of objects of type T, representing the data read from the file.
-     */
-    List<T> readData(String fileName) throws CSVFormatException, IOException;
-}
+package edu.upenn.cit594.datamanagement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Interface for data reader classes.
+ *
+ * @param <T> The generic type of data that is read and processed. This generic type allows the implementation
+ *           of this interface to be flexible for different types of data (JSON and CSV).
+ */
+public interface DataReader<T> {
+
+    /**
+     * Reads data from a specified file (JSON or CSV) and pushes each data object of type T to a consumer as soon
+     * as it is parsed, without holding the whole file in memory. Objects are delivered in file order on the
+     * calling thread.
+     *
+     * @param fileName The name of the file to read from.
+     * @param consumer The consumer that receives each data object.
+     */
+    void streamData(String fileName, Consumer<? super T> consumer) throws CSVFormatException, IOException;
+
+    /**
+     * Reads only the rows in a byte range of a file, such as the rows appended to a file since it was last
+     * read, and pushes their data objects to a consumer in file order. The range must start at the beginning
+     * of a row and end just after a row; the header row is still taken from the start of the file.
+     * Readers of formats that cannot be read from the middle of a file, such as JSON, read nothing.
+     *
+     * @param fileName The name of the file to read from.
+     * @param start The offset of the first byte of the range.
+     * @param end The offset just past the last byte of the range.
+     * @param consumer The consumer that receives each data object.
+     * @return false if this reader cannot read part of a file, or the range could not be read, in which case the
+     * whole file has to be read again.
+     */
+    default boolean streamAppended(String fileName, long start, long end, Consumer<? super T> consumer)
+            throws CSVFormatException, IOException {
+        return false;
+    }
+
+    /**
+     * Reads data from a specified file (JSON or CSV) and returns a list of data objects of type T.
+     *
+     * @param fileName The name of the file to read from.
+     *
+     * @return A List of objects of type T, representing the data read from the file.
+     */
+    default List<T> readData(String fileName) throws CSVFormatException, IOException {
+        List<T> data = new ArrayList<>();
+        streamData(fileName, data::add);
+        return data;
+    }
+}
@@ -0,0 +1,272 @@
+package edu.upenn.cit594.datamanagement;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A minimal pull-based JSON tokenizer that walks a document one value at a time.
+ * It never builds a document tree: strings are read into a reused buffer, numbers are read as
+ * primitives, and values the caller is not interested in are skipped without being stored.
+ */
+class JsonStreamReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long offset;   // number of characters consumed before the current buffer, for error messages
+
+    private final StringBuilder text = new StringBuilder();   // the last string or number token read
+    private boolean integral;                                 // whether the last number was an integer that fits a long
+    private long longValue;                                   // the value of the last integral number
+
+    JsonStreamReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Skips whitespace and returns the next significant character without consuming it.
+     *
+     * @return the next character, or -1 at the end of the input
+     */
+    int peek() throws IOException {
+        while (true) {
+            if (position >= limit && !fillBuffer()) {
+                return -1;
+            }
+            char c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Consumes the next significant character, which must be the expected one.
+     */
+    void expect(char expected) throws IOException {
+        int c = peek();
+        if (c != expected) {
+            throw error("Expected '" + expected + "' but found " + describe(c));
+        }
+        position++;
+    }
+
+    /**
+     * Consumes the next significant character if it is the given one.
+     *
+     * @return whether the character was consumed
+     */
+    boolean consume(char c) throws IOException {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a string token. The result is a reused buffer that is only valid until the next token is read.
+     *
+     * @return the unescaped contents of the string
+     */
+    CharSequence readString() throws IOException {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            if (position >= limit && !fillBuffer()) {
+                throw error("Unterminated string");
+            }
+            // copy the run of plain characters at once
+            int runStart = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\') {
+                position++;
+            }
+            text.append(buffer, runStart, position - runStart);
+            if (position >= limit) {
+                continue;
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return text;
+            }
+            text.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    code = code * 16 + digit;
+                }
+                return (char) code;
+            default:
+                throw error("Invalid escape character '" + c + "'");
+        }
+    }
+
+    /**
+     * Reads a number token. Integers that fit in a long are also available as a primitive through
+     * {@link #isIntegral()} and {@link #longValue()} without any boxing.
+     *
+     * @return the text of the number, valid until the next token is read
+     */
+    CharSequence readNumber() throws IOException {
+        peek();
+        text.setLength(0);
+        integral = true;
+        long value = 0;
+        boolean negative = false;
+        while (position < limit || fillBuffer()) {
+            char c = buffer[position];
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (value < (Long.MIN_VALUE + digit) / 10) {
+                    integral = false; // too large for a long
+                }
+                value = value * 10 - digit; // accumulate negatively so that Long.MIN_VALUE fits
+            } else if (c == '-' && text.length() == 0) {
+                negative = true;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                integral = false;
+            } else {
+                break;
+            }
+            text.append(c);
+            position++;
+        }
+        if (text.length() == 0 || (negative && text.length() == 1)) {
+            throw error("Invalid number");
+        }
+        if (integral && !negative && value == Long.MIN_VALUE) {
+            integral = false;
+        }
+        longValue = negative ? value : -value;
+        return text;
+    }
+
+    /**
+     * @return whether the last number read was an integer that fits in a long
+     */
+    boolean isIntegral() {
+        return integral;
+    }
+
+    /**
+     * @return the value of the last number read, if it was integral
+     */
+    long longValue() {
+        return longValue;
+    }
+
+    /**
+     * Reads one of the literals {@code true}, {@code false} or {@code null}.
+     *
+     * @return {@link Boolean#TRUE}, {@link Boolean#FALSE}, or {@code null}
+     */
+    Boolean readLiteral() throws IOException {
+        int c = peek();
+        String literal = c == 't' ? "true" : c == 'f' ? "false" : "null";
+        for (int i = 0; i < literal.length(); i++) {
+            if (nextChar() != literal.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+        return c == 't' ? Boolean.TRUE : c == 'f' ? Boolean.FALSE : null;
+    }
+
+    /**
+     * Skips the next value, including any nested objects and arrays.
+     */
+    void skipValue() throws IOException {
+        int c = peek();
+        switch (c) {
+            case '"':
+                readString();
+                break;
+            case '{':
+                position++;
+                if (!consume('}')) {
+                    do {
+                        readString();
+                        expect(':');
+                        skipValue();
+                    } while (consume(','));
+                    expect('}');
+                }
+                break;
+            case '[':
+                position++;
+                if (!consume(']')) {
+                    do {
+                        skipValue();
+                    } while (consume(','));
+                    expect(']');
+                }
+                break;
+            case 't':
+            case 'f':
+            case 'n':
+                readLiteral();
+                break;
+            default:
+                readNumber();
+        }
+    }
+
+    private char nextChar() throws IOException {
+        if (position >= limit && !fillBuffer()) {
+            throw error("Unexpected end of input");
+        }
+        return buffer[position++];
+    }
+
+    private boolean fillBuffer() throws IOException {
+        offset += limit;
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private static String describe(int c) {
+        return c < 0 ? "end of input" : "'" + (char) c + "'";
+    }
+
+    /**
+     * @return an exception describing a syntax error at the current position
+     */
+    IOException error(String message) {
+        return new IOException(message + " at character " + (offset + position));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
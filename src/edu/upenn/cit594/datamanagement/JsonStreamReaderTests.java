@@ -0,0 +1,177 @@
+package edu.upenn.cit594.datamanagement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class JsonStreamReaderTests {
+
+    /*
+     * A reader that hands out one character per read, so that every token crosses the end of a block.
+     */
+    private static final class OneCharReader extends Reader {
+        private final Reader reader;
+
+        OneCharReader(String input) {
+            this.reader = new StringReader(input);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return reader.read(buffer, offset, Math.min(length, 1));
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static List<JsonStreamReader> readers(String input) {
+        List<JsonStreamReader> readers = new ArrayList<>();
+        readers.add(new JsonStreamReader(new StringReader(input)));
+        readers.add(new JsonStreamReader(new OneCharReader(input)));
+        return readers;
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        for (JsonStreamReader json : readers(" \"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u00e9\\u20AC\" ")) {
+            assertEquals("a\"b\\c/d\b\f\n\r\t\u00e9\u20ac", json.readString().toString());
+            assertEquals(-1, json.peek());
+        }
+    }
+
+    @Test
+    public void testInvalidEscapes() throws Exception {
+        for (String input : new String[]{"\"\\x\"", "\"\\u12g4\"", "\"abc"}) {
+            try {
+                new JsonStreamReader(new StringReader(input)).readString();
+                fail("Expected an IOException for " + input);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        for (JsonStreamReader json : readers("[0, -12, 9223372036854775807, -9223372036854775808, "
+                + "9223372036854775808, 1.5, 2e3]")) {
+            json.expect('[');
+            assertEquals("0", json.readNumber().toString());
+            assertTrue(json.isIntegral());
+            assertEquals(0, json.longValue());
+            json.expect(',');
+            json.readNumber();
+            assertEquals(-12, json.longValue());
+            json.expect(',');
+            json.readNumber();
+            assertTrue(json.isIntegral());
+            assertEquals(Long.MAX_VALUE, json.longValue());
+            json.expect(',');
+            json.readNumber();
+            assertTrue(json.isIntegral());
+            assertEquals(Long.MIN_VALUE, json.longValue());
+            json.expect(',');
+            assertEquals("9223372036854775808", json.readNumber().toString());
+            assertFalse(json.isIntegral());
+            json.expect(',');
+            assertEquals("1.5", json.readNumber().toString());
+            assertFalse(json.isIntegral());
+            json.expect(',');
+            assertEquals("2e3", json.readNumber().toString());
+            assertFalse(json.isIntegral());
+            json.expect(']');
+        }
+    }
+
+    @Test
+    public void testLiterals() throws Exception {
+        for (JsonStreamReader json : readers("[true,false,null]")) {
+            json.expect('[');
+            assertEquals(Boolean.TRUE, json.readLiteral());
+            json.expect(',');
+            assertEquals(Boolean.FALSE, json.readLiteral());
+            json.expect(',');
+            assertNull(json.readLiteral());
+            json.expect(']');
+        }
+    }
+
+    @Test
+    public void testSkipNestedValues() throws Exception {
+        String input = "{\"skip\": {\"a\": [1, {\"b\": [[], {}, \"]}\\\"\"]}, true], \"c\": null},"
+                + " \"keep\": \"value\"}";
+        for (JsonStreamReader json : readers(input)) {
+            json.expect('{');
+            assertEquals("skip", json.readString().toString());
+            json.expect(':');
+            json.skipValue();
+            json.expect(',');
+            assertEquals("keep", json.readString().toString());
+            json.expect(':');
+            assertEquals("value", json.readString().toString());
+            json.expect('}');
+            assertEquals(-1, json.peek());
+        }
+    }
+
+    @Test
+    public void testUnbalancedNesting() throws Exception {
+        try {
+            new JsonStreamReader(new StringReader("[{\"a\": [1, 2}]")).skipValue();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testVaccinationRecords() throws Exception {
+        Path file = Files.createTempFile("vaccinations", ".json");
+        try {
+            Files.write(file, ("[\n"
+                    // every kind of value, including nested ones, in fields that are not read
+                    + "{\"zip_code\": \"19104\", \"etl_timestamp\": \"2021-03-25 04:20:02\", \"NEG\": 3,"
+                    + " \"extra\": {\"list\": [1, \"}\", {\"x\": null}]}, \"fully_vaccinated\": 7,"
+                    + " \"boosted\": 2, \"partially_vaccinated\": null, \"note\": \"a\\\"b\"},\n"
+                    // a timestamp that is not a string is invalid, so the record is skipped
+                    + "{\"zip_code\": 19104, \"etl_timestamp\": 20210325, \"NEG\": 1},\n"
+                    + "{\"zip_code\": 19104, \"etl_timestamp\": {\"date\": \"2021-03-25 04:20:02\"}},\n"
+                    // a ZIP code given as a number is read as its text
+                    + "{\"zip_code\": 19143, \"etl_timestamp\": \"2021-03-26 04:20:02\", \"POS\": 5}\n"
+                    + "]").getBytes(StandardCharsets.UTF_8));
+
+            List<Vaccination> records = new ArrayList<>();
+            new JsonVaccinationReader().streamData(file.toString(), records::add);
+
+            assertEquals(2, records.size());
+            Vaccination first = records.get(0);
+            assertEquals("19104", first.getZipCode());
+            assertEquals("2021-03-25 04:20:02", first.getEtlTimestamp());
+            assertEquals(3, first.getNeg());
+            assertEquals(7, first.getFullyVaccinated());
+            assertEquals(2, first.getBoosted());
+            assertEquals(0, first.getPartiallyVaccinated());
+            Vaccination second = records.get(1);
+            assertEquals("19143", second.getZipCode());
+            assertEquals(5, second.getPos());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
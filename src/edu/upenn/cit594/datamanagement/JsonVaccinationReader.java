@@ -1,64 +1,169 @@
-package edu.upenn.cit594.datamanagement;
-
-import edu.upenn.cit594.util.validateData;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-/**
- * Read vaccination data from a JSON file.
- * The class implements DataReader interface for the Vaccination data type.
- */
-public class JsonVaccinationReader implements DataReader<Vaccination> {
-
-    /**
-     * Reads vaccination data from a JSON file. Any incomplete record, invalid zip code, or invalid timestamp
-     * will be skipped.
-     *
-     * @param fileName The name of the JSON file to read from.
-     * @return A list of Vaccination objects parsed from the file.
-     */
-    @Override
-    public List<Vaccination> readData(String fileName) {
-        List<Vaccination> vaccinations = new ArrayList<>();
-
-        try (FileReader reader = new FileReader(fileName)) {
-            JSONParser jsonParser = new JSONParser();
-            JSONArray jsonArray = (JSONArray) jsonParser.parse(reader);
-
-            Iterator<JSONObject> iterator = jsonArray.iterator();
-            while (iterator.hasNext()) {
-                JSONObject jsonObject = iterator.next();
-
-                String zipCode = String.valueOf(jsonObject.get("zip_code"));
-                if (!validateData.isValidZipCode(zipCode)) {
-                    continue;  // Skip invalid ZIP Code
-                }
-
-                int neg = validateData.parseIntOrZero(jsonObject.get("NEG"));
-                int pos = validateData.parseIntOrZero(jsonObject.get("POS"));
-                int deaths = validateData.parseIntOrZero(jsonObject.get("deaths"));
-                int hospitalized = validateData.parseIntOrZero(jsonObject.get("hospitalized"));
-                int partiallyVaccinated = validateData.parseIntOrZero(jsonObject.get("partially_vaccinated"));
-                int fullyVaccinated = validateData.parseIntOrZero(jsonObject.get("fully_vaccinated"));
-                int boosted = validateData.parseIntOrZero(jsonObject.get("boosted"));
-                String etlTimestamp = (String) jsonObject.get("etl_timestamp");
-                if (!validateData.isValidTimestamp(etlTimestamp)) {
-                    continue;  // Skip invalid timestamp
-                }
-
-                Vaccination vaccination = new Vaccination(zipCode, neg, pos, deaths, hospitalized,
-                        partiallyVaccinated, fullyVaccinated, boosted, etlTimestamp);
-                vaccinations.add(vaccination);
-            }
-        } catch (Exception e) {
-            System.err.println("Error reading vaccination data from JSON file " + fileName + ": " + e.getMessage());
-        }
-
-        return vaccinations;
-    }
-}
+package edu.upenn.cit594.datamanagement;
+
+import edu.upenn.cit594.util.validateData;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Read vaccination data from a JSON file.
+ * The class implements DataReader interface for the Vaccination data type.
+ *
+ * The file is expected to hold an array of flat objects, one per record. It is read with a
+ * {@link JsonStreamReader} one object at a time, so memory use does not grow with the size of the file
+ * and no intermediate maps or boxed numbers are created for the records.
+ */
+public class JsonVaccinationReader implements DataReader<Vaccination> {
+    // the fields of a record, in the order of the values array used while reading one object
+    private static final String[] FIELDS = {"NEG", "POS", "deaths", "hospitalized",
+            "partially_vaccinated", "fully_vaccinated", "boosted"};
+    private static final int NEG = 0;
+    private static final int POS = 1;
+    private static final int DEATHS = 2;
+    private static final int HOSPITALIZED = 3;
+    private static final int PARTIALLY_VACCINATED = 4;
+    private static final int FULLY_VACCINATED = 5;
+    private static final int BOOSTED = 6;
+
+    /**
+     * Reads vaccination data from a JSON file, passing each Vaccination to the consumer as it is parsed.
+     * Any incomplete record, invalid zip code, or invalid timestamp will be skipped.
+     *
+     * @param fileName The name of the JSON file to read from.
+     * @param consumer The consumer of the Vaccination objects.
+     */
+    @Override
+    public void streamData(String fileName, Consumer<? super Vaccination> consumer) {
+        try (JsonStreamReader json = new JsonStreamReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(fileName)), StandardCharsets.UTF_8))) {
+            int[] values = new int[FIELDS.length];
+            json.expect('[');
+            if (!json.consume(']')) {
+                do {
+                    Vaccination vaccination = readRecord(json, values);
+                    if (vaccination != null) {
+                        consumer.accept(vaccination);
+                    }
+                } while (json.consume(','));
+                json.expect(']');
+            }
+        } catch (Exception e) {
+            System.err.println("Error reading vaccination data from JSON file " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads one record object. Missing counts are read as zero, as are counts that are not numbers,
+     * following {@link validateData#parseIntOrZero(Object)}.
+     *
+     * @param json   The reader positioned at the start of the object.
+     * @param values Scratch space for the counts, reused across records.
+     * @return The record, or {@code null} if its ZIP Code or timestamp is invalid.
+     */
+    private Vaccination readRecord(JsonStreamReader json, int[] values) throws IOException {
+        int zipId = ZipCodeDictionary.NO_ZIP_CODE;
+        String etlTimestamp = null;
+        Arrays.fill(values, 0);
+
+        json.expect('{');
+        if (!json.consume('}')) {
+            do {
+                CharSequence key = json.readString();
+                json.expect(':');
+                int field = fieldIndex(key);
+                if (field >= 0) {
+                    values[field] = readCount(json);
+                } else if ("zip_code".contentEquals(key)) {
+                    zipId = readZipCode(json);
+                } else if ("etl_timestamp".contentEquals(key)) {
+                    etlTimestamp = json.peek() == '"' ? json.readString().toString() : skip(json);
+                } else {
+                    json.skipValue();
+                }
+            } while (json.consume(','));
+            json.expect('}');
+        }
+
+        if (zipId == ZipCodeDictionary.NO_ZIP_CODE || !validateData.isValidZipCode(ZipCodeDictionary.getZipCode(zipId))) {
+            return null;  // Skip invalid ZIP Code
+        }
+        if (!validateData.isValidTimestamp(etlTimestamp)) {
+            return null;  // Skip invalid timestamp
+        }
+        return new Vaccination(zipId, values[NEG], values[POS], values[DEATHS], values[HOSPITALIZED],
+                values[PARTIALLY_VACCINATED], values[FULLY_VACCINATED], values[BOOSTED], etlTimestamp);
+    }
+
+    private static int fieldIndex(CharSequence key) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].contentEquals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a count. Integers in range are used directly; any other value is handed to
+     * {@link validateData#parseIntOrZero(Object)} in the form a generic JSON parser would produce.
+     */
+    private static int readCount(JsonStreamReader json) throws IOException {
+        int c = json.peek();
+        if (c == '"') {
+            return validateData.parseIntOrZero(json.readString().toString());
+        }
+        if (c == 't' || c == 'f' || c == 'n') {
+            return validateData.parseIntOrZero(json.readLiteral());
+        }
+        if (c == '{' || c == '[') {
+            json.skipValue();
+            return 0;
+        }
+        CharSequence number = json.readNumber();
+        if (json.isIntegral()) {
+            long value = json.longValue();
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return validateData.parseIntOrZero(value);
+        }
+        return validateData.parseIntOrZero(Double.valueOf(number.toString()));
+    }
+
+    /**
+     * Reads a ZIP Code as an id in the {@link ZipCodeDictionary}. A string is encoded straight from the
+     * reader's buffer; other values are encoded from their text.
+     */
+    private static int readZipCode(JsonStreamReader json) throws IOException {
+        return ZipCodeDictionary.encode(json.peek() == '"' ? json.readString() : readText(json));
+    }
+
+    /**
+     * Reads a value as the text {@code String.valueOf} would give for it, e.g. 19104 for the number 19104.
+     * Objects and arrays, which are never valid ZIP Codes, are read as an empty string.
+     */
+    private static String readText(JsonStreamReader json) throws IOException {
+        int c = json.peek();
+        if (c == '"') {
+            return json.readString().toString();
+        }
+        if (c == 't' || c == 'f' || c == 'n') {
+            return String.valueOf(json.readLiteral());
+        }
+        if (c == '{' || c == '[') {
+            json.skipValue();
+            return "";
+        }
+        CharSequence number = json.readNumber();
+        return json.isIntegral() ? Long.toString(json.longValue()) : Double.valueOf(number.toString()).toString();
+    }
+
+    private static String skip(JsonStreamReader json) throws IOException {
+        json.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,140 @@
+package edu.upenn.cit594.datamanagement;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV reader that reads its input through {@link FileChannel#map} instead of a {@link java.io.Reader}.
+ *
+ * Bytes are taken straight from the mapped file (the OS page cache) into the tokenizer's character
+ * buffer. ASCII bytes, which is almost all of our data, are widened to characters directly; only runs of
+ * non-ASCII bytes go through a UTF-8 decoder. Files larger than one mapping are mapped in windows.
+ * Malformed UTF-8 is reported with a {@link MalformedInputException}, the same as {@link CSVReader}.
+ */
+public class MappedCSVReader extends CSVReader {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final int MAX_UTF8_SEQUENCE = 4;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;             // file offset just past the last byte to read
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private MappedByteBuffer window;
+    private long windowStart;           // file offset of the first byte of the window
+
+    /**
+     * Opens a CSV file and reads its header row.
+     *
+     * @param filename the name of the CSV file
+     * @throws IOException when the file cannot be opened or is empty
+     */
+    public MappedCSVReader(String filename) throws IOException {
+        super((String[]) null);
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.ownsChannel = true;
+        this.end = channel.size();
+        try {
+            map(0);
+            readHeaders();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a reader over the byte range [start, end) of an open file, which must start on a row
+     * boundary. The channel is not closed by this reader.
+     *
+     * @param channel the open file
+     * @param start   the offset of the first byte of the range
+     * @param end     the offset just past the last byte of the range
+     * @param headers the header row of the file
+     */
+    MappedCSVReader(FileChannel channel, long start, long end, String[] headers) throws IOException {
+        super(headers);
+        this.channel = channel;
+        this.ownsChannel = false;
+        this.end = end;
+        map(start);
+    }
+
+    /**
+     * Maps the window of the file starting at the given offset.
+     */
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, end - start));
+    }
+
+    @Override
+    int fill(char[] buffer) throws IOException {
+        MappedByteBuffer window = this.window;
+        int position = window.position();
+        int limit = window.limit();
+
+        // move on to the next window once this one is used up, or when a multi-byte character might straddle it
+        if (limit - position < MAX_UTF8_SEQUENCE && windowStart + limit < end) {
+            map(windowStart + position);
+            window = this.window;
+            position = 0;
+            limit = window.limit();
+        }
+        if (position >= limit) {
+            return -1;
+        }
+
+        int count = 0;
+        while (count < buffer.length && position < limit) {
+            byte b = window.get(position);
+            if (b >= 0) {
+                // ASCII fast path
+                buffer[count++] = (char) b;
+                position++;
+                continue;
+            }
+
+            // decode the run of non-ASCII bytes; ASCII bytes never occur inside a multi-byte UTF-8 sequence
+            int runEnd = position + 1;
+            while (runEnd < limit && window.get(runEnd) < 0) {
+                runEnd++;
+            }
+            ByteBuffer in = window.duplicate();
+            in.position(position).limit(runEnd);
+            CharBuffer out = CharBuffer.wrap(buffer, count, buffer.length - count);
+            CoderResult result = decoder.decode(in, out, false);
+            if (result.isError()) {
+                result.throwException();
+            }
+            count = out.position();
+            if (in.position() == position) {
+                // nothing could be decoded: either the buffer is full, or the run ends in a truncated sequence
+                boolean moreInput = runEnd == limit && windowStart + limit < end;
+                if (count > 0 || moreInput) {
+                    break;
+                }
+                throw new MalformedInputException(runEnd - position);
+            }
+            position = in.position();
+            decoder.reset();
+        }
+        window.position(position);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package edu.upenn.cit594.datamanagement;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Parses large CSV files in parallel.
+ * The file is split into byte ranges that each start on a row boundary, every range is parsed by its own
+ * {@link MappedCSVReader} on a fork/join pool, and the per-chunk results are handed on in file order.
+ * Files below {@link #PARALLEL_THRESHOLD} are parsed sequentially with a single MappedCSVReader.
+ */
+public class ParallelCSVReader {
+    /** Files smaller than this are parsed sequentially, since splitting them costs more than it saves. */
+    public static final long PARALLEL_THRESHOLD = 32L * 1024 * 1024;
+
+    private static final long MIN_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Converts the rows of one chunk of a CSV file into data objects.
+     *
+     * @param <T> The type of data object produced from the rows.
+     */
+    @FunctionalInterface
+    public interface ChunkParser<T> {
+        /**
+         * Reads every remaining row of the given reader and passes the data objects to the consumer in row order.
+         * A malformed row must end the chunk with a {@link CSVFormatException} rather than be skipped, so that
+         * {@link #read} can stop at it whichever chunk it falls in.
+         *
+         * @param csvReader A reader over one chunk of the file, already aware of the file's headers.
+         * @param consumer  The consumer of the parsed data objects.
+         */
+        void parse(CSVReader csvReader, Consumer<? super T> consumer) throws IOException, CSVFormatException;
+    }
+
+    /**
+     * The data objects parsed from one chunk of a file.
+     */
+    private static final class Chunk<T> {
+        final long start;  // the offset of the first byte of the chunk
+        final List<T> items = new ArrayList<>();
+        boolean failed;  // whether the parser failed before the end of the chunk
+
+        Chunk(long start) {
+            this.start = start;
+        }
+    }
+
+    private ParallelCSVReader() {
+    }
+
+    /**
+     * Reads a CSV file, parsing it in parallel chunks when it is large enough to benefit.
+     * The data objects are handed to the consumer in file order, always on the calling thread. Only a
+     * bounded number of chunks are parsed ahead of the consumer, so memory use does not grow with the file.
+     * When the parser fails on a chunk, the chunks after it are discarded and the rest of the file is read
+     * sequentially from the start of that chunk, so the same rows are handed on and the same exception is thrown
+     * as when the whole file is parsed sequentially, whatever its size.
+     *
+     * @param fileName The name of the CSV file to read.
+     * @param parser   The parser applied to each chunk.
+     * @param consumer The consumer of the parsed data objects.
+     * @throws IOException        when the file cannot be read or has no header row
+     * @throws CSVFormatException when a chunk parser reports a malformed row
+     */
+    public static <T> void read(String fileName, ChunkParser<T> parser, Consumer<? super T> consumer)
+            throws IOException, CSVFormatException {
+        Path path = Paths.get(fileName);
+        String[] headers;
+        try (CSVReader csvReader = new MappedCSVReader(fileName)) {
+            if (csvReader.getHeaders().length == 0 || Files.size(path) < PARALLEL_THRESHOLD) {
+                parser.parse(csvReader, consumer);
+                return;
+            }
+            headers = csvReader.getHeaders();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] boundaries = findRowBoundaries(channel, chunkSize(channel.size()));
+            int maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+            Deque<ForkJoinTask<Chunk<T>>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            try {
+                while (next + 1 < boundaries.length || !inFlight.isEmpty()) {
+                    // keep the pool busy with the next chunks while the oldest one is handed to the consumer
+                    while (next + 1 < boundaries.length && inFlight.size() < maxInFlight) {
+                        long start = boundaries[next];
+                        long end = boundaries[next + 1];
+                        inFlight.add(ForkJoinPool.commonPool().submit(() -> parseChunk(channel, start, end, headers, parser)));
+                        next++;
+                    }
+                    Chunk<T> chunk = join(inFlight.poll());
+                    if (chunk.failed) {
+                        // a malformed row, or a boundary inside a quoted field after one (see findRowBoundaries);
+                        // the chunk did start on a row boundary, since every chunk before it was parsed to its end
+                        cancel(inFlight);
+                        try (CSVReader csvReader = new MappedCSVReader(channel, chunk.start, channel.size(), headers)) {
+                            parser.parse(csvReader, consumer);
+                        }
+                        return;
+                    }
+                    for (T item : chunk.items) {
+                        consumer.accept(item);
+                    }
+                }
+            } finally {
+                cancel(inFlight);
+            }
+        }
+    }
+
+    /**
+     * Reads the rows in the byte range [start, end) of a CSV file with a single reader, using the header row
+     * at the start of the file. The range must start on a row boundary.
+     *
+     * @param fileName The name of the CSV file to read.
+     * @param start    The offset of the first byte of the range.
+     * @param end      The offset just past the last byte of the range.
+     * @param parser   The parser applied to the rows of the range.
+     * @param consumer The consumer of the parsed data objects.
+     * @throws IOException        when the file cannot be read or has no header row
+     * @throws CSVFormatException when the parser reports a malformed row
+     */
+    public static <T> void readRange(String fileName, long start, long end, ChunkParser<T> parser,
+                                     Consumer<? super T> consumer) throws IOException, CSVFormatException {
+        String[] headers;
+        try (CSVReader csvReader = new MappedCSVReader(fileName)) {
+            headers = csvReader.getHeaders();
+        }
+        if (start >= end) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+             CSVReader csvReader = new MappedCSVReader(channel, start, end, headers)) {
+            parser.parse(csvReader, consumer);
+        }
+    }
+
+    /**
+     * Picks a chunk size that gives every pool thread several chunks to balance uneven rows.
+     */
+    private static long chunkSize(long fileSize) {
+        int parallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        return Math.max(MIN_CHUNK_SIZE, fileSize / ((long) parallelism * CHUNKS_PER_THREAD));
+    }
+
+    /**
+     * Scans the raw bytes of the file once to find row boundaries roughly {@code chunkSize} bytes apart.
+     * A boundary is the byte after a newline that is outside any quoted field; quote state is tracked by
+     * toggling on every double quote, which is exact for RFC 4180 input since an escaped quote ("") toggles twice.
+     * The first boundary is the start of the first data row, i.e. just after the header row.
+     *
+     * A stray quote in a malformed row inverts the quote state for the rest of the file, so the boundaries after
+     * it may fall inside quoted fields, or there may be none. They are never used: CSVReader rejects any quote
+     * that does not toggle its own state the same way, so the chunk holding the stray quote, or one ending inside
+     * a quoted field, fails to parse, and {@link #read} reads on sequentially from the start of that chunk.
+     *
+     * @return The boundary offsets, starting with the first data row and ending with the file size.
+     */
+    private static long[] findRowBoundaries(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+
+        boolean inQuotes = false;
+        boolean headerStarted = false;
+        long nextTarget = -1; // -1 until the end of the header row has been found
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                    headerStarted = true;
+                } else if (b == '\n' && !inQuotes) {
+                    long rowStart = position + i + 1;
+                    if (nextTarget < 0) {
+                        if (headerStarted) {
+                            boundaries.add(rowStart);
+                            nextTarget = rowStart + chunkSize;
+                        }
+                    } else if (rowStart >= nextTarget && rowStart < size) {
+                        boundaries.add(rowStart);
+                        nextTarget = rowStart + chunkSize;
+                    }
+                } else if (b != '\r') {
+                    headerStarted = true;
+                }
+            }
+            position += read;
+        }
+
+        if (boundaries.isEmpty()) {
+            boundaries.add(size);
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the rows in the byte range [start, end) of the file. A failure only marks the chunk as failed, since
+     * {@link #read} parses a failed chunk again, sequentially, once the chunks before it have been handed on.
+     */
+    private static <T> Chunk<T> parseChunk(FileChannel channel, long start, long end, String[] headers,
+                                           ChunkParser<T> parser) {
+        Chunk<T> chunk = new Chunk<>(start);
+        try (CSVReader csvReader = new MappedCSVReader(channel, start, end, headers)) {
+            parser.parse(csvReader, chunk.items::add);
+        } catch (IOException | CSVFormatException e) {
+            chunk.failed = true;
+            chunk.items.clear();
+        }
+        return chunk;
+    }
+
+    /**
+     * Cancels the chunks that are still being parsed; their objects are not handed on.
+     */
+    private static <T> void cancel(Deque<ForkJoinTask<Chunk<T>>> inFlight) {
+        for (ForkJoinTask<Chunk<T>> task : inFlight) {
+            task.cancel(false);
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Waits for a chunk task and rethrows its failure with the original exception type.
+     */
+    private static <T> Chunk<T> join(ForkJoinTask<Chunk<T>> task) throws IOException, CSVFormatException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing CSV chunks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CSVFormatException) {
+                throw (CSVFormatException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error parsing CSV chunk: " + cause, cause);
+        }
+    }
+}
@@ -5,7 +5,7 @@ package edu.upenn.cit594.datamanagement;
  * It stores the ZIP code and the corresponding population count.
  */
 public class Population {
-    private String zipCode;
+    private int zipId;  // id in the ZipCodeDictionary
     private int population;
 
     /**
@@ -15,12 +15,26 @@ public class Population {
      * @param population The population count of the ZIP code area.
      */
     public Population(String zipCode, int population) {
-        this.zipCode = zipCode;
+        this(ZipCodeDictionary.encode(zipCode), population);
+    }
+
+    /**
+     * Constructor for a new Population instance from an already encoded ZIP code.
+     *
+     * @param zipId      The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @param population The population count of the ZIP code area.
+     */
+    public Population(int zipId, int population) {
+        this.zipId = zipId;
         this.population = population;
     }
 
     public String getZipCode() {
-        return zipCode;
+        return ZipCodeDictionary.getZipCode(zipId);
+    }
+
+    public int getZipId() {
+        return zipId;
     }
 
     public int getPopulation() {
@@ -28,7 +42,7 @@ public class Population {
     }
 
     public void setZipCode(String zipCode) {
-        this.zipCode = zipCode;
+        this.zipId = ZipCodeDictionary.encode(zipCode);
     }
 
     public void setPopulation(int population) {
@@ -38,7 +52,7 @@ public class Population {
     @Override
     public String toString() {
         return "Population{" +
-                "zipCode='" + zipCode + '\'' +
+                "zipCode='" + getZipCode() + '\'' +
                 ", population=" + population +
                 '}';
     }
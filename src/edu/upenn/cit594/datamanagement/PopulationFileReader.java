@@ -1,44 +1,83 @@
-package edu.upenn.cit594.datamanagement;
-import edu.upenn.cit594.util.validateData;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
-/**
- * Reads population data from a CSV file and creates a list of Population objects.
- */
-public class PopulationFileReader implements DataReader<Population> {
-
-    /**
-     * Reads population data from the specified CSV file.
-     * Records will be skipped if the ZIP Code is not exactly 5 digits or the population figure is not an integer.
-     *
-     * @param fileName The name of the file to read from.
-     * @return A list of Population objects representing the data in the file.
-     */
-    @Override
-    public List<Population> readData(String fileName) {
-        List<Population> populations = new ArrayList<>();
-        try (CSVReader csvReader = new CSVReader(fileName)) {
-            Map<String, String> row;
-            while ((row = csvReader.readRowAsDict()) != null) {
-                try {
-                    int population = validateData.parseIntOrZero(row.get("population").trim());
-                    String zipCode = row.get("zip_code").trim();
-
-                    if (validateData.isValidZipCode(zipCode) && validateData.isPopulationValid(population)) {
-                        Population populationData = new Population(zipCode, population);
-                        populations.add(populationData);
-                    } else {
-                        System.out.println("Invalid data - zipCode: " + zipCode + ", population: " + population);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error reading population data: " + e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error opening CSV file: " + e.getMessage());
-        }
-        return populations;
-    }
-}
+package edu.upenn.cit594.datamanagement;
+import edu.upenn.cit594.util.validateData;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Reads population data from a CSV file and creates Population objects.
+ * Large files are parsed in parallel chunks by {@link ParallelCSVReader}.
+ */
+public class PopulationFileReader implements DataReader<Population> {
+    // the only columns of the file that are read, and their indices within each projected row
+    private static final String[] COLUMNS = {"population", "zip_code"};
+    private static final int POPULATION = 0;
+    private static final int ZIP_CODE = 1;
+
+    /**
+     * Reads population data from the specified CSV file, passing each Population to the consumer as it is parsed.
+     * Records will be skipped if the ZIP Code is not exactly 5 digits or the population figure is not an integer.
+     *
+     * @param fileName The name of the file to read from.
+     * @param consumer The consumer of the Population objects.
+     */
+    @Override
+    public void streamData(String fileName, Consumer<? super Population> consumer) {
+        try {
+            ParallelCSVReader.<Population>read(fileName, this::readPopulations, consumer);
+        } catch (Exception e) {
+            System.err.println("Error opening CSV file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the population records in a byte range of the specified CSV file, such as the rows appended to it.
+     *
+     * @param fileName The name of the file to read from.
+     * @param start The offset of the first byte of the range.
+     * @param end The offset just past the last byte of the range.
+     * @param consumer The consumer of the Population objects.
+     * @return false if the range could not be read, such as when it holds a malformed row, so that the whole
+     * file is read again.
+     */
+    @Override
+    public boolean streamAppended(String fileName, long start, long end, Consumer<? super Population> consumer) {
+        try {
+            ParallelCSVReader.<Population>readRange(fileName, start, end, this::readPopulations, consumer);
+        } catch (Exception e) {
+            System.err.println("Error opening CSV file: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the remaining rows of a CSV reader (the whole file, or one chunk of it) as Population objects.
+     * A malformed row ends the read with an exception, which the callers report.
+     *
+     * @param csvReader The reader to consume.
+     * @param consumer  The consumer of the populations, in row order.
+     */
+    private void readPopulations(CSVReader csvReader, Consumer<? super Population> consumer)
+            throws IOException, CSVFormatException {
+        csvReader.selectColumns(COLUMNS);
+        CSVRow row;
+        while ((row = csvReader.nextRow()) != null) {
+            try {
+                int population = validateData.parseIntOrZero(row.getTrimmedString(POPULATION));
+                // a five-digit ZIP Code is encoded straight from the row; its String comes from the dictionary
+                int zipId = ZipCodeDictionary.encode(row, ZIP_CODE);
+                String zipCode = zipId != ZipCodeDictionary.NO_ZIP_CODE ?
+                        ZipCodeDictionary.getZipCode(zipId) : row.getTrimmedString(ZIP_CODE);
+
+                if (zipId != ZipCodeDictionary.NO_ZIP_CODE && validateData.isValidZipCode(zipCode)
+                        && validateData.isPopulationValid(population)) {
+                    consumer.accept(new Population(zipId, population));
+                } else {
+                    System.err.println("Invalid data - zipCode: " + zipCode + ", population: " + population);
+                }
+            } catch (Exception e) {
+                System.err.println("Error reading population data: " + e.getMessage());
+            }
+        }
+    }
+}
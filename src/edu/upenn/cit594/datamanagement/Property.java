@@ -6,7 +6,7 @@ package edu.upenn.cit594.datamanagement;
 public class Property {
     private double totalLivableArea;
     private double marketValue;
-    private String zipCode;
+    private int zipId;  // id in the ZipCodeDictionary
 
     /**
      * Constructor for a new Property instance.
@@ -16,9 +16,20 @@ public class Property {
      * @param zipCode          The ZIP code where the property is located.
      */
     public Property(double totalLivableArea, double marketValue, String zipCode) {
+        this(totalLivableArea, marketValue, ZipCodeDictionary.encode(zipCode));
+    }
+
+    /**
+     * Constructor for a new Property instance from an already encoded ZIP code.
+     *
+     * @param totalLivableArea The total livable area of the property
+     * @param marketValue      The market value of the property.
+     * @param zipId            The id of the ZIP code in the {@link ZipCodeDictionary}.
+     */
+    public Property(double totalLivableArea, double marketValue, int zipId) {
         this.totalLivableArea = totalLivableArea;
         this.marketValue = marketValue;
-        this.zipCode = zipCode;
+        this.zipId = zipId;
     }
 
     // Getters and setters...
@@ -39,11 +50,15 @@ public class Property {
     }
 
     public String getZipCode() {
-        return zipCode;
+        return ZipCodeDictionary.getZipCode(zipId);
+    }
+
+    public int getZipId() {
+        return zipId;
     }
 
     public void setZipCode(String zipCode) {
-        this.zipCode = zipCode;
+        this.zipId = ZipCodeDictionary.encode(zipCode);
     }
 
     @Override
@@ -51,7 +66,7 @@ public class Property {
         return "Property{" +
                 "totalLivableArea=" + totalLivableArea +
                 ", marketValue=" + marketValue +
-                ", zipCode='" + zipCode + '\'' +
+                ", zipCode='" + getZipCode() + '\'' +
                 '}';
     }
 }
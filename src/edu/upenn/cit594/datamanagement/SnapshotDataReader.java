@@ -0,0 +1,457 @@
+package edu.upenn.cit594.datamanagement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A DataReader that keeps a binary snapshot of what another DataReader parsed, so that an unchanged file
+ * does not have to be parsed again.
+ *
+ * The snapshot is written next to the source file as {@code <source>.snapshot}. Its header records the
+ * path, size, modification time and CRC32 checksum of the source it was made from; when all of them still
+ * match, the records are decoded from the snapshot instead of parsing the source. Otherwise the source is
+ * parsed by the wrapped reader and a new snapshot is written once it has been read. A snapshot is written
+ * to a temporary file and moved into place, so a crash never leaves a half-written one behind, and a
+ * snapshot that fails its own checksum is ignored.
+ *
+ * The records are streamed to the snapshot as they are parsed and streamed back from it, so neither the
+ * records nor their encoding are ever held in memory as a whole, and a snapshot can be larger than the heap.
+ *
+ * Messages that the wrapped reader prints about invalid records are only printed when the source is parsed.
+ *
+ * @param <T> The type of data that is read.
+ */
+public class SnapshotDataReader<T> implements DataReader<T> {
+    private static final int MAGIC = 0x43353934;  // "C594"
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".snapshot";
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int RECORD = 1;  // marks a record in a snapshot; the records end with END
+    private static final int END = 0;
+
+    /**
+     * Converts records of one type to and from their binary form in a snapshot.
+     *
+     * @param <T> The type of the records.
+     */
+    public interface Codec<T> {
+        /**
+         * @return A name for the record format, which is stored in the snapshot and must change whenever the
+         * format does.
+         */
+        String name();
+
+        void write(DataOutput out, T record) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    public static final Codec<Population> POPULATION = new Codec<Population>() {
+        @Override
+        public String name() {
+            return "population-1";
+        }
+
+        @Override
+        public void write(DataOutput out, Population population) throws IOException {
+            out.writeInt(population.getZipId());
+            out.writeInt(population.getPopulation());
+        }
+
+        @Override
+        public Population read(DataInput in) throws IOException {
+            return new Population(in.readInt(), in.readInt());
+        }
+    };
+
+    public static final Codec<Property> PROPERTY = new Codec<Property>() {
+        @Override
+        public String name() {
+            return "property-1";
+        }
+
+        @Override
+        public void write(DataOutput out, Property property) throws IOException {
+            out.writeDouble(property.getTotalLivableArea());
+            out.writeDouble(property.getMarketValue());
+            out.writeInt(property.getZipId());
+        }
+
+        @Override
+        public Property read(DataInput in) throws IOException {
+            return new Property(in.readDouble(), in.readDouble(), in.readInt());
+        }
+    };
+
+    public static final Codec<Vaccination> VACCINATION = new Codec<Vaccination>() {
+        @Override
+        public String name() {
+            return "vaccination-1";
+        }
+
+        @Override
+        public void write(DataOutput out, Vaccination vaccination) throws IOException {
+            out.writeInt(vaccination.getZipId());
+            out.writeInt(vaccination.getNeg());
+            out.writeInt(vaccination.getPos());
+            out.writeInt(vaccination.getDeaths());
+            out.writeInt(vaccination.getHospitalized());
+            out.writeInt(vaccination.getPartiallyVaccinated());
+            out.writeInt(vaccination.getFullyVaccinated());
+            out.writeInt(vaccination.getBoosted());
+            out.writeUTF(vaccination.getEtlTimestamp());
+        }
+
+        @Override
+        public Vaccination read(DataInput in) throws IOException {
+            return new Vaccination(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readInt(), in.readUTF());
+        }
+    };
+
+    private final DataReader<T> reader;
+    private final Codec<T> codec;
+
+    /**
+     * @param reader The reader used to parse a source file that has no valid snapshot.
+     * @param codec  The binary format of the records.
+     */
+    public SnapshotDataReader(DataReader<T> reader, Codec<T> codec) {
+        this.reader = reader;
+        this.codec = codec;
+    }
+
+    /**
+     * Reads the records of a file from its snapshot if it has a valid one, or else parses the file with the
+     * wrapped reader and writes a snapshot of it.
+     *
+     * @param fileName The name of the file to read from.
+     * @param consumer The consumer that receives each data object.
+     */
+    @Override
+    public void streamData(String fileName, Consumer<? super T> consumer) throws CSVFormatException, IOException {
+        Path source;
+        SourceKey key;
+        try {
+            source = Paths.get(fileName).toAbsolutePath();
+            key = SourceKey.of(source);
+        } catch (IOException | RuntimeException e) {
+            // let the wrapped reader report the problem with the file the way it always has
+            reader.streamData(fileName, consumer);
+            return;
+        }
+
+        Path snapshot = Paths.get(source + SUFFIX);
+        if (readSnapshot(snapshot, key, consumer)) {
+            return;
+        }
+        parseAndWriteSnapshot(fileName, source, snapshot, key, consumer);
+    }
+
+    /**
+     * Reads the rows in a byte range of a file with the wrapped reader. The snapshot is neither read nor
+     * updated, so it no longer matches the file once rows are appended, and the next full read parses it again.
+     *
+     * @param fileName The name of the file to read from.
+     * @param start The offset of the first byte of the range.
+     * @param end The offset just past the last byte of the range.
+     * @param consumer The consumer that receives each data object.
+     * @return false if the wrapped reader cannot read part of a file.
+     */
+    @Override
+    public boolean streamAppended(String fileName, long start, long end, Consumer<? super T> consumer)
+            throws CSVFormatException, IOException {
+        return reader.streamAppended(fileName, start, end, consumer);
+    }
+
+    /**
+     * Decodes the records of a snapshot if it belongs to the given source. The snapshot is read twice through
+     * one open file: first to check the checksum of the whole snapshot, then to decode it, so that no record is
+     * passed on from a damaged snapshot.
+     *
+     * @return Whether the records were read from the snapshot.
+     */
+    private boolean readSnapshot(Path snapshot, SourceKey key, Consumer<? super T> consumer) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot " + snapshot + ": " + e.getMessage());
+            return false;
+        }
+
+        try (FileChannel in = channel) {
+            DataInputStream records;
+            try {
+                if (!hasValidChecksum(in)) {
+                    return false;
+                }
+                in.position(0);
+                records = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in), STREAM_BUFFER_SIZE));
+                if (records.readInt() != MAGIC || records.readInt() != VERSION || !codec.name().equals(records.readUTF())
+                        || !key.equals(SourceKey.read(records))) {
+                    return false;
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading snapshot " + snapshot + ": " + e.getMessage());
+                return false;
+            }
+
+            // once the checksum has matched, decoding can only fail if the codec is broken; by then some records
+            // may have been passed on, so the error is not recovered from by parsing the source
+            while (records.readByte() == RECORD) {
+                consumer.accept(codec.read(records));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return Whether the last eight bytes of a snapshot are the checksum of everything before them.
+     */
+    private static boolean hasValidChecksum(FileChannel channel) throws IOException {
+        long payloadLength = channel.size() - Long.BYTES;
+        if (payloadLength < 0) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+        long position = 0;
+        while (position < payloadLength) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), payloadLength - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return false;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+        ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES);
+        while (checksum.hasRemaining()) {
+            if (channel.read(checksum, payloadLength + checksum.position()) <= 0) {
+                return false;
+            }
+        }
+        return checksum.getLong(0) == crc.getValue();
+    }
+
+    /**
+     * Parses the source with the wrapped reader, passing the records on and writing them to a new snapshot as
+     * they are parsed. A snapshot that cannot be written is reported and otherwise ignored.
+     */
+    private void parseAndWriteSnapshot(String fileName, Path source, Path snapshot, SourceKey key,
+                                       Consumer<? super T> consumer) throws CSVFormatException, IOException {
+        SnapshotWriter writer = SnapshotWriter.open(snapshot, key, codec.name());
+        boolean parsed = false;
+        try {
+            reader.streamData(fileName, record -> {
+                consumer.accept(record);
+                if (writer != null) {
+                    writer.write(codec, record);
+                }
+            });
+            parsed = true;
+        } finally {
+            if (writer != null) {
+                writer.finish(parsed && isUnchanged(source, key));
+            }
+        }
+    }
+
+    /**
+     * @return Whether the source still has the attributes it had before it was parsed. If not, the records that
+     * were read belong to no single version of it.
+     */
+    private static boolean isUnchanged(Path source, SourceKey key) {
+        try {
+            return key.matchesAttributes(source);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file as the records are parsed, and moves it into place once they have
+     * all been written. The first error stops the writing, and is reported when the snapshot is finished.
+     */
+    private static final class SnapshotWriter {
+        private final Path snapshot;
+        private final Path temporary;
+        private final OutputStream file;
+        private final CRC32 crc = new CRC32();
+        private final DataOutputStream out;
+        private IOException failure;
+
+        private SnapshotWriter(Path snapshot, Path temporary) throws IOException {
+            this.snapshot = snapshot;
+            this.temporary = temporary;
+            this.file = Files.newOutputStream(temporary);
+            // buffered before the checksum, so it is updated a block at a time
+            this.out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), STREAM_BUFFER_SIZE));
+        }
+
+        /**
+         * Starts a snapshot by writing its header.
+         *
+         * @return The writer, or null if the snapshot cannot be written.
+         */
+        static SnapshotWriter open(Path snapshot, SourceKey key, String codecName) {
+            Path temporary = null;
+            try {
+                temporary = Files.createTempFile(snapshot.getParent(), snapshot.getFileName().toString(), ".tmp");
+                SnapshotWriter writer = new SnapshotWriter(snapshot, temporary);
+                writer.out.writeInt(MAGIC);
+                writer.out.writeInt(VERSION);
+                writer.out.writeUTF(codecName);
+                key.write(writer.out);
+                return writer;
+            } catch (IOException e) {
+                System.err.println("Error writing snapshot " + snapshot + ": " + e.getMessage());
+                delete(temporary);
+                return null;
+            }
+        }
+
+        <T> void write(Codec<T> codec, T record) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                out.writeByte(RECORD);
+                codec.write(out, record);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Ends the snapshot with its checksum and moves it into place, or deletes it.
+         *
+         * @param keep Whether the snapshot should be kept, if it was written without error.
+         */
+        void finish(boolean keep) {
+            try {
+                if (failure == null && keep) {
+                    out.writeByte(END);
+                    out.flush();
+                    new DataOutputStream(file).writeLong(crc.getValue());
+                }
+                out.close();
+                if (failure != null) {
+                    throw failure;
+                }
+                if (keep) {
+                    try {
+                        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing snapshot " + snapshot + ": " + e.getMessage());
+            }
+            delete(temporary);
+        }
+
+        private static void delete(Path temporary) {
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // a stray temporary file is harmless
+            }
+        }
+    }
+
+    /**
+     * Identifies one version of a source file: its path, size, modification time and checksum.
+     */
+    private static final class SourceKey {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final long checksum;
+
+        private SourceKey(String path, long size, long lastModified, long checksum) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+
+        static SourceKey of(Path source) throws IOException {
+            long size = Files.size(source);
+            long lastModified = Files.getLastModifiedTime(source).toMillis();
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[CHECKSUM_BUFFER_SIZE];
+            try (InputStream in = Files.newInputStream(source)) {
+                int read;
+                while ((read = in.read(chunk)) > 0) {
+                    crc.update(chunk, 0, read);
+                }
+            }
+            return new SourceKey(source.toString(), size, lastModified, crc.getValue());
+        }
+
+        static SourceKey read(DataInput in) throws IOException {
+            return new SourceKey(in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(path);
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeLong(checksum);
+        }
+
+        /**
+         * @return Whether the file still has the size and modification time of this version.
+         */
+        boolean matchesAttributes(Path source) throws IOException {
+            return Files.size(source) == size && Files.getLastModifiedTime(source).toMillis() == lastModified;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SourceKey)) {
+                return false;
+            }
+            SourceKey key = (SourceKey) other;
+            return path.equals(key.path) && size == key.size && lastModified == key.lastModified
+                    && checksum == key.checksum;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, lastModified, checksum);
+        }
+    }
+}
@@ -5,7 +5,7 @@ package edu.upenn.cit594.datamanagement;
  * It stores information about COVID-19 vaccinations for a specific ZIP code and date.
  */
 public class Vaccination {
-    private String zipCode;
+    private int zipId;  // id in the ZipCodeDictionary
     private int neg;
     private int pos;
     private int deaths;
@@ -33,7 +33,19 @@ public class Vaccination {
      */
     public Vaccination(String zipCode, int neg, int pos, int deaths, int hospitalized,
                        int partiallyVaccinated, int fullyVaccinated, int boosted, String etlTimestamp) {
-        this.zipCode = zipCode;
+        this(ZipCodeDictionary.encode(zipCode), neg, pos, deaths, hospitalized, partiallyVaccinated, fullyVaccinated,
+                boosted, etlTimestamp);
+    }
+
+    /**
+     * Constructor for a new Vaccination instance from an already encoded ZIP code.
+     *
+     * @param zipId The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @see #Vaccination(String, int, int, int, int, int, int, int, String)
+     */
+    public Vaccination(int zipId, int neg, int pos, int deaths, int hospitalized,
+                       int partiallyVaccinated, int fullyVaccinated, int boosted, String etlTimestamp) {
+        this.zipId = zipId;
         this.neg = neg;
         this.pos = pos;
         this.deaths = deaths;
@@ -47,11 +59,15 @@ public class Vaccination {
     // Getters and setters (if needed) go here
 
     public String getZipCode() {
-        return zipCode;
+        return ZipCodeDictionary.getZipCode(zipId);
+    }
+
+    public int getZipId() {
+        return zipId;
     }
 
     public void setZipCode(String zipCode) {
-        this.zipCode = zipCode;
+        this.zipId = ZipCodeDictionary.encode(zipCode);
     }
 
     public int getNeg() {
@@ -127,7 +143,7 @@ public class Vaccination {
     @Override
     public String toString() {
         return "Vaccination{" +
-                "zipCode='" + zipCode + '\'' +
+                "zipCode='" + getZipCode() + '\'' +
                 ", neg=" + neg +
                 ", pos=" + pos +
                 ", deaths=" + deaths +
@@ -0,0 +1,97 @@
+package edu.upenn.cit594.datamanagement;
+
+/**
+ * The ZIP code dictionary shared by every dataset.
+ * A five-digit ZIP code is identified by its numeric value, an id in [0, {@link #SIZE}), so ids can index
+ * arrays directly: a join between datasets is an array access and a filter is an int comparison.
+ * Anything that is not exactly five digits has the id {@link #NO_ZIP_CODE}.
+ *
+ * The String form of each ZIP code is created once, the first time it is asked for, and shared afterwards.
+ * The dictionary can be used from several threads at once: two threads may both create the String of the
+ * same ZIP code, but Strings are immutable, so either copy is safe to share.
+ */
+public final class ZipCodeDictionary {
+    /**
+     * The number of distinct ids, one for each five-digit ZIP code.
+     */
+    public static final int SIZE = 100_000;
+
+    /**
+     * The id of anything that is not a five-digit ZIP code.
+     */
+    public static final int NO_ZIP_CODE = -1;
+
+    private static final String[] zipCodes = new String[SIZE];
+
+    private ZipCodeDictionary() {
+    }
+
+    /**
+     * Encodes a ZIP code.
+     *
+     * @param zipCode The ZIP code.
+     * @return The id of the ZIP code, or NO_ZIP_CODE if it is not exactly five digits.
+     */
+    public static int encode(CharSequence zipCode) {
+        if (zipCode == null || zipCode.length() != 5) {
+            return NO_ZIP_CODE;
+        }
+        int id = 0;
+        for (int i = 0; i < 5; i++) {
+            char c = zipCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_ZIP_CODE;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    /**
+     * Encodes a field of a CSV row, ignoring leading and trailing whitespace, without creating a String.
+     *
+     * @param row   The row.
+     * @param index The index of the field.
+     * @return The id of the ZIP code in the field, or NO_ZIP_CODE if it is not exactly five digits.
+     */
+    static int encode(CSVRow row, int index) {
+        int start = 0;
+        int end = row.length(index);
+        while (start < end && row.charAt(index, start) <= ' ') {
+            start++;
+        }
+        while (end > start && row.charAt(index, end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start != 5) {
+            return NO_ZIP_CODE;
+        }
+        int id = 0;
+        for (int i = start; i < end; i++) {
+            char c = row.charAt(index, i);
+            if (c < '0' || c > '9') {
+                return NO_ZIP_CODE;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    /**
+     * Decodes a ZIP code id.
+     *
+     * @param id The id.
+     * @return The five-digit ZIP code, or an empty string for NO_ZIP_CODE.
+     */
+    public static String getZipCode(int id) {
+        if (id == NO_ZIP_CODE) {
+            return "";
+        }
+        String zipCode = zipCodes[id];
+        if (zipCode == null) {
+            zipCode = String.format("%05d", id);
+            zipCodes[id] = zipCode;
+        }
+        return zipCode;
+    }
+}
@@ -4,17 +4,107 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * Logger class following the Singleton pattern to handle logging throughout the application.
  * This logger can write to a file or standard error, and it appends a timestamp to each log entry.
+ *
+ * By default each event is written and flushed by the thread that logs it. With an asynchronous
+ * {@link FlushPolicy}, events are instead put in a bounded queue and written in batches by a single background
+ * thread, so logging an event costs the caller little more than adding it to the queue. If the queue is full,
+ * the caller waits for room rather than dropping the event. {@link #closeLogger()} writes every queued event
+ * before closing the log, and so does a shutdown hook if the program exits without closing it.
+ *
+ * Each event has a {@link Level}, and only events at or above the level set with {@link #setLevel(Level)} are
+ * logged. Events whose message is costly to build should be logged with a {@link Supplier}, which is only called
+ * if the event is logged.
  */
 public class Logger {
+    private static final int QUEUE_CAPACITY = 8192;       // Events waiting to be written in asynchronous mode
+    private static final int MAX_BATCH = 1024;            // Events written between two checks of the flush policy
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final Event STOP = new Event(0, null);  // Tells the writer thread to stop
+
+    /**
+     * The levels of events, from the least to the most important.
+     */
+    public enum Level {
+        /** Details such as the value of every ZIP Code in a result. */
+        DEBUG,
+        /** Results and other events of interest. */
+        INFO,
+        /** Problems that the program recovers from. */
+        WARN,
+        /** Errors. */
+        ERROR,
+        /** Events that are required in every log: the command line arguments, the data files read and the user input. */
+        AUDIT
+    }
+
+    /**
+     * When events are written and flushed, which decides how many can be lost if the program crashes.
+     */
+    public enum FlushPolicy {
+        /** Each event is written and flushed before logEvent returns. Nothing is lost, but every event costs a write. */
+        SYNC,
+        /** Events are written by a background thread, which flushes after every batch. At most the events of the last few milliseconds can be lost. */
+        BATCH,
+        /** Events are written by a background thread, which flushes once a second. Up to a second of events can be lost. */
+        INTERVAL
+    }
+
+    /**
+     * An event waiting to be written.
+     */
+    private static final class Event {
+        final long millis;
+        final String message;
+
+        Event(long millis, String message) {
+            this.millis = millis;
+            this.message = message;
+        }
+    }
+
+    /**
+     * The formatted timestamp of one second, reused by every event logged during that second.
+     */
+    private static final class Timestamp {
+        final long second;
+        final String text;
+
+        Timestamp(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
     private static Logger instance;
+    private final Object writeLock = new Object();      // Guards the writer
+    private final Object lifecycleLock = new Object();  // Guards starting and stopping the writer thread
+    // Held shared while an event is queued and exclusively while the writer thread stops, so none is queued too late
+    private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
     private PrintWriter writer;
     private boolean isSystemErr; // Flag to indicate if the writer is set to System.err when log file name was not specified
+    private FlushPolicy flushPolicy = FlushPolicy.SYNC;
+    private volatile Level level = Level.INFO;
+    private volatile BlockingQueue<Event> queue;  // Events waiting for the writer thread, null when it is not running
+    private Thread writerThread;
+    private boolean shutdownHookAdded;
+    private volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, "");
 
     /**
      * Private constructor to prevent direct instantiation and enforce Singleton pattern.
@@ -24,11 +114,12 @@ public class Logger {
 
     /**
      * Gets the single instance of the Logger.
-     * If the instance does not exist, it is created.
+     * If the instance does not exist, it is created. Safe to call from several threads, such as the
+     * threads that load the datasets in the background.
      *
      * @return The singleton Logger instance.
      */
-    public static Logger getInstance() {
+    public static synchronized Logger getInstance() {
         if (instance == null) {
             instance = new Logger();
         }
@@ -39,52 +130,274 @@ public class Logger {
      * Sets or changes the output destination for the logger.
      * If the log file name was not specified in the runtime arguments then the logger should write to standard error.
      * If changing from a file to another destination, the method closes the current file writer.
+     * Events already logged are written to the previous destination first.
      *
      * @param fileName The name of the file to write logs to, or null to log to System.err.
      */
     public void setOutputFile(String fileName) {
-        try {
-            // Close the existing writer, if any
-            if (writer != null) {
-                writer.close();
-            }
+        synchronized (lifecycleLock) {
+            stopWriterThread();
+            try {
+                synchronized (writeLock) {
+                    // Close the existing writer, if any
+                    if (writer != null && !isSystemErr) {
+                        writer.close();
+                    } else if (writer != null) {
+                        writer.flush();
+                    }
 
-            // Create a new FileWriter with append mode
-            if (fileName != null && !fileName.isEmpty()) {
-                writer = new PrintWriter(new FileWriter(fileName, true));
-            } else {
-                writer = new PrintWriter(new OutputStreamWriter(System.err));
-                isSystemErr = true;
+                    // Create a new FileWriter with append mode
+                    if (fileName != null && !fileName.isEmpty()) {
+                        writer = new PrintWriter(new FileWriter(fileName, true));
+                        isSystemErr = false;
+                    } else {
+                        writer = new PrintWriter(new OutputStreamWriter(System.err));
+                        isSystemErr = true;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot set the output file for logger", e);
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot set the output file for logger", e);
+            startWriterThread();
         }
     }
 
     /**
-     * Logs an event with the current timestamp.
+     * Sets when events are written and flushed. Events already logged are written first.
+     *
+     * @param flushPolicy The flush policy.
+     */
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        synchronized (lifecycleLock) {
+            stopWriterThread();
+            this.flushPolicy = flushPolicy;
+            startWriterThread();
+        }
+    }
+
+    /**
+     * Sets the least important level of the events that are logged. Whatever the level, AUDIT events are logged.
+     *
+     * @param level The level.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * @param level A level.
+     * @return true if events of the level are logged.
+     */
+    public boolean isEnabled(Level level) {
+        return level == Level.AUDIT || level.compareTo(this.level) >= 0;
+    }
+
+    /**
+     * Logs an event at the INFO level with the current timestamp.
      *
      * @param message The message to be logged.
      */
     public void logEvent(String message) {
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-        String logEntry = timestamp + " " + message;
+        logEvent(Level.INFO, message);
+    }
 
-        // Log the event to the console and the file
-        if (writer != null) {
-            writer.println(logEntry);
-            writer.flush();
+    /**
+     * Logs an event with the current timestamp if its level is enabled.
+     *
+     * @param level The level of the event.
+     * @param message The message to be logged.
+     */
+    public void logEvent(Level level, String message) {
+        if (isEnabled(level)) {
+            write(message);
         }
     }
 
     /**
-     * Closes the logger's writer to release resources.
-     * If the current writer is System.err, it is not closed.
+     * Logs an event with the current timestamp if its level is enabled. The message is only built if it is.
+     *
+     * @param level The level of the event.
+     * @param message Builds the message to be logged.
+     */
+    public void logEvent(Level level, Supplier<String> message) {
+        if (isEnabled(level)) {
+            write(message.get());
+        }
+    }
+
+    private void write(String message) {
+        long now = System.currentTimeMillis();
+        queueLock.readLock().lock();
+        try {
+            BlockingQueue<Event> pending = queue;
+            if (pending != null) {
+                pending.put(new Event(now, message));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // write it here instead
+        } finally {
+            queueLock.readLock().unlock();
+        }
+
+        synchronized (writeLock) {
+            // Log the event to the console and the file
+            if (writer != null) {
+                writer.println(format(now, message));
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Closes the logger's writer to release resources, after writing every event logged so far.
+     * If the current writer is System.err, it is only flushed.
      */
     public void closeLogger() {
-        // Close the writer when the program ends
-        if (writer != null && !isSystemErr) {
-            writer.close();
+        synchronized (lifecycleLock) {
+            stopWriterThread();
+            // Close the writer when the program ends
+            synchronized (writeLock) {
+                if (writer != null && !isSystemErr) {
+                    writer.close();
+                } else if (writer != null) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts the writer thread if the flush policy is asynchronous and there is somewhere to write to.
+     */
+    private void startWriterThread() {
+        if (flushPolicy == FlushPolicy.SYNC || writer == null) {
+            return;
+        }
+        if (!shutdownHookAdded) {
+            // write what is still queued if the program exits without closing the logger
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                synchronized (lifecycleLock) {
+                    stopWriterThread();
+                }
+            }, "logger-shutdown"));
+            shutdownHookAdded = true;
+        }
+        BlockingQueue<Event> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        FlushPolicy policy = flushPolicy;
+        writerThread = new Thread(() -> writeEvents(pending, policy), "logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        queue = pending;
+    }
+
+    /**
+     * Stops the writer thread, if it is running, once it has written every queued event. Events logged from now
+     * on are written by the threads that log them until the writer thread is started again. Events that are being
+     * queued are waited for, so that each one is either written by the writer thread or drained here.
+     */
+    private void stopWriterThread() {
+        BlockingQueue<Event> pending;
+        queueLock.writeLock().lock();
+        try {
+            pending = queue;
+            queue = null;
+        } finally {
+            queueLock.writeLock().unlock();
+        }
+        if (pending == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pending.put(STOP);
+                writerThread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        writerThread = null;
+
+        // events that were queued just as the thread stopped
+        List<Event> rest = new ArrayList<>();
+        pending.drainTo(rest);
+        synchronized (writeLock) {
+            for (Event event : rest) {
+                if (event != STOP) {
+                    writer.println(format(event.millis, event.message));
+                }
+            }
+            writer.flush();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the writer thread: writes the queued events in batches and flushes them as the flush policy
+     * says, until it is told to stop.
+     */
+    private void writeEvents(BlockingQueue<Event> pending, FlushPolicy policy) {
+        List<Event> batch = new ArrayList<>(MAX_BATCH);
+        long lastFlush = System.currentTimeMillis();
+        boolean unflushed = false;
+        while (true) {
+            Event first;
+            try {
+                if (unflushed) {
+                    long wait = lastFlush + FLUSH_INTERVAL_MILLIS - System.currentTimeMillis();
+                    first = pending.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+                } else {
+                    first = pending.take();
+                }
+            } catch (InterruptedException e) {
+                continue;  // only stopped by the STOP event, so that nothing queued is left behind
+            }
+
+            boolean stop = false;
+            if (first != null) {
+                batch.add(first);
+                pending.drainTo(batch, MAX_BATCH - 1);
+                synchronized (writeLock) {
+                    for (Event event : batch) {
+                        if (event == STOP) {
+                            stop = true;
+                        } else {
+                            writer.println(format(event.millis, event.message));
+                        }
+                    }
+                }
+                batch.clear();
+                unflushed = true;
+            }
+
+            long now = System.currentTimeMillis();
+            if (stop || policy == FlushPolicy.BATCH || now - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+                synchronized (writeLock) {
+                    writer.flush();
+                }
+                lastFlush = now;
+                unflushed = false;
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Formats a log entry. The timestamp is only formatted again when the second changes.
+     */
+    private String format(long millis, String message) {
+        long second = Math.floorDiv(millis, 1000);
+        Timestamp cached = timestamp;
+        if (cached.second != second) {
+            cached = new Timestamp(second, TIMESTAMP_FORMAT.format(Instant.ofEpochSecond(second)));
+            timestamp = cached;
         }
+        return cached.text + " " + message;
     }
 }
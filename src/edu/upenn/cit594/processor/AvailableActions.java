@@ -12,7 +12,12 @@ public enum AvailableActions {
     SHOW_AVERAGE_MARKET_VALUE(4, "properties"),
     SHOW_AVERAGE_TOTAL_LIVABLE_AREA(5, "properties"),
     SHOW_TOTAL_MARKET_VALUE_PER_CAPITA(6, "properties", "population"),
-    SHOW_CUSTOM_FEATURE(7, "covid", "properties", "population");
+    SHOW_CUSTOM_FEATURE(7, "covid", "properties", "population"),
+    // the datasets this action requires depend on the metric, as listed by ZipCodeMetric#getRequiredParameters()
+    SHOW_ZIP_CODE_RANKING(8),
+    SHOW_VACCINATION_SERIES(9, "population", "covid"),
+    SHOW_MARKET_VALUE_QUANTILE(10, "properties"),
+    SHOW_TOTAL_LIVABLE_AREA_QUANTILE(11, "properties");
 
     private final int actionNumber;
     private final String[] requiredParameters;
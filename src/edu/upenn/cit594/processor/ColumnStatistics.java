@@ -0,0 +1,164 @@
+package edu.upenn.cit594.processor;
+
+/**
+ * Summary statistics of several numeric columns, gathered in a single pass: for each column the count, sum,
+ * minimum, maximum, mean and variance of its values. They are all updated as each value is added, so any number of
+ * these statistics cost one scan of the data rather than one scan each.
+ *
+ * The variance is kept with Welford's running update, which stays accurate for large values where the sum of
+ * squares would lose its precision. Statistics gathered separately, such as over the rows loaded from a file and
+ * the rows appended to it later, can be combined with {@link #merge(ColumnStatistics)} into the statistics of all
+ * the values, using the pairwise update of Chan, Golub and LeVeque for the variance.
+ *
+ * NaN values stand for missing values and are ignored, so each column has its own count. Like the stores that use
+ * it, an instance is not safe to change from several threads at once, but once it is no longer changed it can be
+ * read from several threads at the same time.
+ */
+public final class ColumnStatistics {
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+    private final double[] means;  // running means, for the variance
+    private final double[] squaredDeviations;  // sums of the squared deviations from the running means
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param columns The number of columns.
+     */
+    public ColumnStatistics(int columns) {
+        counts = new long[columns];
+        sums = new double[columns];
+        mins = new double[columns];
+        maxs = new double[columns];
+        means = new double[columns];
+        squaredDeviations = new double[columns];
+    }
+
+    /**
+     * Creates a copy of some statistics, which can be added to without changing the original.
+     *
+     * @param statistics The statistics to copy.
+     */
+    public ColumnStatistics(ColumnStatistics statistics) {
+        counts = statistics.counts.clone();
+        sums = statistics.sums.clone();
+        mins = statistics.mins.clone();
+        maxs = statistics.maxs.clone();
+        means = statistics.means.clone();
+        squaredDeviations = statistics.squaredDeviations.clone();
+    }
+
+    /**
+     * Adds a value to a column. NaN values are ignored.
+     *
+     * @param column The index of the column.
+     * @param value  The value.
+     */
+    public void add(int column, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        long count = ++counts[column];
+        sums[column] += value;
+        if (count == 1 || value < mins[column]) {
+            mins[column] = value;
+        }
+        if (count == 1 || value > maxs[column]) {
+            maxs[column] = value;
+        }
+        double delta = value - means[column];
+        means[column] += delta / count;
+        squaredDeviations[column] += delta * (value - means[column]);
+    }
+
+    /**
+     * Adds all the values of other statistics over the same columns to these ones. The other statistics are
+     * not changed.
+     *
+     * @param statistics The statistics to merge into these ones.
+     * @throws IllegalArgumentException if the statistics have a different number of columns.
+     */
+    public void merge(ColumnStatistics statistics) {
+        if (statistics.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge statistics of " + statistics.counts.length
+                    + " columns into statistics of " + counts.length + " columns");
+        }
+        for (int column = 0; column < counts.length; column++) {
+            long otherCount = statistics.counts[column];
+            if (otherCount == 0) {
+                continue;
+            }
+            long count = counts[column];
+            if (count == 0 || statistics.mins[column] < mins[column]) {
+                mins[column] = statistics.mins[column];
+            }
+            if (count == 0 || statistics.maxs[column] > maxs[column]) {
+                maxs[column] = statistics.maxs[column];
+            }
+            long total = count + otherCount;
+            double delta = statistics.means[column] - means[column];
+            means[column] += delta * otherCount / total;
+            squaredDeviations[column] += statistics.squaredDeviations[column]
+                    + delta * delta * ((double) count * otherCount / total);
+            sums[column] += statistics.sums[column];
+            counts[column] = total;
+        }
+    }
+
+    /**
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return counts.length;
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The number of values added to the column.
+     */
+    public long getCount(int column) {
+        return counts[column];
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The sum of the values of the column, or 0 if there are none.
+     */
+    public double getSum(int column) {
+        return sums[column];
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The smallest value of the column, or NaN if there are none.
+     */
+    public double getMin(int column) {
+        return counts[column] > 0 ? mins[column] : Double.NaN;
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The largest value of the column, or NaN if there are none.
+     */
+    public double getMax(int column) {
+        return counts[column] > 0 ? maxs[column] : Double.NaN;
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The mean of the values of the column, their sum divided by their count, or NaN if there are none.
+     */
+    public double getMean(int column) {
+        return counts[column] > 0 ? sums[column] / counts[column] : Double.NaN;
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The population variance of the values of the column, or NaN if there are none.
+     */
+    public double getVariance(int column) {
+        return counts[column] > 0 ? squaredDeviations[column] / counts[column] : Double.NaN;
+    }
+}
@@ -0,0 +1,160 @@
+package edu.upenn.cit594.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ColumnStatisticsTests {
+
+    private static final double TOLERANCE = 1e-9;
+
+    /*
+     * Two columns of random values, with NaN in a third of the rows of the second column; the first column is
+     * offset far from zero, where a sum of squares would lose the variance.
+     */
+    private static double[][] randomRows(long seed, int rows) {
+        Random random = new Random(seed);
+        double[][] values = new double[rows][2];
+        for (int row = 0; row < rows; row++) {
+            values[row][0] = 1e9 + random.nextGaussian() * 1000;
+            values[row][1] = random.nextInt(3) == 0 ? Double.NaN : random.nextDouble() * 500;
+        }
+        return values;
+    }
+
+    private static ColumnStatistics statistics(double[][] rows, int from, int to) {
+        ColumnStatistics statistics = new ColumnStatistics(2);
+        for (int row = from; row < to; row++) {
+            for (int column = 0; column < 2; column++) {
+                statistics.add(column, rows[row][column]);
+            }
+        }
+        return statistics;
+    }
+
+    /*
+     * Checks statistics against the ones computed in two passes over the non-NaN values of a column: the mean
+     * first, then the squared deviations from it.
+     */
+    private static void assertMatchesTwoPass(double[][] rows, int column, ColumnStatistics statistics) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double[] row : rows) {
+            if (!Double.isNaN(row[column])) {
+                count++;
+                sum += row[column];
+                min = Math.min(min, row[column]);
+                max = Math.max(max, row[column]);
+            }
+        }
+        double mean = sum / count;
+        double squaredDeviations = 0;
+        for (double[] row : rows) {
+            if (!Double.isNaN(row[column])) {
+                squaredDeviations += (row[column] - mean) * (row[column] - mean);
+            }
+        }
+        double variance = squaredDeviations / count;
+
+        assertEquals(count, statistics.getCount(column));
+        assertEquals(sum, statistics.getSum(column), Math.abs(sum) * TOLERANCE);
+        assertEquals(min, statistics.getMin(column), 0.0);
+        assertEquals(max, statistics.getMax(column), 0.0);
+        assertEquals(mean, statistics.getMean(column), Math.abs(mean) * TOLERANCE);
+        assertEquals(variance, statistics.getVariance(column), variance * 1e-6);
+    }
+
+    @Test
+    public void testWelfordMatchesTwoPass() {
+        double[][] rows = randomRows(1, 10000);
+        ColumnStatistics statistics = statistics(rows, 0, rows.length);
+
+        assertMatchesTwoPass(rows, 0, statistics);
+        assertMatchesTwoPass(rows, 1, statistics);
+    }
+
+    @Test
+    public void testNaNIsSkippedPerColumn() {
+        ColumnStatistics statistics = new ColumnStatistics(2);
+        statistics.add(0, 1.0);
+        statistics.add(1, Double.NaN);
+        statistics.add(0, 3.0);
+        statistics.add(1, 4.0);
+
+        assertEquals(2, statistics.getCount(0));
+        assertEquals(1, statistics.getCount(1));
+        assertEquals(2.0, statistics.getMean(0), 0.0);
+        assertEquals(1.0, statistics.getVariance(0), 0.0);
+        assertEquals(4.0, statistics.getMean(1), 0.0);
+        assertEquals(0.0, statistics.getVariance(1), 0.0);
+    }
+
+    @Test
+    public void testEmptyColumn() {
+        ColumnStatistics statistics = new ColumnStatistics(1);
+        statistics.add(0, Double.NaN);
+
+        assertEquals(0, statistics.getCount(0));
+        assertEquals(0.0, statistics.getSum(0), 0.0);
+        assertTrue(Double.isNaN(statistics.getMin(0)));
+        assertTrue(Double.isNaN(statistics.getMax(0)));
+        assertTrue(Double.isNaN(statistics.getMean(0)));
+        assertTrue(Double.isNaN(statistics.getVariance(0)));
+    }
+
+    @Test
+    public void testMergeMatchesTwoPass() {
+        double[][] rows = randomRows(2, 10000);
+        int[] bounds = {0, 1, 2500, 2501, 7000, rows.length};
+        ColumnStatistics merged = new ColumnStatistics(2);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            merged.merge(statistics(rows, bounds[i], bounds[i + 1]));
+        }
+
+        assertMatchesTwoPass(rows, 0, merged);
+        assertMatchesTwoPass(rows, 1, merged);
+    }
+
+    @Test
+    public void testMergeDoesNotChangeTheOther() {
+        double[][] rows = randomRows(3, 100);
+        ColumnStatistics first = statistics(rows, 0, 50);
+        ColumnStatistics second = statistics(rows, 50, 100);
+        ColumnStatistics copy = new ColumnStatistics(second);
+
+        first.merge(second);
+
+        for (int column = 0; column < 2; column++) {
+            assertEquals(copy.getCount(column), second.getCount(column));
+            assertEquals(copy.getSum(column), second.getSum(column), 0.0);
+            assertEquals(copy.getVariance(column), second.getVariance(column), 0.0);
+        }
+    }
+
+    @Test
+    public void testMergeWithEmptyColumn() {
+        ColumnStatistics statistics = new ColumnStatistics(1);
+        ColumnStatistics other = new ColumnStatistics(1);
+        other.add(0, -2.0);
+        other.add(0, 2.0);
+
+        statistics.merge(other);
+        statistics.merge(new ColumnStatistics(1));
+
+        assertEquals(2, statistics.getCount(0));
+        assertEquals(-2.0, statistics.getMin(0), 0.0);
+        assertEquals(2.0, statistics.getMax(0), 0.0);
+        assertEquals(0.0, statistics.getMean(0), 0.0);
+        assertEquals(4.0, statistics.getVariance(0), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeRejectsDifferentColumns() {
+        new ColumnStatistics(2).merge(new ColumnStatistics(3));
+    }
+}
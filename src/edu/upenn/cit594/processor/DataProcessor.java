@@ -3,17 +3,61 @@ package edu.upenn.cit594.processor;
 import edu.upenn.cit594.logging.Logger;
 import edu.upenn.cit594.util.getParameter;
 
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main processor class for handling different types of data processing based on user input.
+ * The datasets may still be loading in the background when the processor is created; each action waits only
+ * for the datasets it requires, as listed by {@link AvailableActions#getRequiredParameters()}.
+ * The processors of the datasets are held in a {@link Snapshot} that is replaced as a whole when a dataset is
+ * reloaded, for example by a {@link DatasetWatcher}. Each action reads the snapshot once, so it uses the
+ * processors of one snapshot throughout, and an action that is running when a reload happens finishes on the
+ * old data.
  */
 public class DataProcessor {
+    private static final int SERIES_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The processors of the three datasets at one point in time, each of which may still be loading, or null if
+     * its dataset was not provided. A snapshot never changes once it is made.
+     */
+    static final class Snapshot {
+        final CompletableFuture<PopulationDataProcessor> populationDataProcessor;
+        final CompletableFuture<VaccinationDataProcessor> vaccinationDataProcessor;
+        final CompletableFuture<PropertyDataProcessor> propertyDataProcessor;
+        private final Map<String, CompletableFuture<?>> datasets = new HashMap<>();  // Loading datasets by parameter name
+
+        Snapshot(CompletableFuture<PopulationDataProcessor> populationDataProcessor,
+                 CompletableFuture<VaccinationDataProcessor> vaccinationDataProcessor,
+                 CompletableFuture<PropertyDataProcessor> propertyDataProcessor) {
+            this.populationDataProcessor = populationDataProcessor;
+            this.vaccinationDataProcessor = vaccinationDataProcessor;
+            this.propertyDataProcessor = propertyDataProcessor;
+            datasets.put("population", populationDataProcessor);
+            datasets.put("covid", vaccinationDataProcessor);
+            datasets.put("properties", propertyDataProcessor);
+        }
+
+        /**
+         * @param dataset The parameter name of a dataset: population, covid or properties.
+         * @return The processor of the dataset, once it is loaded, or null if the dataset was not provided.
+         */
+        CompletableFuture<?> get(String dataset) {
+            return datasets.get(dataset);
+        }
+    }
+
     Logger logger = Logger.getInstance();
-    private final PopulationDataProcessor populationDataProcessor;
-    private final VaccinationDataProcessor vaccinationDataProcessor;
-    private final PropertyDataProcessor propertyDataProcessor;
+    private volatile Snapshot snapshot;  // Replaced as a whole when a dataset is reloaded
 
     private final getParameter getParameter;
 
@@ -27,25 +71,257 @@ public class DataProcessor {
      */
     public DataProcessor(PopulationDataProcessor populationDataProcessor, VaccinationDataProcessor vaccinationDataProcessor,
                             PropertyDataProcessor propertyDataProcessor, getParameter getParameter) {
-        this.populationDataProcessor = populationDataProcessor;
-        this.vaccinationDataProcessor = vaccinationDataProcessor;
-        this.propertyDataProcessor = propertyDataProcessor;
+        this(loaded(populationDataProcessor), loaded(vaccinationDataProcessor), loaded(propertyDataProcessor), getParameter);
+    }
+
+
+    /**
+     * Constructor for DataProcessor over datasets that may still be loading.
+     *
+     * @param populationDataProcessor The processor for population data, once it is loaded.
+     * @param vaccinationDataProcessor The processor for vaccination data, once it is loaded.
+     * @param propertyDataProcessor The processor for property data, once it is loaded.
+     * @param getParameter A utility for getting parameters from user input.
+     */
+    public DataProcessor(CompletableFuture<PopulationDataProcessor> populationDataProcessor,
+                         CompletableFuture<VaccinationDataProcessor> vaccinationDataProcessor,
+                         CompletableFuture<PropertyDataProcessor> propertyDataProcessor, getParameter getParameter) {
+        this.snapshot = new Snapshot(populationDataProcessor, vaccinationDataProcessor, propertyDataProcessor);
         this.getParameter = getParameter;
     }
 
+
+    /**
+     * @return The current processors of the datasets.
+     */
+    Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+
+    /**
+     * Replaces the processors of the datasets. Actions that have already read the old snapshot finish on it.
+     *
+     * @param snapshot The new processors of the datasets.
+     */
+    void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+
+    private static <T> CompletableFuture<T> loaded(T processor) {
+        return processor == null ? null : CompletableFuture.completedFuture(processor);
+    }
+
+
+    /**
+     * Waits until the datasets required by an action have finished loading. Datasets the action does not need
+     * are not waited for.
+     *
+     * @param action The action about to be performed.
+     * @return The snapshot whose datasets were waited for, which the action should use throughout.
+     * @throws IllegalStateException if a required dataset was not provided.
+     * @throws java.util.concurrent.CompletionException if a required dataset failed to load.
+     */
+    private Snapshot awaitDatasets(AvailableActions action) {
+        return awaitDatasets(action.getRequiredParameters());
+    }
+
+
+    /**
+     * Waits until the named datasets have finished loading.
+     *
+     * @param requiredParameters The names of the datasets.
+     * @return The snapshot whose datasets were waited for.
+     * @throws IllegalStateException if one of the datasets was not provided.
+     * @throws java.util.concurrent.CompletionException if one of the datasets failed to load.
+     */
+    private Snapshot awaitDatasets(String[] requiredParameters) {
+        Snapshot snapshot = this.snapshot;
+        for (String dataset : requiredParameters) {
+            CompletableFuture<?> loading = snapshot.get(dataset);
+            if (loading == null) {
+                throw new IllegalStateException("The " + dataset + " data was not provided");
+            }
+            loading.join();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks whether the datasets required by an action were provided. They may still be loading.
+     *
+     * @param action The action.
+     * @return true if every dataset the action requires was provided.
+     */
+    public boolean isAvailable(AvailableActions action) {
+        return isAvailable(action.getRequiredParameters());
+    }
+
+
+    /**
+     * Checks whether the datasets a ranking metric is calculated from were provided. They may still be loading.
+     *
+     * @param metric The metric.
+     * @return true if every dataset the metric requires was provided.
+     */
+    public boolean isAvailable(ZipCodeMetric metric) {
+        return isAvailable(metric.getRequiredParameters());
+    }
+
+
+    private boolean isAvailable(String[] requiredParameters) {
+        Snapshot snapshot = this.snapshot;
+        for (String dataset : requiredParameters) {
+            if (snapshot.get(dataset) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * The get methods below answer the same queries as the show methods without printing anything, for callers
+     * such as the query server that present the results themselves. They can be called from several threads at
+     * once, wait for the datasets they require, and throw an exception if one of them is missing or failed to load.
+     */
+
+    /**
+     * @return The total population.
+     */
+    public int getTotalPopulation() {
+        Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_TOTAL_POPULATION);
+        return snapshot.populationDataProcessor.join().getTotalPopulation();
+    }
+
+
+    /**
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param date The date in the format YYYY-MM-DD.
+     * @return A map of ZIP codes to their vaccinations per capita, in ZIP Code order, or null if the type or the
+     * date is invalid.
+     */
+    public Map<String, Double> getVaccinationsPerCapita(String vaccinationType, String date) {
+        Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_VACCINATIONS_PER_CAPITA);
+        return snapshot.vaccinationDataProcessor.join().getVaccinationsPerCapita(vaccinationType, date);
+    }
+
+
+    /**
+     * Streams the vaccinations per capita of each ZIP Code on every day of a date range, one point at a time.
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param startDate The first date of the range in the format YYYY-MM-DD.
+     * @param endDate The last date of the range in the format YYYY-MM-DD, included.
+     * @param zipCodes The ZIP Codes to stream, or null for all of them.
+     * @param consumer The consumer of the points, in order of date and then of ZIP Code.
+     * @return false if the type or a date is invalid, or the range ends before it starts.
+     */
+    public boolean streamVaccinationsPerCapita(String vaccinationType, String startDate, String endDate,
+                                               Collection<String> zipCodes, VaccinationDataProcessor.SeriesConsumer consumer) {
+        Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_VACCINATION_SERIES);
+        return snapshot.vaccinationDataProcessor.join().streamVaccinationsPerCapita(vaccinationType, startDate, endDate, zipCodes, consumer);
+    }
+
+
+    /**
+     * @param calculator The calculator to use for the property metric.
+     * @param zipCode The ZIP Code.
+     * @return The average property metric of the ZIP Code.
+     */
+    public double getAveragePropertyMetric(PropertyAverageCalculator calculator, String zipCode) {
+        Snapshot snapshot = awaitDatasets(calculator instanceof AverageTotalLivableAreaCalculator ?
+                AvailableActions.SHOW_AVERAGE_TOTAL_LIVABLE_AREA : AvailableActions.SHOW_AVERAGE_MARKET_VALUE);
+        return snapshot.propertyDataProcessor.join().getAveragePropertyMetric(calculator, zipCode);
+    }
+
+
+    /**
+     * @param zipCode The ZIP Code.
+     * @return The total market value per capita of the ZIP Code.
+     */
+    public double getMarketValuePerCapita(String zipCode) {
+        Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_TOTAL_MARKET_VALUE_PER_CAPITA);
+        return snapshot.propertyDataProcessor.join().getMarketValuePerCapita(zipCode);
+    }
+
+
+    /**
+     * @param calculator The calculator to use for the property metric.
+     * @param quantile The quantile, from 0 to 1.
+     * @param zipCode The ZIP Code.
+     * @return The estimated quantile of the property metric of the ZIP Code.
+     */
+    public double getPropertyQuantile(PropertyQuantileCalculator calculator, double quantile, String zipCode) {
+        Snapshot snapshot = awaitDatasets(quantileAction(calculator));
+        return snapshot.propertyDataProcessor.join().getPropertyQuantile(calculator, quantile, zipCode);
+    }
+
+
+    /**
+     * @return The total number of fully vaccinated individuals, as used by the custom feature.
+     */
+    public int getTotalFullyVaccinated() {
+        Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_CUSTOM_FEATURE);
+        return snapshot.vaccinationDataProcessor.join().showTotalFullyVaccinatedByZipCode();
+    }
+
+
+    /**
+     * @return The average market value of all properties, as used by the custom feature.
+     */
+    public double getAverageMarketValue() {
+        Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_CUSTOM_FEATURE);
+        return snapshot.propertyDataProcessor.join().showAverageMarketValue();
+    }
+
+
+    /**
+     * Ranks the ZIP Codes by a metric in a single pass over the data of the metric, keeping only the top or bottom
+     * ones. ZIP Codes that have no value for the metric, such as those without a population for the per capita
+     * metrics, are not ranked.
+     *
+     * @param metric The metric to rank by.
+     * @param order Whether the ZIP Codes with the highest or the lowest values are kept.
+     * @param size The number of ZIP Codes to keep.
+     * @param date The date in the format YYYY-MM-DD for the vaccination metrics; ignored for the others.
+     * @return The ranked ZIP Codes, best first, or null if the metric needs a date and the date is invalid.
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public List<ZipCodeRanking.Entry> getZipCodeRanking(ZipCodeMetric metric, ZipCodeRanking.Order order, int size, String date) {
+        ZipCodeRanking ranking = new ZipCodeRanking(order, size);
+        Snapshot snapshot = awaitDatasets(metric.getRequiredParameters());
+        switch (metric) {
+            case POPULATION:
+                snapshot.populationDataProcessor.join().rankZipCodes(ranking);
+                break;
+            case FULL_VACCINATIONS_PER_CAPITA:
+            case PARTIAL_VACCINATIONS_PER_CAPITA:
+                if (!snapshot.vaccinationDataProcessor.join().rankZipCodes(metric, date, ranking)) {
+                    return null;
+                }
+                break;
+            default:
+                snapshot.propertyDataProcessor.join().rankZipCodes(metric, ranking);
+        }
+        return ranking.getEntries();
+    }
+
+
     /**
      * Displays the total population from the population data.
      */
     public void showTotalPopulation() {
         try {
-            int totalPopulation = populationDataProcessor.getTotalPopulation();
+            Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_TOTAL_POPULATION);
+            int totalPopulation = snapshot.populationDataProcessor.join().getTotalPopulation();
             System.out.println("BEGIN OUTPUT");
             System.out.println(totalPopulation);
             logger.logEvent("Total population: " + totalPopulation);
             System.out.println("END OUTPUT");
         } catch (Exception e) {
             System.out.println("Error: Unable to retrieve total population. Please make sure the population file is provided.");
-            logger.logEvent("Error displaying total population: " + e.getMessage());
+            logger.logEvent(Logger.Level.ERROR, "Error displaying total population: " + e.getMessage());
         }
     }
 
@@ -56,10 +332,30 @@ public class DataProcessor {
      */
     public void showVaccinationsPerCapita(Scanner scanner) {
         try {
-            vaccinationDataProcessor.showVaccinationsPerCapita(scanner);
+            Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_VACCINATIONS_PER_CAPITA);
+            snapshot.vaccinationDataProcessor.join().showVaccinationsPerCapita(scanner);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve vaccination per capita.");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying vaccinations per capita: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Displays the total full or partial vaccinations per capita for each ZIP Code for a date given up front.
+     * An invalid vaccination type or date is reported on standard error.
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param date The date in the format YYYY-MM-DD.
+     */
+    public void showVaccinationsPerCapita(String vaccinationType, String date) {
+        try {
+            Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_VACCINATIONS_PER_CAPITA);
+            if (!snapshot.vaccinationDataProcessor.join().showVaccinationsPerCapita(vaccinationType, date)) {
+                System.err.println("Error: Invalid vaccination type or date: " + vaccinationType + " " + date);
+            }
         } catch (Exception e) {
             System.out.println("Error: Unable to retrieve vaccination per capita.");
-            logger.logEvent("Error displaying vaccinations per capita: " + e.getMessage());
+            logger.logEvent(Logger.Level.ERROR, "Error displaying vaccinations per capita: " + e.getMessage());
         }
     }
 
@@ -70,32 +366,271 @@ public class DataProcessor {
      * @param scanner The scanner to read user input.
      */
     public void showAveragePropertyMetric(PropertyAverageCalculator calculator,Scanner scanner) {
+        String zipCode;
+        try {
+            zipCode = getParameter.getZipCode(scanner);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve average property metric for ZIP Code. ");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying average property metric: " + e.getMessage());
+            return;
+        }
+        showAveragePropertyMetric(calculator, zipCode);
+    }
+
+
+    /**
+     * Displays the average property metric (either market value or total livable area) for a ZIP Code given up front.
+     * @param calculator The calculator to use for the property metric.
+     * @param zipCode The ZIP Code.
+     */
+    public void showAveragePropertyMetric(PropertyAverageCalculator calculator, String zipCode) {
         try {
-            propertyDataProcessor.setCalculator(calculator);
-            String zipCode = getParameter.getZipCode(scanner);
-            propertyDataProcessor.showAveragePropertyMetric(zipCode);
+            Snapshot snapshot = awaitDatasets(calculator instanceof AverageTotalLivableAreaCalculator ?
+                    AvailableActions.SHOW_AVERAGE_TOTAL_LIVABLE_AREA : AvailableActions.SHOW_AVERAGE_MARKET_VALUE);
+            snapshot.propertyDataProcessor.join().showAveragePropertyMetric(calculator, zipCode);
         } catch (Exception e) {
             System.out.println("Error: Unable to retrieve average property metric for ZIP Code. ");
-            logger.logEvent("Error displaying average property metric: " + e.getMessage());
+            logger.logEvent(Logger.Level.ERROR, "Error displaying average property metric: " + e.getMessage());
         }
     }
 
 
+    /**
+     * Displays a quantile of a property metric (either market value or total livable area) for a specified ZIP
+     * Code, asking for the quantile and then the ZIP Code.
+     * @param calculator The calculator to use for the property metric.
+     * @param scanner The scanner to read user input.
+     */
+    public void showPropertyQuantile(PropertyQuantileCalculator calculator, Scanner scanner) {
+        double quantile;
+        String zipCode;
+        try {
+            quantile = getParameter.getQuantile(scanner);
+            zipCode = getParameter.getZipCode(scanner);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve property metric quantile for ZIP Code. ");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying property metric quantile: " + e.getMessage());
+            return;
+        }
+        showPropertyQuantile(calculator, quantile, zipCode);
+    }
+
+
+    /**
+     * Displays a quantile of a property metric (either market value or total livable area) for a ZIP Code given
+     * up front.
+     * @param calculator The calculator to use for the property metric.
+     * @param quantile The quantile, from 0 to 1.
+     * @param zipCode The ZIP Code.
+     */
+    public void showPropertyQuantile(PropertyQuantileCalculator calculator, double quantile, String zipCode) {
+        try {
+            Snapshot snapshot = awaitDatasets(quantileAction(calculator));
+            snapshot.propertyDataProcessor.join().showPropertyQuantile(calculator, quantile, zipCode);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve property metric quantile for ZIP Code. ");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying property metric quantile: " + e.getMessage());
+        }
+    }
+
+
+    private static AvailableActions quantileAction(PropertyQuantileCalculator calculator) {
+        return calculator instanceof TotalLivableAreaQuantileCalculator ?
+                AvailableActions.SHOW_TOTAL_LIVABLE_AREA_QUANTILE : AvailableActions.SHOW_MARKET_VALUE_QUANTILE;
+    }
+
+
     /**
      * Displays the total market value per capita for properties in a specified ZIP Code.
      * @param scanner The scanner to read user input.
      */
     public void showTotalMarketValuePerCapita(Scanner scanner) {
+        String zipCode;
         try {
-            String zipCode = getParameter.getZipCode(scanner);
-            propertyDataProcessor.getTotalMarketValuePerCapita(zipCode);
+            zipCode = getParameter.getZipCode(scanner);
         } catch (Exception e) {
             System.out.println("Error: Unable to retrieve total market value per capita for ZIP Code. ");
-            logger.logEvent("Error displaying total market value per capita: " + e.getMessage());
+            logger.logEvent(Logger.Level.ERROR, "Error displaying total market value per capita: " + e.getMessage());
+            return;
+        }
+        showTotalMarketValuePerCapita(zipCode);
+    }
+
+
+    /**
+     * Displays the total market value per capita for properties in a ZIP Code given up front.
+     * @param zipCode The ZIP Code.
+     */
+    public void showTotalMarketValuePerCapita(String zipCode) {
+        try {
+            Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_TOTAL_MARKET_VALUE_PER_CAPITA);
+            snapshot.propertyDataProcessor.join().getTotalMarketValuePerCapita(zipCode);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve total market value per capita for ZIP Code. ");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying total market value per capita: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Displays the ZIP Codes with the highest or lowest values of a metric, asking for the metric, the order, the
+     * number of ZIP Codes and, for the vaccination metrics, the date.
+     * @param scanner The scanner to read user input.
+     */
+    public void showZipCodeRanking(Scanner scanner) {
+        ZipCodeMetric metric;
+        ZipCodeRanking.Order order;
+        int size;
+        String date = null;
+        try {
+            metric = getParameter.getRankingMetric(scanner);
+            order = getParameter.getRankingOrder(scanner);
+            size = getParameter.getRankingSize(scanner);
+            if (metric.requiresDate()) {
+                date = getParameter.getDate(scanner);
+            }
+        } catch (Exception e) {
+            System.out.println("Error: Unable to rank the ZIP Codes.");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying ZIP Code ranking: " + e.getMessage());
+            return;
+        }
+        showZipCodeRanking(metric, order, size, date);
+    }
+
+
+    /**
+     * Displays the ZIP Codes with the highest or lowest values of a metric, one per line with its value, best first.
+     * An invalid date is reported on standard error.
+     * @param metric The metric to rank by.
+     * @param order Whether the ZIP Codes with the highest or the lowest values are displayed.
+     * @param size The number of ZIP Codes to display.
+     * @param date The date in the format YYYY-MM-DD for the vaccination metrics; ignored for the others.
+     */
+    public void showZipCodeRanking(ZipCodeMetric metric, ZipCodeRanking.Order order, int size, String date) {
+        logger.logEvent(Logger.Level.AUDIT, "Ranking: " + metric.getName() + " " + order.name().toLowerCase() + " " + size
+                + (metric.requiresDate() ? " " + date : ""));
+        try {
+            List<ZipCodeRanking.Entry> ranking = getZipCodeRanking(metric, order, size, date);
+            if (ranking == null) {
+                System.err.println("Error: Invalid date: " + date);
+                return;
+            }
+            System.out.println("BEGIN OUTPUT");
+            if (ranking.isEmpty()) {
+                System.out.println("0");
+            }
+            for (ZipCodeRanking.Entry entry : ranking) {
+                System.out.println(entry.getZipCode() + " " + metric.format(entry.getValue()));
+                logger.logEvent(Logger.Level.DEBUG, () -> "Ranked " + metric.getName() + " for ZIP Code "
+                        + entry.getZipCode() + ": " + metric.format(entry.getValue()));
+            }
+            logger.logEvent(Logger.Level.INFO, () -> "Ranked " + ranking.size() + " ZIP Codes by " + metric.getName());
+            System.out.println("END OUTPUT");
+        } catch (Exception e) {
+            System.out.println("Error: Unable to rank the ZIP Codes. Please make sure the "
+                    + String.join(", ", metric.getRequiredParameters()) + " data is provided.");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying ZIP Code ranking: " + e.getMessage());
         }
     }
 
 
+    /**
+     * Displays the vaccinations per capita of each ZIP Code on every day of a date range, asking for the
+     * vaccination type, the first and last dates and the ZIP Codes.
+     * @param scanner The scanner to read user input.
+     */
+    public void showVaccinationSeries(Scanner scanner) {
+        String vaccinationType;
+        String startDate;
+        String endDate;
+        List<String> zipCodes;
+        try {
+            vaccinationType = getParameter.getVaccinationType(scanner);
+            startDate = getParameter.getDate(scanner);
+            endDate = getParameter.getDate(scanner);
+            zipCodes = getParameter.getZipCodes(scanner);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve the vaccination series.");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying vaccination series: " + e.getMessage());
+            return;
+        }
+        showVaccinationSeries(vaccinationType, startDate, endDate, zipCodes);
+    }
+
+
+    /**
+     * Displays the vaccinations per capita of each ZIP Code on every day of a date range given up front, one
+     * "date ZIP-Code value" line per record, in order of date and then of ZIP Code. The lines are written as
+     * they are calculated. An invalid vaccination type or date range is reported on standard error.
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param startDate The first date of the range in the format YYYY-MM-DD.
+     * @param endDate The last date of the range in the format YYYY-MM-DD, included.
+     * @param zipCodes The ZIP Codes to display, or null for all of them.
+     */
+    public void showVaccinationSeries(String vaccinationType, String startDate, String endDate, Collection<String> zipCodes) {
+        logger.logEvent(Logger.Level.AUDIT, "Vaccination series: " + vaccinationType + " " + startDate + " " + endDate
+                + (zipCodes == null ? "" : " " + String.join(" ", zipCodes)));
+        // a series can have millions of lines, so they are buffered rather than flushed one by one
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, SERIES_BUFFER_SIZE), false);
+        try {
+            Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_VACCINATION_SERIES);
+            long[] points = new long[1];
+            StringBuilder line = new StringBuilder();
+            // nothing is streamed for an invalid query, so the output starts with the first record
+            boolean valid = snapshot.vaccinationDataProcessor.join().streamVaccinationsPerCapita(vaccinationType, startDate, endDate,
+                    zipCodes, (date, zipCode, vaccinationsPerCapita) -> {
+                        if (points[0]++ == 0) {
+                            out.println("BEGIN OUTPUT");
+                        }
+                        line.setLength(0);
+                        line.append(date).append(' ').append(zipCode).append(' ');
+                        out.println(appendFourDecimals(line, vaccinationsPerCapita));
+                    });
+            out.flush();
+            if (!valid) {
+                System.err.println("Error: Invalid vaccination type or date range: " + vaccinationType + " " + startDate + " " + endDate);
+                return;
+            }
+            if (points[0] == 0) {
+                System.out.println("BEGIN OUTPUT");
+                System.out.println("0");
+            }
+            System.out.println("END OUTPUT");
+            logger.logEvent(Logger.Level.INFO, () -> "Vaccination series from " + startDate + " to " + endDate + ": " + points[0] + " records");
+        } catch (Exception e) {
+            out.flush();
+            System.out.println("Error: Unable to retrieve the vaccination series.");
+            logger.logEvent(Logger.Level.ERROR, "Error displaying vaccination series: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Appends a value with four decimal places, as {@code String.format(Locale.ROOT, "%.4f", value)} would, but
+     * without parsing a format for every value. Values whose rounding is not clear-cut from the scaled double,
+     * because they are halfway between two results or too large, are left to String.format, which is given the
+     * root locale so that they get the same decimal point as the others whatever the default locale.
+     *
+     * @param line The line to append to.
+     * @param value The value.
+     * @return The line.
+     */
+    private static StringBuilder appendFourDecimals(StringBuilder line, double value) {
+        double scaled = value * 10000;
+        double fraction = scaled - Math.floor(scaled);
+        if (!(value >= 0 && scaled < 1e15) || Math.abs(fraction - 0.5) < 1e-6) {
+            return line.append(String.format(Locale.ROOT, "%.4f", value));
+        }
+        long rounded = Math.round(scaled);
+        line.append(rounded / 10000).append('.');
+        long decimals = rounded % 10000;
+        for (long digit = 1000; digit > decimals && digit > 1; digit /= 10) {
+            line.append('0');
+        }
+        return line.append(decimals);
+    }
+
+
     /**
      * Displays a list of the currently available actions.
      */
@@ -108,9 +643,9 @@ public class DataProcessor {
         System.out.println(availableActions[1].getActionNumber());
         logger.logEvent("Available actions: " + availableActions[0].getActionNumber()) ;
         logger.logEvent(String.valueOf(availableActions[1].getActionNumber())) ;
-        // Display 2-6 only if the required parameters are provided
-        if (populationDataProcessor != null && vaccinationDataProcessor != null && propertyDataProcessor != null) {
-            for (int i = 2; i < Math.min(availableActions.length, 7); i++) {
+        // Display the other actions only if the datasets they require are provided
+        for (int i = 2; i < availableActions.length; i++) {
+            if (isListed(availableActions[i])) {
                 System.out.print(availableActions[i].getActionNumber() + " ");
                 logger.logEvent(String.valueOf(availableActions[i].getActionNumber()));
                 System.out.println();
@@ -121,19 +656,37 @@ public class DataProcessor {
     }
 
 
+    /**
+     * @return Whether an action is listed as available: a ranking when the datasets of at least one of its
+     * metrics are provided, and any other action when the datasets it requires are.
+     */
+    private boolean isListed(AvailableActions action) {
+        if (action == AvailableActions.SHOW_ZIP_CODE_RANKING) {
+            for (ZipCodeMetric metric : ZipCodeMetric.values()) {
+                if (isAvailable(metric)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return isAvailable(action);
+    }
+
+
     /**
      * Custom Feature: Displays the correlation of full vaccinations rate and average market value of a region (across all zip code given)
      */
     public void showFullyVaxRateToHouseValueCorrelation() {
         try {
+            Snapshot snapshot = awaitDatasets(AvailableActions.SHOW_CUSTOM_FEATURE);
             System.out.println("BEGIN OUTPUT");
 
             // Total number of fully vaccinated individuals
-            int totalFullyVaccinated = vaccinationDataProcessor.showTotalFullyVaccinatedByZipCode();
+            int totalFullyVaccinated = snapshot.vaccinationDataProcessor.join().showTotalFullyVaccinatedByZipCode();
             System.out.println("Total number of fully vaccinated individuals: " + totalFullyVaccinated);
 
             // Total population
-            int totalPopulation = populationDataProcessor.getTotalPopulation();
+            int totalPopulation = snapshot.populationDataProcessor.join().getTotalPopulation();
             System.out.println("Total Population: " + totalPopulation);
 
             // Vaccination rate calculation
@@ -141,7 +694,7 @@ public class DataProcessor {
             System.out.println("Total fully vaccination rate (%): " + String.format("%.2f", totalVaxRate));
 
             // Average market value across all ZIP codes
-            double averageMarketValue = propertyDataProcessor.showAverageMarketValue();
+            double averageMarketValue = snapshot.propertyDataProcessor.join().showAverageMarketValue();
             System.out.println("Average market value of all properties: " + String.format("%.2f", averageMarketValue));
 
             // display the correlation
@@ -0,0 +1,431 @@
+package edu.upenn.cit594.processor;
+
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Watches the files of the datasets with a {@link WatchService} and reloads a dataset when its file changes, so
+ * that a long-running program picks up new data without being restarted.
+ *
+ * When a file has only grown, and the end of the part that was read before is unchanged, just the rows appended
+ * since then are parsed and added to a copy of the dataset; only the cached results the new rows affect are
+ * dropped. A file that was replaced or rewritten, or one that cannot be read from the middle such as a JSON file,
+ * is loaded again in full. A change to the population file also moves the vaccination and property processors
+ * onto the new population, sharing their data with the old processors.
+ *
+ * The new processors are swapped into the {@link DataProcessor} in one step once they are complete, so a query
+ * never sees a half-loaded dataset, and queries that are running at the time finish on the old data. Changes are
+ * handled on a single daemon thread, in batches that start once the files have been quiet for
+ * {@link #SETTLE_MILLIS}; an unfinished last row is left for the next change.
+ */
+public class DatasetWatcher implements AutoCloseable {
+    static final long SETTLE_MILLIS = 500;
+    private static final int MAX_RELOADS = 3;  // full loads of a file in one batch while it keeps changing
+    private static final int FINGERPRINT_SIZE = 4096;  // bytes at the end of the read part of a file that are checked
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private static final String POPULATION = "population";
+    private static final String COVID = "covid";
+    private static final String PROPERTIES = "properties";
+
+    /**
+     * What is known about the part of a watched file that has been read.
+     */
+    private static final class FileState {
+        final long size;            // the number of bytes that were read
+        final long lastModified;    // the modification time of the file when it was read, in milliseconds
+        final long fingerprint;     // CRC32 of the last FINGERPRINT_SIZE bytes that were read
+        final boolean endsWithRow;  // whether the bytes that were read end with a newline
+
+        private FileState(long size, long lastModified, long fingerprint, boolean endsWithRow) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+            this.endsWithRow = endsWithRow;
+        }
+
+        /**
+         * Reads the state of the first {@code size} bytes of a file.
+         */
+        static FileState of(Path file, long size, long lastModified) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer tail = readTail(channel, size);
+                CRC32 crc = new CRC32();
+                crc.update(tail.duplicate());
+                boolean endsWithRow = tail.limit() > 0 && tail.get(tail.limit() - 1) == '\n';
+                return new FileState(size, lastModified, crc.getValue(), endsWithRow);
+            }
+        }
+
+        /**
+         * @return Whether the first {@code size} bytes of the file still end the way they did when they were read.
+         */
+        boolean isPrefixOf(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                CRC32 crc = new CRC32();
+                crc.update(readTail(channel, size));
+                return crc.getValue() == fingerprint;
+            }
+        }
+
+        private static ByteBuffer readTail(FileChannel channel, long size) throws IOException {
+            long start = Math.max(0, size - FINGERPRINT_SIZE);
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - start));
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, start + tail.position()) < 0) {
+                    break;
+                }
+            }
+            tail.flip();
+            return tail;
+        }
+    }
+
+    /**
+     * Creates a processor from another one and the rows in a byte range of its file, such as
+     * {@link PopulationDataProcessor#withAppendedRows(long, long)}.
+     */
+    private interface Appender<T> {
+        T withAppendedRows(T processor, long start, long end) throws CSVFormatException, IOException;
+    }
+
+    /**
+     * Creates a processor that loads the whole file of another one again, such as
+     * {@link PopulationDataProcessor#reload()}.
+     */
+    private interface Reloader<T> {
+        T reload(T processor) throws CSVFormatException, IOException;
+    }
+
+    Logger logger = Logger.getInstance();
+
+    private final DataProcessor dataProcessor;
+    private final Map<String, Path> files = new LinkedHashMap<>();  // Watched file by dataset name
+    private final Map<String, FileState> states = new HashMap<>();  // Read part of each file; only used by the thread
+    private final WatchService watchService;
+    private final Thread thread;
+    private final long createdAt;  // files modified since then may have changed while they were first loaded
+
+    /**
+     * Creates a watcher for the files of the datasets of a data processor. The files are watched from the start,
+     * but changes are only handled once the datasets have first loaded and {@link #start()} has been called.
+     *
+     * @param dataProcessor The data processor whose datasets are reloaded.
+     * @param populationFilePath The population file, or null if there is none.
+     * @param covidFilePath The vaccination file, or null if there is none.
+     * @param propertiesFilePath The property file, or null if there is none.
+     * @throws IOException if the directories of the files cannot be watched.
+     */
+    public DatasetWatcher(DataProcessor dataProcessor, String populationFilePath, String covidFilePath,
+                          String propertiesFilePath) throws IOException {
+        this.dataProcessor = dataProcessor;
+        this.createdAt = System.currentTimeMillis();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            watch(POPULATION, populationFilePath);
+            watch(COVID, covidFilePath);
+            watch(PROPERTIES, propertiesFilePath);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "dataset-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Watches the directory of a dataset file. A file is replaced by creating it, often by moving a new file into
+     * place, and appended to by modifying it, so both kinds of event are watched.
+     */
+    private void watch(String dataset, String filePath) throws IOException {
+        if (filePath == null) {
+            return;
+        }
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        // registering a directory again returns the same key, so files in one directory share it
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        files.put(dataset, file);
+    }
+
+    /**
+     * Starts handling changes on a background daemon thread.
+     */
+    public void start() {
+        thread.start();
+        logger.logEvent(Logger.Level.INFO, () -> "Watching for changes to " + files.values());
+    }
+
+    /**
+     * Stops watching. A reload that is running is not waited for.
+     */
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+
+    /**
+     * Waits for the datasets to load, then handles the changes to their files until the watcher is closed.
+     */
+    private void run() {
+        Set<String> changed = new LinkedHashSet<>();
+        DataProcessor.Snapshot snapshot = dataProcessor.getSnapshot();
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            String dataset = entry.getKey();
+            Path file = entry.getValue();
+            try {
+                snapshot.get(dataset).join();
+            } catch (RuntimeException e) {
+                continue;  // the queries that need the dataset report the failure; it cannot be reloaded
+            }
+            try {
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                if (lastModified >= createdAt) {
+                    changed.add(dataset);  // it may have changed while it was loading, so it is loaded again in full
+                } else {
+                    states.put(dataset, FileState.of(file, Files.size(file), lastModified));
+                }
+            } catch (IOException e) {
+                changed.add(dataset);
+            }
+        }
+
+        try {
+            while (true) {
+                if (!changed.isEmpty()) {
+                    reload(changed);
+                    changed.clear();
+                }
+                WatchKey key = watchService.take();
+                // gather the events until the files have been quiet for a while, so a batch of writes is handled once
+                do {
+                    collectChanges(key, changed);
+                } while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the watcher was closed
+        }
+    }
+
+    /**
+     * Adds the datasets whose files an event of a watch key is about to a set of changed datasets.
+     */
+    private void collectChanges(WatchKey key, Set<String> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(files.keySet());  // events were lost, so any of the files may have changed
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            files.forEach((dataset, watched) -> {
+                if (watched.equals(file)) {
+                    changed.add(dataset);
+                }
+            });
+        }
+        key.reset();
+    }
+
+    /**
+     * Makes new processors for the changed datasets and swaps them into the data processor together.
+     *
+     * @param changed The names of the datasets whose files may have changed.
+     */
+    private void reload(Set<String> changed) {
+        DataProcessor.Snapshot snapshot = dataProcessor.getSnapshot();
+        CompletableFuture<PopulationDataProcessor> population = snapshot.populationDataProcessor;
+        CompletableFuture<VaccinationDataProcessor> vaccination = snapshot.vaccinationDataProcessor;
+        CompletableFuture<PropertyDataProcessor> property = snapshot.propertyDataProcessor;
+        boolean updated = false;
+
+        if (changed.contains(POPULATION)) {
+            PopulationDataProcessor reloaded = update(POPULATION, population,
+                    PopulationDataProcessor::withAppendedRows, PopulationDataProcessor::reload);
+            if (reloaded != null) {
+                population = CompletableFuture.completedFuture(reloaded);
+                // the other processors keep their data but answer the per capita queries from the new population
+                if (loaded(vaccination) != null) {
+                    vaccination = CompletableFuture.completedFuture(vaccination.join().withPopulation(population));
+                }
+                if (loaded(property) != null) {
+                    property = CompletableFuture.completedFuture(property.join().withPopulation(population));
+                }
+                updated = true;
+            }
+        }
+        if (changed.contains(COVID)) {
+            VaccinationDataProcessor reloaded = update(COVID, vaccination,
+                    VaccinationDataProcessor::withAppendedRows, VaccinationDataProcessor::reload);
+            if (reloaded != null) {
+                vaccination = CompletableFuture.completedFuture(reloaded);
+                updated = true;
+            }
+        }
+        if (changed.contains(PROPERTIES)) {
+            PropertyDataProcessor reloaded = update(PROPERTIES, property,
+                    PropertyDataProcessor::withAppendedRows, PropertyDataProcessor::reload);
+            if (reloaded != null) {
+                property = CompletableFuture.completedFuture(reloaded);
+                updated = true;
+            }
+        }
+
+        if (updated) {
+            dataProcessor.setSnapshot(new DataProcessor.Snapshot(population, vaccination, property));
+            Set<String> datasets = new LinkedHashSet<>(files.keySet());
+            datasets.retainAll(changed);
+            logger.logEvent(Logger.Level.INFO, "Datasets updated: " + String.join(", ", datasets));
+        }
+    }
+
+    /**
+     * Makes a new processor for a dataset whose file may have changed: from the appended rows if the file has only
+     * grown, or else by loading the whole file again.
+     *
+     * @param dataset The name of the dataset.
+     * @param current The current processor of the dataset.
+     * @param appender Makes a processor from the current one and the appended rows.
+     * @param reloader Makes a processor that loads the whole file again.
+     * @return The new processor, or null if the file has not changed, has no complete new row yet, or cannot be read.
+     */
+    private <T> T update(String dataset, CompletableFuture<T> current, Appender<T> appender, Reloader<T> reloader) {
+        T processor = loaded(current);
+        if (processor == null) {
+            logger.logEvent(Logger.Level.WARN, "The " + dataset + " data did not load, so it cannot be reloaded");
+            return null;
+        }
+        Path file = files.get(dataset);
+        FileState state = states.get(dataset);
+        try {
+            long size = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            if (state != null && size == state.size && lastModified == state.lastModified) {
+                return null;
+            }
+
+            if (state != null && state.endsWithRow && size > state.size && state.isPrefixOf(file)) {
+                long end = endOfLastRow(file, state.size, size);
+                if (end == state.size) {
+                    return null;  // the first new row is not finished yet
+                }
+                T appended = end < 0 ? null : appender.withAppendedRows(processor, state.size, end);
+                if (appended != null) {
+                    states.put(dataset, FileState.of(file, end, lastModified));
+                    logger.logEvent(Logger.Level.INFO, "Appended rows read from " + file + ": bytes " + state.size + " to " + end);
+                    return appended;
+                }
+            }
+
+            // the file was replaced or rewritten, or cannot be read from the middle: load all of it again, and
+            // once more if it was written to while it was loading, up to MAX_RELOADS times
+            for (int attempt = 1; ; attempt++) {
+                T reloaded = reloader.reload(processor);
+                long sizeAfter = Files.size(file);
+                long lastModifiedAfter = Files.getLastModifiedTime(file).toMillis();
+                if (sizeAfter == size && lastModifiedAfter == lastModified) {
+                    states.put(dataset, FileState.of(file, size, lastModified));
+                    logger.logEvent(Logger.Level.INFO, "Reloaded " + file);
+                    return reloaded;
+                }
+                if (attempt == MAX_RELOADS) {
+                    // it is not known how much of the file the last load read, so its next change is loaded in
+                    // full again; the writes it missed are queued as changes for the next batch
+                    states.remove(dataset);
+                    logger.logEvent(Logger.Level.WARN, "Reloaded " + file + ", which kept changing while it was loading");
+                    return reloaded;
+                }
+                size = sizeAfter;
+                lastModified = lastModifiedAfter;
+            }
+        } catch (NoSuchFileException e) {
+            // a file that is replaced may be missing for a moment; its creation is another change
+            logger.logEvent(Logger.Level.WARN, "The " + dataset + " file " + file + " is missing");
+            return null;
+        } catch (Exception e) {
+            System.err.println("Error reloading " + dataset + " data from " + file + ": " + e.getMessage());
+            logger.logEvent(Logger.Level.ERROR, "Error reloading " + dataset + " data from " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The processor, or null if it is missing or failed to load.
+     */
+    private static <T> T loaded(CompletableFuture<T> processor) {
+        if (processor == null || !processor.isDone() || processor.isCompletedExceptionally()) {
+            return null;
+        }
+        return processor.join();
+    }
+
+    /**
+     * Finds the end of the last complete row in a byte range of a CSV file that starts on a row boundary: just
+     * after its last newline that is outside quotes. Quote state is tracked by toggling on every double quote, as
+     * in {@link edu.upenn.cit594.datamanagement.ParallelCSVReader}.
+     *
+     * A stray quote in a malformed row inverts the quote state for the rest of the range. The newlines after it then
+     * look quoted, so the range seems to end inside a quoted field that spans lines; as that cannot be told apart
+     * from such a field still being written, the whole file is read again instead, which stops at the malformed
+     * row as any full load would. A row end that falls inside a quoted field instead makes the appended rows fail
+     * to parse, which also leads to a full load.
+     *
+     * @return The offset just past the last complete row, {@code start} if the range has none, or -1 if the range
+     * ends inside a quoted field that has a newline in it.
+     */
+    private static long endOfLastRow(Path file, long start, long end) throws IOException {
+        long rowEnd = start;
+        boolean inQuotes = false;
+        boolean quotedNewline = false;  // whether a newline has been seen in quotes since the last row end
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n') {
+                        if (inQuotes) {
+                            quotedNewline = true;
+                        } else {
+                            rowEnd = position + i + 1;
+                            quotedNewline = false;
+                        }
+                    }
+                }
+                position += read;
+            }
+        }
+        return inQuotes && quotedNewline ? -1 : rowEnd;
+    }
+}
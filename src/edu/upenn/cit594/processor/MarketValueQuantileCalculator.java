@@ -0,0 +1,20 @@
+package edu.upenn.cit594.processor;
+
+/**
+ * Calculator for estimating a quantile, such as the median, of the market value of properties.
+ */
+public class MarketValueQuantileCalculator implements PropertyQuantileCalculator {
+    /**
+     * Estimates a quantile of the market value of the properties in a ZIP code.
+     * Only considers properties with a valid (non-NaN) market value.
+     *
+     * @param properties The store holding the property data.
+     * @param zipCode    The ZIP code to estimate the quantile for.
+     * @param quantile   The quantile, from 0 to 1.
+     * @return The estimated quantile of the market value, or 0.0 if there are no valid properties.
+     */
+    @Override
+    public double calculateQuantile(PropertyStore properties, int zipCode, double quantile) {
+        return properties.quantile(PropertyStore.Column.MARKET_VALUE, zipCode, quantile);
+    }
+}
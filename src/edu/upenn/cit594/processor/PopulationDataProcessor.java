@@ -1,105 +1,145 @@
-package edu.upenn.cit594.processor;
-import edu.upenn.cit594.datamanagement.CSVFormatException;
-import edu.upenn.cit594.datamanagement.DataReader;
-import edu.upenn.cit594.datamanagement.Population;
-import edu.upenn.cit594.logging.Logger;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-/**
- * Processes population data, providing general functionalities to get total population and
- * population by ZIP code.
- */
-public class PopulationDataProcessor {
-    Logger logger = Logger.getInstance();
-
-    private final DataReader<Population> populationReader;
-    private final String populationFilePath;
-    private List<Population> populations;  // Cache for populations
-    private Map<String, Integer> populationCache;  // Cache for population by ZIP Code
-
-
-    /**
-     * Construct a PopulationDataProcessor with a given data reader and file path.
-     *
-     * @param populationReader The data reader for population data.
-     * @param populationFilePath The file path for population data.
-     */
-    public PopulationDataProcessor(DataReader<Population> populationReader, String populationFilePath) throws CSVFormatException, IOException {
-        this.populationReader = populationReader;
-        this.populationFilePath = populationFilePath;
-        this.populations = populationReader.readData(populationFilePath);
-        initializeCache();
-        logger.logEvent("Population data loaded from " + populationFilePath);
-    }
-
-
-    /**
-     * Initializes the cache with population data for each ZIP code.
-     */
-    private void initializeCache() {
-        populationCache = new HashMap<>();
-        for (Population populationData : populations) {
-            populationCache.put(populationData.getZipCode(), populationData.getPopulation());
-        }
-    }
-
-
-    private List<Population> getPopulations() {
-        return populations;
-    }
-
-
-    /**
-     * Gets the total population from all ZIP codes.
-     *
-     * @return The total population.
-     */
-    public int getTotalPopulation() {
-        try {
-            int totalPopulation = 0;
-
-            for (Population populationData : getPopulations()) {
-                totalPopulation += populationData.getPopulation();
-            }
-
-            return totalPopulation;
-        } catch (Exception e) {
-            System.out.println("Error: Unable to retrieve total population. Please make sure the population file is provided.");
-            return 0;  // Return 0 or handle the error as needed
-        }
-    }
-
-
-    /**
-     * Gets the population for a specific ZIP code.
-     *
-     * @param zipCode The ZIP code for which the population is required.
-     * @return The population of the specified ZIP code, or 0 if not found.
-     */
-    public int getPopulationByZipCode(String zipCode) {
-        try {
-            // Check if the result is already in the cache
-            if (populationCache.containsKey(zipCode)) {
-                return populationCache.get(zipCode);
-            }
-
-            // If not, find the population for the specified ZIP Code
-            for (Population populationData : getPopulations()) {
-                if (populationData.getZipCode().equals(zipCode)) {
-                    // Store the result in the cache and return
-                    populationCache.put(zipCode, populationData.getPopulation());
-                    return populationData.getPopulation();
-                }
-            }
-
-            // If ZIP Code not found, return 0 or handle as needed
-            return 0;
-        } catch (Exception e) {
-            System.out.println("Error: Unable to retrieve population for ZIP Code " + zipCode);
-            return 0;  // Return 0 or handle the error as needed
-        }
-    }
-}
+package edu.upenn.cit594.processor;
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.datamanagement.DataReader;
+import edu.upenn.cit594.datamanagement.Population;
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+import edu.upenn.cit594.logging.Logger;
+import java.io.IOException;
+
+/**
+ * Processes population data, providing general functionalities to get total population and
+ * population by ZIP code. The data is loaded by the constructor and never changes afterwards, so a loaded
+ * processor can answer queries from several threads at once. When the population file changes, a new
+ * processor is made with {@link #withAppendedRows(long, long)} or {@link #reload()} instead.
+ */
+public class PopulationDataProcessor {
+    Logger logger = Logger.getInstance();
+
+    private final DataReader<Population> populationReader;
+    private final String populationFilePath;
+    private int totalPopulation;  // Sum of the population of every record
+    private final int[] populationByZipId = new int[ZipCodeDictionary.SIZE];  // Population by ZIP Code id, 0 if unknown
+
+
+    /**
+     * Construct a PopulationDataProcessor with a given data reader and file path.
+     * The records are aggregated into the total and the per-ZIP Code table as they are read, and are not kept.
+     *
+     * @param populationReader The data reader for population data.
+     * @param populationFilePath The file path for population data.
+     */
+    public PopulationDataProcessor(DataReader<Population> populationReader, String populationFilePath) throws CSVFormatException, IOException {
+        this.populationReader = populationReader;
+        this.populationFilePath = populationFilePath;
+        populationReader.streamData(populationFilePath, this::addPopulation);
+        logger.logEvent(Logger.Level.AUDIT, "Population data loaded from " + populationFilePath);
+    }
+
+
+    /**
+     * Construct a copy of a population processor, with the same reader, file, total and table.
+     *
+     * @param populationDataProcessor The processor to copy.
+     */
+    private PopulationDataProcessor(PopulationDataProcessor populationDataProcessor) {
+        this.populationReader = populationDataProcessor.populationReader;
+        this.populationFilePath = populationDataProcessor.populationFilePath;
+        this.totalPopulation = populationDataProcessor.totalPopulation;
+        System.arraycopy(populationDataProcessor.populationByZipId, 0, populationByZipId, 0, populationByZipId.length);
+    }
+
+
+    /**
+     * Creates a new processor with the data of this one and the records in a byte range of the population file,
+     * such as the rows appended to it. A record for a ZIP code that is already known replaces its population in
+     * the table, while the total adds up every record, the same as when the whole file is loaded.
+     * This processor is not changed.
+     *
+     * @param start The offset of the first appended byte.
+     * @param end The offset just past the last appended row.
+     * @return The new processor, or null if the reader cannot read part of the file.
+     */
+    public PopulationDataProcessor withAppendedRows(long start, long end) throws CSVFormatException, IOException {
+        PopulationDataProcessor appended = new PopulationDataProcessor(this);
+        if (!populationReader.streamAppended(populationFilePath, start, end, appended::addPopulation)) {
+            return null;
+        }
+        logger.logEvent(Logger.Level.AUDIT, "Population data appended from " + populationFilePath);
+        return appended;
+    }
+
+
+    /**
+     * Creates a new processor that loads the whole population file again. This processor is not changed.
+     *
+     * @return The new processor.
+     */
+    public PopulationDataProcessor reload() throws CSVFormatException, IOException {
+        return new PopulationDataProcessor(populationReader, populationFilePath);
+    }
+
+
+    /**
+     * Adds one population record to the total and to the table of population by ZIP code.
+     *
+     * @param populationData The population record.
+     */
+    private void addPopulation(Population populationData) {
+        totalPopulation += populationData.getPopulation();
+        if (populationData.getZipId() != ZipCodeDictionary.NO_ZIP_CODE) {
+            populationByZipId[populationData.getZipId()] = populationData.getPopulation();
+        }
+    }
+
+
+    /**
+     * Gets the total population from all ZIP codes.
+     *
+     * @return The total population.
+     */
+    public int getTotalPopulation() {
+        return totalPopulation;
+    }
+
+
+    /**
+     * Gets the population for a specific ZIP code.
+     *
+     * @param zipCode The ZIP code for which the population is required.
+     * @return The population of the specified ZIP code, or 0 if not found.
+     */
+    public int getPopulationByZipCode(String zipCode) {
+        try {
+            return getPopulationByZipId(ZipCodeDictionary.encode(zipCode));
+        } catch (Exception e) {
+            System.out.println("Error: Unable to retrieve population for ZIP Code " + zipCode);
+            return 0;  // Return 0 or handle the error as needed
+        }
+    }
+
+
+    /**
+     * Gets the population for a ZIP code id. Unknown ZIP codes are answered in constant time like any other.
+     *
+     * @param zipId The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @return The population of the ZIP code, or 0 if not found.
+     */
+    public int getPopulationByZipId(int zipId) {
+        return zipId == ZipCodeDictionary.NO_ZIP_CODE ? 0 : populationByZipId[zipId];
+    }
+
+
+    /**
+     * Offers the population of every ZIP code to a ranking, in one pass over the table of population by ZIP code.
+     * ZIP codes without a population are left out.
+     *
+     * @param ranking The ranking to offer the populations to.
+     */
+    public void rankZipCodes(ZipCodeRanking ranking) {
+        for (int zipId = 0; zipId < populationByZipId.length; zipId++) {
+            if (populationByZipId[zipId] > 0) {
+                ranking.offer(zipId, populationByZipId[zipId]);
+            }
+        }
+    }
+}
@@ -1,19 +1,16 @@
 package edu.upenn.cit594.processor;
 
-import edu.upenn.cit594.datamanagement.Property;
-
-import java.util.List;
-
 /**
- * Interface for calculating the average value of a specific metric for a list of properties.
+ * Interface for calculating the average value of a specific metric for the properties in a ZIP code.
  */
 public interface PropertyAverageCalculator {
     /**
-     * Calculates the average value for a given metric from a list of Property objects.
+     * Calculates the average value for a given metric over the properties of one ZIP code.
      * The specific metric to be averaged is determined by the implementing class.
      *
-     * @param properties The list of Property objects to be used for the calculation.
-     * @return The average value of the chosen metric for the given properties.
+     * @param properties The store holding the property data.
+     * @param zipCode    The id of the ZIP code in the {@link edu.upenn.cit594.datamanagement.ZipCodeDictionary}.
+     * @return The average value of the chosen metric for the properties in the ZIP code.
      */
-    double calculateAverage(List<Property> properties);
+    double calculateAverage(PropertyStore properties, int zipCode);
 }
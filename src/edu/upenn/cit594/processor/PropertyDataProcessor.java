@@ -1,172 +1,333 @@
-package edu.upenn.cit594.processor;
-import edu.upenn.cit594.datamanagement.CSVFormatException;
-import edu.upenn.cit594.datamanagement.DataReader;
-import edu.upenn.cit594.datamanagement.Property;
-import edu.upenn.cit594.logging.Logger;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
-/**
- * Processor for handling property-related data and calculations.
- */
-public class PropertyDataProcessor {
-    Logger logger = Logger.getInstance();
-
-    private PropertyAverageCalculator calculator;
-    private DataReader<Property> propertyDataReader;  // Updated to use DataReader interface
-    private PopulationDataProcessor populationDataProcessor;
-    private List<Property> propertyData;  // Add a member variable to store the property data
-    String propertyFilePath;
-    //Use a map to store calculated average property metrics for each ZIP Code
-    private Map<String, Double> averageMetricCache  = new HashMap<>();
-
-
-    /**
-     * Constructor to initialize the data and calculator.
-     *
-     * @param propertyFilePath Path to the property data file.
-     * @param propertyDataReader Data reader for property data.
-     * @param populationDataProcessor Processor for population data.
-     */
-    public PropertyDataProcessor(String propertyFilePath, DataReader<Property> propertyDataReader, PopulationDataProcessor populationDataProcessor) throws CSVFormatException, IOException {
-        // Use CsvPropertyReader to read property data from the CSV file
-        this.populationDataProcessor = populationDataProcessor;
-        this.propertyDataReader = propertyDataReader;
-        this.propertyFilePath = propertyFilePath;
-        this.propertyData = propertyDataReader.readData(propertyFilePath);
-        logger.logEvent("Property data loaded from " + propertyFilePath);
-    }
-
-
-    /**
-     * Shows the average property metric for a given ZIP code.
-     *
-     * @param zipCode The ZIP code for which to calculate the average.
-     */
-    public void showAveragePropertyMetric(String zipCode) {
-        try {
-            double averageMetric = getOrCalculateAveragePropertyMetric(zipCode);
-            System.out.println("BEGIN OUTPUT");
-            logger.logEvent("Average property metric for ZIP Code " + zipCode + ": " + (int)averageMetric);
-            System.out.println((int) averageMetric); // Truncate to integer
-            System.out.println("END OUTPUT");
-        } catch (Exception e) {
-            System.out.println("Error: Unable to calculate average property metric. Please make sure the property data is provided.");
-        }
-    }
-
-
-    /**
-     * Calculates and displays the average property metric for a specified ZIP code.
-     * The calculation is based on the current calculator set in the processor.
-     *
-     * @param zipCode The ZIP code for which the average metric is to be calculated.
-     */
-    private double getOrCalculateAveragePropertyMetric(String zipCode) {
-        String calculatorName = calculator.getClass().getSimpleName(); // Get the class name of the calculator
-        String cacheKey = calculatorName + ":" + zipCode; // Combine calculator name and zip code as the cache key
-
-        if (averageMetricCache.containsKey(cacheKey)) {
-            return averageMetricCache.get(cacheKey);
-        } else {
-            double averageMetric = calculateAveragePropertyMetric(zipCode);
-            averageMetricCache.put(cacheKey, averageMetric);
-            return averageMetric;
-        }
-    }
-
-
-    /**
-     * Calculates the average property metric for the specified ZIP code.
-     * The specific metric is determined by the currently set calculator.
-     *
-     * @param zipCode The ZIP code for which the average metric is to be calculated.
-     * @return The calculated average metric value.
-     */
-    private double calculateAveragePropertyMetric(String zipCode) {
-        List<Property> propertiesInZipCode = propertyData.stream()
-                .filter(p -> p.getZipCode().equals(zipCode))
-                .collect(java.util.stream.Collectors.toList());
-
-        return calculator.calculateAverage(propertiesInZipCode);
-    }
-
-
-    /**
-     * Calculates and displays the total market value per capita for properties in a specified ZIP code.
-     * The calculation considers the population of the ZIP code and the total market value of properties.
-     *
-     * @param zipCode The ZIP code for which the market value per capita is to be calculated.
-     */
-    public void getTotalMarketValuePerCapita(String zipCode) {
-        try {
-            // Get the population for the specified ZIP Code
-            int population = populationDataProcessor.getPopulationByZipCode(zipCode);
-
-            if (population == 0) {
-                System.out.println(0);  // ZIP Code not found or population is 0
-                return;
-            }
-
-            // Filter properties by the specified ZIP Code
-            List<Property> propertiesInZipCode = propertyData.stream()
-                    .filter(property -> property.getZipCode().equals(zipCode))
-                    .collect(Collectors.toList());
-
-            if (propertiesInZipCode.isEmpty()) {
-                System.out.println(0);  // No properties found for the ZIP Code
-                return;
-            }
-
-            // Calculate total market value for the ZIP Code
-            double totalMarketValue = propertiesInZipCode.stream()
-                    .filter(property -> !Double.isNaN(property.getMarketValue()))
-                    .mapToDouble(Property::getMarketValue)
-                    .sum();
-
-            // Calculate total market value per capita
-            double marketValuePerCapita = totalMarketValue / population;
-
-            // Return the truncated integer value
-            System.out.println("BEGIN OUTPUT");
-            logger.logEvent("Total Market Value Per Capita for ZIP Code " + zipCode + ": " + (int)marketValuePerCapita);
-            System.out.println((int) marketValuePerCapita); // Truncate to integer
-            System.out.println("END OUTPUT");
-//            logger.logEvent("Total Market Value Per Capita for ZIP Code " + zipCode + ": " + marketValuePerCapita);
-        } catch (Exception e) {
-            System.out.println("Error: Unable to calculate total market value per capita.");
-        }
-    }
-
-    public void setCalculator(PropertyAverageCalculator calculator) {
-        this.calculator = calculator;
-    }
-
-
-    /**
-     * Displays the average market value of properties across all properties in the area.
-     */
-    public double showAverageMarketValue() {
-        // Sum the market values for all properties
-        double totalMarketValue = propertyData.stream()
-                .filter(property -> !Double.isNaN(property.getMarketValue()))
-                .mapToDouble(Property::getMarketValue)
-                .sum();
-
-        // Count the total number of properties
-        long totalNumberOfProperties = propertyData.stream()
-                .filter(property -> !Double.isNaN(property.getMarketValue()))
-                .count();
-
-        // Calculate the average market value across all properties
-        double averageMarketValue = totalNumberOfProperties > 0 ? totalMarketValue / totalNumberOfProperties : 0;
-
-        // Display the result
-        logger.logEvent("Average market value of properties: " + averageMarketValue);
-        return averageMarketValue;
-    }
-
-}
+package edu.upenn.cit594.processor;
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.datamanagement.DataReader;
+import edu.upenn.cit594.datamanagement.Property;
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+import edu.upenn.cit594.logging.Logger;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processor for handling property-related data and calculations.
+ * The property data is loaded by the constructor and never changes afterwards, and the calculator of each query
+ * is passed with it, so a loaded processor can answer queries from several threads at once. When the property or
+ * population file changes, a new processor is made with {@link #withAppendedRows(long, long)}, {@link #reload()}
+ * or {@link #withPopulation(CompletableFuture)} instead.
+ */
+public class PropertyDataProcessor {
+    Logger logger = Logger.getInstance();
+
+    private final DataReader<Property> propertyDataReader;  // Updated to use DataReader interface
+    private final CompletableFuture<PopulationDataProcessor> populationDataProcessor;  // May still be loading
+    private final PropertyStore propertyData;  // Aggregated property data, sealed once loaded
+    final String propertyFilePath;
+    //Use a map to store calculated average property metrics for each ZIP Code
+    private final Map<String, Double> averageMetricCache;
+
+
+    /**
+     * Constructor to initialize the data.
+     *
+     * @param propertyFilePath Path to the property data file.
+     * @param propertyDataReader Data reader for property data.
+     * @param populationDataProcessor Processor for population data.
+     */
+    public PropertyDataProcessor(String propertyFilePath, DataReader<Property> propertyDataReader, PopulationDataProcessor populationDataProcessor) throws CSVFormatException, IOException {
+        this(propertyFilePath, propertyDataReader, CompletableFuture.completedFuture(populationDataProcessor));
+    }
+
+
+    /**
+     * Constructor for a property processor whose population data may still be loading. The property data is
+     * loaded straight away; the population data is only waited for by the queries that use it.
+     *
+     * @param propertyFilePath Path to the property data file.
+     * @param propertyDataReader Data reader for property data.
+     * @param populationDataProcessor The processor for population data, once it is loaded.
+     */
+    public PropertyDataProcessor(String propertyFilePath, DataReader<Property> propertyDataReader, CompletableFuture<PopulationDataProcessor> populationDataProcessor) throws CSVFormatException, IOException {
+        // Use CsvPropertyReader to read property data from the CSV file
+        this.populationDataProcessor = populationDataProcessor;
+        this.propertyDataReader = propertyDataReader;
+        this.propertyFilePath = propertyFilePath;
+        this.propertyData = new PropertyStore();
+        this.averageMetricCache = new ConcurrentHashMap<>();
+        propertyDataReader.streamData(propertyFilePath, this::addProperty);
+        propertyData.seal();
+        logger.logEvent(Logger.Level.AUDIT, "Property data loaded from " + propertyFilePath);
+    }
+
+
+    /**
+     * Constructor for a processor derived from another one, with the same reader and file.
+     *
+     * @param propertyDataProcessor The processor the new one is derived from.
+     * @param propertyData The sealed property data of the new processor.
+     * @param populationDataProcessor The processor for population data, once it is loaded.
+     * @param averageMetricCache The cached averages that are still valid for the new processor.
+     */
+    private PropertyDataProcessor(PropertyDataProcessor propertyDataProcessor, PropertyStore propertyData,
+                                  CompletableFuture<PopulationDataProcessor> populationDataProcessor,
+                                  Map<String, Double> averageMetricCache) {
+        this.propertyDataReader = propertyDataProcessor.propertyDataReader;
+        this.propertyFilePath = propertyDataProcessor.propertyFilePath;
+        this.propertyData = propertyData;
+        this.populationDataProcessor = populationDataProcessor;
+        this.averageMetricCache = averageMetricCache;
+    }
+
+
+    /**
+     * Creates a new processor with the data of this one and the records in a byte range of the property file,
+     * such as the rows appended to it. Only the ZIP codes of the new records lose their cached averages.
+     * This processor is not changed.
+     *
+     * @param start The offset of the first appended byte.
+     * @param end The offset just past the last appended row.
+     * @return The new processor, or null if the reader cannot read part of the file.
+     */
+    public PropertyDataProcessor withAppendedRows(long start, long end) throws CSVFormatException, IOException {
+        PropertyStore appendedRows = new PropertyStore();
+        boolean[] changedZipIds = new boolean[ZipCodeDictionary.SIZE];
+        boolean read = propertyDataReader.streamAppended(propertyFilePath, start, end, property -> {
+            appendedRows.add(property);
+            if (property.getZipId() != ZipCodeDictionary.NO_ZIP_CODE) {
+                changedZipIds[property.getZipId()] = true;
+            }
+        });
+        if (!read) {
+            return null;
+        }
+        appendedRows.seal();
+        PropertyStore appendedData = new PropertyStore(propertyData, appendedRows);
+
+        // cache keys are "calculator:ZIP Code"; keep the averages of the ZIP codes without new records
+        Map<String, Double> cache = new ConcurrentHashMap<>();
+        averageMetricCache.forEach((key, average) -> {
+            int zipId = ZipCodeDictionary.encode(key.substring(key.indexOf(':') + 1));
+            if (zipId == ZipCodeDictionary.NO_ZIP_CODE || !changedZipIds[zipId]) {
+                cache.put(key, average);
+            }
+        });
+        logger.logEvent(Logger.Level.AUDIT, "Property data appended from " + propertyFilePath);
+        return new PropertyDataProcessor(this, appendedData, populationDataProcessor, cache);
+    }
+
+
+    /**
+     * Creates a new processor that loads the whole property file again. This processor is not changed.
+     *
+     * @return The new processor.
+     */
+    public PropertyDataProcessor reload() throws CSVFormatException, IOException {
+        return new PropertyDataProcessor(propertyFilePath, propertyDataReader, populationDataProcessor);
+    }
+
+
+    /**
+     * Creates a new processor with the same property data as this one and new population data. The property
+     * data and the cached averages, which do not depend on the population, are shared with this processor.
+     *
+     * @param populationDataProcessor The processor for the new population data, once it is loaded.
+     * @return The new processor.
+     */
+    public PropertyDataProcessor withPopulation(CompletableFuture<PopulationDataProcessor> populationDataProcessor) {
+        return new PropertyDataProcessor(this, propertyData, populationDataProcessor, averageMetricCache);
+    }
+
+
+    /**
+     * Adds one property record to the store as it is read.
+     *
+     * @param property The property record.
+     */
+    private void addProperty(Property property) {
+        propertyData.add(property);
+    }
+
+
+    /**
+     * Shows the average property metric for a given ZIP code.
+     *
+     * @param calculator The calculator for the property metric.
+     * @param zipCode The ZIP code for which to calculate the average.
+     */
+    public void showAveragePropertyMetric(PropertyAverageCalculator calculator, String zipCode) {
+        try {
+            double averageMetric = getAveragePropertyMetric(calculator, zipCode);
+            System.out.println("BEGIN OUTPUT");
+            logger.logEvent(Logger.Level.INFO, () -> "Average property metric for ZIP Code " + zipCode + ": " + (int)averageMetric);
+            System.out.println((int) averageMetric); // Truncate to integer
+            System.out.println("END OUTPUT");
+        } catch (Exception e) {
+            System.out.println("Error: Unable to calculate average property metric. Please make sure the property data is provided.");
+        }
+    }
+
+
+    /**
+     * Gets the average property metric for a ZIP code without displaying it, from the cache if it has been
+     * calculated before.
+     *
+     * @param calculator The calculator for the property metric.
+     * @param zipCode The ZIP code for which the average metric is to be calculated.
+     * @return The average metric, or 0 if the ZIP code has no properties with a value for it.
+     */
+    public double getAveragePropertyMetric(PropertyAverageCalculator calculator, String zipCode) {
+        String calculatorName = calculator.getClass().getSimpleName(); // Get the class name of the calculator
+        String cacheKey = calculatorName + ":" + zipCode; // Combine calculator name and zip code as the cache key
+        return averageMetricCache.computeIfAbsent(cacheKey, key -> calculateAveragePropertyMetric(calculator, zipCode));
+    }
+
+
+    /**
+     * Calculates the average property metric for the specified ZIP code.
+     *
+     * @param calculator The calculator for the property metric.
+     * @param zipCode The ZIP code for which the average metric is to be calculated.
+     * @return The calculated average metric value.
+     */
+    private double calculateAveragePropertyMetric(PropertyAverageCalculator calculator, String zipCode) {
+        return calculator.calculateAverage(propertyData, ZipCodeDictionary.encode(zipCode));
+    }
+
+
+    /**
+     * Shows a quantile of a property metric, such as the median market value, for a given ZIP code.
+     *
+     * @param calculator The calculator for the property metric.
+     * @param quantile The quantile, from 0 to 1.
+     * @param zipCode The ZIP code for which to estimate the quantile.
+     */
+    public void showPropertyQuantile(PropertyQuantileCalculator calculator, double quantile, String zipCode) {
+        try {
+            double value = getPropertyQuantile(calculator, quantile, zipCode);
+            System.out.println("BEGIN OUTPUT");
+            logger.logEvent(Logger.Level.INFO, () -> "Property metric quantile " + quantile + " for ZIP Code " + zipCode + ": " + (int) value);
+            System.out.println((int) value); // Truncate to integer
+            System.out.println("END OUTPUT");
+        } catch (Exception e) {
+            System.out.println("Error: Unable to calculate property metric quantile. Please make sure the property data is provided.");
+        }
+    }
+
+
+    /**
+     * Gets a quantile of a property metric for a ZIP code without displaying it. It is estimated from the sketch
+     * of the ZIP code that was built while the data was loaded, so no values are sorted.
+     *
+     * @param calculator The calculator for the property metric.
+     * @param quantile The quantile, from 0 to 1.
+     * @param zipCode The ZIP code for which the quantile is to be estimated.
+     * @return The estimated quantile, or 0 if the ZIP code has no properties with a value for the metric.
+     */
+    public double getPropertyQuantile(PropertyQuantileCalculator calculator, double quantile, String zipCode) {
+        return calculator.calculateQuantile(propertyData, ZipCodeDictionary.encode(zipCode), quantile);
+    }
+
+
+    /**
+     * Calculates and displays the total market value per capita for properties in a specified ZIP code.
+     * The calculation considers the population of the ZIP code and the total market value of properties.
+     *
+     * @param zipCode The ZIP code for which the market value per capita is to be calculated.
+     */
+    public void getTotalMarketValuePerCapita(String zipCode) {
+        try {
+            // Get the population for the specified ZIP Code
+            int zip = ZipCodeDictionary.encode(zipCode);
+            int population = populationDataProcessor.join().getPopulationByZipId(zip);
+
+            if (population == 0) {
+                System.out.println(0);  // ZIP Code not found or population is 0
+                return;
+            }
+
+            if (propertyData.count(zip) == 0) {
+                System.out.println(0);  // No properties found for the ZIP Code
+                return;
+            }
+
+            // Calculate total market value for the ZIP Code
+            double totalMarketValue = propertyData.sum(PropertyStore.Column.MARKET_VALUE, zip);
+
+            // Calculate total market value per capita
+            double marketValuePerCapita = totalMarketValue / population;
+
+            // Return the truncated integer value
+            System.out.println("BEGIN OUTPUT");
+            logger.logEvent(Logger.Level.INFO, () -> "Total Market Value Per Capita for ZIP Code " + zipCode + ": " + (int)marketValuePerCapita);
+            System.out.println((int) marketValuePerCapita); // Truncate to integer
+            System.out.println("END OUTPUT");
+//            logger.logEvent("Total Market Value Per Capita for ZIP Code " + zipCode + ": " + marketValuePerCapita);
+        } catch (Exception e) {
+            System.out.println("Error: Unable to calculate total market value per capita.");
+        }
+    }
+
+
+    /**
+     * Gets the total market value per capita for a ZIP code without displaying it.
+     *
+     * @param zipCode The ZIP code for which the market value per capita is to be calculated.
+     * @return The market value per capita, or 0 if the ZIP code has no population or no properties.
+     */
+    public double getMarketValuePerCapita(String zipCode) {
+        int zip = ZipCodeDictionary.encode(zipCode);
+        int population = populationDataProcessor.join().getPopulationByZipId(zip);
+        if (population == 0 || propertyData.count(zip) == 0) {
+            return 0;
+        }
+        return propertyData.sum(PropertyStore.Column.MARKET_VALUE, zip) / population;
+    }
+
+    /**
+     * Offers the value of a property metric for every ZIP code to a ranking, in one pass over the per-ZIP code
+     * aggregates of the store. ZIP codes without a value are left out: those with no valid values for an average,
+     * and those without properties or population for the market value per capita.
+     *
+     * @param metric One of the property metrics: average market value, average total livable area or market
+     *               value per capita.
+     * @param ranking The ranking to offer the values to.
+     */
+    public void rankZipCodes(ZipCodeMetric metric, ZipCodeRanking ranking) {
+        if (metric == ZipCodeMetric.MARKET_VALUE_PER_CAPITA) {
+            PopulationDataProcessor population = populationDataProcessor.join();
+            for (int zipId = 0; zipId < ZipCodeDictionary.SIZE; zipId++) {
+                int zipPopulation = population.getPopulationByZipId(zipId);
+                if (zipPopulation > 0 && propertyData.count(zipId) > 0) {
+                    ranking.offer(zipId, propertyData.sum(PropertyStore.Column.MARKET_VALUE, zipId) / zipPopulation);
+                }
+            }
+            return;
+        }
+        PropertyStore.Column column;
+        if (metric == ZipCodeMetric.AVERAGE_MARKET_VALUE) {
+            column = PropertyStore.Column.MARKET_VALUE;
+        } else if (metric == ZipCodeMetric.AVERAGE_TOTAL_LIVABLE_AREA) {
+            column = PropertyStore.Column.TOTAL_LIVABLE_AREA;
+        } else {
+            throw new IllegalArgumentException("Not a property metric: " + metric.getName());
+        }
+        for (int zipId = 0; zipId < ZipCodeDictionary.SIZE; zipId++) {
+            if (propertyData.count(column, zipId) > 0) {
+                ranking.offer(zipId, propertyData.average(column, zipId));
+            }
+        }
+    }
+
+    /**
+     * Displays the average market value of properties across all properties in the area.
+     */
+    public double showAverageMarketValue() {
+        // Calculate the average market value across all properties from the totals kept by the store
+        double averageMarketValue = propertyData.average(PropertyStore.Column.MARKET_VALUE);
+
+        // Display the result
+        logger.logEvent("Average market value of properties: " + averageMarketValue);
+        return averageMarketValue;
+    }
+
+}
@@ -0,0 +1,36 @@
+package edu.upenn.cit594.processor;
+
+/**
+ * Interface for estimating a quantile, such as the median, of a specific metric for the properties in a ZIP code.
+ * Unlike the average, a quantile is not pulled up by a handful of very large values.
+ */
+public interface PropertyQuantileCalculator {
+    /**
+     * Estimates a quantile of a given metric over the properties of one ZIP code.
+     * The specific metric is determined by the implementing class.
+     *
+     * @param properties The store holding the property data.
+     * @param zipCode    The id of the ZIP code in the {@link edu.upenn.cit594.datamanagement.ZipCodeDictionary}.
+     * @param quantile   The quantile, from 0 to 1; 0.5 is the median.
+     * @return The estimated quantile of the chosen metric for the properties in the ZIP code.
+     */
+    double calculateQuantile(PropertyStore properties, int zipCode, double quantile);
+
+    /**
+     * Reads the name of a quantile: median, or p followed by a percentile from 0 to 100, such as p90 or p99.
+     *
+     * @param name The name, in any case.
+     * @return The quantile, from 0 to 1, or NaN if the name is not valid.
+     */
+    static double parseQuantile(String name) {
+        String quantile = name.trim().toLowerCase();
+        if (quantile.equals("median")) {
+            return 0.5;
+        }
+        if (!quantile.matches("p\\d{1,3}(\\.\\d+)?")) {
+            return Double.NaN;
+        }
+        double percentile = Double.parseDouble(quantile.substring(1));
+        return percentile <= 100 ? percentile / 100 : Double.NaN;
+    }
+}
@@ -0,0 +1,226 @@
+package edu.upenn.cit594.processor;
+
+import edu.upenn.cit594.datamanagement.Property;
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+
+/**
+ * Aggregated storage for property data.
+ * Every query about properties is answered from aggregates, so the rows themselves are not kept: each property
+ * is folded into the aggregates as it is added, and memory use does not grow with the number of properties.
+ * Missing numeric values are NaN and are excluded from every sum, count and average.
+ *
+ * The store keeps an index of per-ZIP aggregates, indexed by ZIP code id: the number of properties, and the
+ * {@link ColumnStatistics} of their values (count, sum, minimum, maximum, mean and variance of every column),
+ * with the same statistics over all rows. They are updated as rows are added, in the same pass, so the per-ZIP
+ * queries are constant-time lookups whatever the size of the data. Each ZIP code that has values in a column also
+ * gets a {@link QuantileSketch} of them, built in the same pass, which answers quantiles such as the median from a
+ * few kilobytes however many properties the ZIP code has.
+ *
+ * Rows are added while the data is loaded; {@link #seal()} then closes the store to further rows. A sealed store
+ * never changes, so once it has been handed to other threads safely (for example through a final field or a
+ * completed future) they can all query it at the same time without locking. Rows appended to the source file later
+ * go into a store of their own, which {@link #PropertyStore(PropertyStore, PropertyStore)} then merges with the
+ * original, combining the aggregates of the two instead of adding every row again.
+ */
+public class PropertyStore {
+    /**
+     * The numeric columns of the store.
+     */
+    public enum Column {
+        MARKET_VALUE,
+        TOTAL_LIVABLE_AREA
+    }
+
+    private int size;  // the number of properties added
+    private boolean sealed;
+
+    // statistics over all rows, kept up to date as rows are added
+    private final ColumnStatistics totals;
+
+    // per-ZIP aggregates, indexed by ZIP code id
+    private final int[] zipCounts = new int[ZipCodeDictionary.SIZE];
+    // null until the ZIP code has a property
+    private final ColumnStatistics[] zipStatistics = new ColumnStatistics[ZipCodeDictionary.SIZE];
+    // null until the ZIP code has a value in the column
+    private final QuantileSketch[][] zipSketches = new QuantileSketch[Column.values().length][ZipCodeDictionary.SIZE];
+
+    /**
+     * Creates an empty store.
+     */
+    public PropertyStore() {
+        totals = new ColumnStatistics(Column.values().length);
+    }
+
+    /**
+     * Creates a sealed store with the properties of two sealed stores, by merging their aggregates. The ZIP codes
+     * that only one of them has properties in share that store's aggregates, which never change once it is sealed;
+     * the others get merged copies. Neither store is changed.
+     *
+     * @param store    The store with the properties loaded first.
+     * @param appended The store with the properties appended to them.
+     * @throws IllegalStateException if either store is not sealed.
+     */
+    public PropertyStore(PropertyStore store, PropertyStore appended) {
+        if (!store.sealed || !appended.sealed) {
+            throw new IllegalStateException("Only sealed property stores can be merged");
+        }
+        size = store.size + appended.size;
+        totals = new ColumnStatistics(store.totals);
+        totals.merge(appended.totals);
+        for (int zipId = 0; zipId < ZipCodeDictionary.SIZE; zipId++) {
+            zipCounts[zipId] = store.zipCounts[zipId] + appended.zipCounts[zipId];
+            zipStatistics[zipId] = merge(store.zipStatistics[zipId], appended.zipStatistics[zipId]);
+        }
+        for (int c = 0; c < zipSketches.length; c++) {
+            for (int zipId = 0; zipId < ZipCodeDictionary.SIZE; zipId++) {
+                zipSketches[c][zipId] = merge(store.zipSketches[c][zipId], appended.zipSketches[c][zipId]);
+            }
+        }
+        sealed = true;
+    }
+
+    private static ColumnStatistics merge(ColumnStatistics statistics, ColumnStatistics appended) {
+        if (statistics == null || appended == null) {
+            return statistics == null ? appended : statistics;
+        }
+        ColumnStatistics merged = new ColumnStatistics(statistics);
+        merged.merge(appended);
+        return merged;
+    }
+
+    private static QuantileSketch merge(QuantileSketch sketch, QuantileSketch appended) {
+        if (sketch == null || appended == null) {
+            return sketch == null ? appended : sketch;
+        }
+        QuantileSketch merged = new QuantileSketch(sketch);
+        merged.merge(appended);
+        return merged;
+    }
+
+    /**
+     * Adds a property to the aggregates of the store. Must not be called once the store is sealed.
+     *
+     * @param property The property to add.
+     */
+    public void add(Property property) {
+        if (sealed) {
+            throw new IllegalStateException("Property store is sealed");
+        }
+        int zipId = property.getZipId();
+        size++;
+
+        totals.add(Column.MARKET_VALUE.ordinal(), property.getMarketValue());
+        totals.add(Column.TOTAL_LIVABLE_AREA.ordinal(), property.getTotalLivableArea());
+        if (zipId != ZipCodeDictionary.NO_ZIP_CODE) {
+            zipCounts[zipId]++;
+            ColumnStatistics statistics = zipStatistics[zipId];
+            if (statistics == null) {
+                statistics = new ColumnStatistics(Column.values().length);
+                zipStatistics[zipId] = statistics;
+            }
+            statistics.add(Column.MARKET_VALUE.ordinal(), property.getMarketValue());
+            statistics.add(Column.TOTAL_LIVABLE_AREA.ordinal(), property.getTotalLivableArea());
+            addToSketch(Column.MARKET_VALUE, zipId, property.getMarketValue());
+            addToSketch(Column.TOTAL_LIVABLE_AREA, zipId, property.getTotalLivableArea());
+        }
+    }
+
+    /**
+     * Finishes loading: rejects any further rows.
+     */
+    public void seal() {
+        sealed = true;
+    }
+
+    private void addToSketch(Column column, int zipId, double value) {
+        if (!Double.isNaN(value)) {
+            QuantileSketch sketch = zipSketches[column.ordinal()][zipId];
+            if (sketch == null) {
+                sketch = new QuantileSketch();
+                zipSketches[column.ordinal()][zipId] = sketch;
+            }
+            sketch.add(value);
+        }
+    }
+
+    /**
+     * @return The number of properties in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the properties in a ZIP code.
+     *
+     * @param zipCode The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @return The number of properties in the ZIP code, whether or not their values are valid.
+     */
+    public int count(int zipCode) {
+        return zipCode == ZipCodeDictionary.NO_ZIP_CODE ? 0 : zipCounts[zipCode];
+    }
+
+    /**
+     * Counts the properties in a ZIP code that have a valid value in a column.
+     *
+     * @param column  The column.
+     * @param zipCode The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @return The number of non-NaN values.
+     */
+    public int count(Column column, int zipCode) {
+        ColumnStatistics statistics = zipStatistics(zipCode);
+        return statistics == null ? 0 : (int) statistics.getCount(column.ordinal());
+    }
+
+    /**
+     * Sums the valid values of a column for the properties in a ZIP code.
+     *
+     * @param column  The column to sum.
+     * @param zipCode The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @return The sum of the non-NaN values, or 0 if there are none.
+     */
+    public double sum(Column column, int zipCode) {
+        ColumnStatistics statistics = zipStatistics(zipCode);
+        return statistics == null ? 0.0 : statistics.getSum(column.ordinal());
+    }
+
+    /**
+     * Averages the valid values of a column for the properties in a ZIP code.
+     *
+     * @param column  The column to average.
+     * @param zipCode The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @return The mean of the non-NaN values, or 0 if there are none.
+     */
+    public double average(Column column, int zipCode) {
+        return count(column, zipCode) > 0 ? zipStatistics[zipCode].getMean(column.ordinal()) : 0.0;
+    }
+
+    private ColumnStatistics zipStatistics(int zipCode) {
+        return zipCode == ZipCodeDictionary.NO_ZIP_CODE ? null : zipStatistics[zipCode];
+    }
+
+    /**
+     * Estimates a quantile of the valid values of a column for the properties in a ZIP code, from the sketch built
+     * as the rows were added. The result is exact for ZIP codes with fewer than {@link QuantileSketch#DEFAULT_K}
+     * values, and otherwise within the rank error documented by {@link QuantileSketch}.
+     *
+     * @param column   The column.
+     * @param zipCode  The id of the ZIP code in the {@link ZipCodeDictionary}.
+     * @param quantile The quantile, from 0 to 1; 0.5 is the median.
+     * @return The estimated quantile of the non-NaN values, or 0 if there are none.
+     */
+    public double quantile(Column column, int zipCode, double quantile) {
+        QuantileSketch sketch = zipCode == ZipCodeDictionary.NO_ZIP_CODE ? null : zipSketches[column.ordinal()][zipCode];
+        return sketch == null ? 0.0 : sketch.quantile(quantile);
+    }
+
+    /**
+     * Averages the valid values of a column over every property in the store.
+     *
+     * @param column The column to average.
+     * @return The mean of the non-NaN values, or 0 if there are none.
+     */
+    public double average(Column column) {
+        return totals.getCount(column.ordinal()) > 0 ? totals.getMean(column.ordinal()) : 0.0;
+    }
+}
@@ -0,0 +1,305 @@
+package edu.upenn.cit594.processor;
+
+import java.util.Arrays;
+
+/**
+ * A quantile sketch in the style of KLL (Karnin, Lang and Liberty, "Optimal Quantile Approximation in Streams"),
+ * which summarises a stream of values in bounded memory, in one pass, so that quantiles such as the median can
+ * be estimated without keeping or sorting all the values.
+ *
+ * The values are kept in levels, where a value in level h stands for 2^h of the values added. New values go into
+ * level 0. When the sketch is full, the lowest level that is over its capacity is compacted: its values are
+ * sorted and paired off, and either the first or the second value of every pair, chosen by a coin flip, moves up
+ * a level with twice the weight. The top level has room for k values and each level below it for 2/3 as many,
+ * down to a minimum of 8, so a sketch holds at most about 3k values however many are added.
+ *
+ * Error bounds: the smallest and largest values are kept exactly, and until k values have been added nothing is
+ * compacted, so every quantile is exact. After that, the value returned for a quantile q has a rank among the n
+ * values added within about 1.7% of n of qn with 99% confidence for the default k = 200; the error shrinks in
+ * proportion to 1/k. It is a bound on rank, not on value: where the values are sparse, such as in a long tail
+ * of very valuable properties, neighbouring ranks can be far apart in value. Two sketches can be merged into one
+ * for the combined stream with the same bound, so sketches built in parallel can be combined.
+ *
+ * The coin flips come from a generator with a fixed seed, so the same values added in the same order always give
+ * the same answers. A sketch is not safe to change from several threads at once, but once it is no longer
+ * changed it can be queried from several threads at the same time.
+ *
+ * The first query after a change sorts the values of all levels into one list with their cumulative weights,
+ * which is kept until the next change, so the queries on a sketch that is no longer changed are binary searches.
+ */
+public final class QuantileSketch {
+    public static final int DEFAULT_K = 200;
+    private static final double LEVEL_RATIO = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final int k;
+    private double[][] levels = {new double[MIN_LEVEL_CAPACITY]};  // the values of each level, unsorted
+    private int[] levelSizes = {0};
+    private int retained;       // the number of values held over all levels
+    private int maxRetained;    // the sum of the capacities of the levels; the sketch is compacted when it is reached
+    private long count;         // the number of values added
+    private double min;
+    private double max;
+    private long random = SEED;
+    private volatile SortedView sortedView;  // built by the first query after a change, null until then
+
+    /**
+     * Creates an empty sketch with the default accuracy.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param k The capacity of the top level, which sets the accuracy: the rank error is proportional to 1/k, and
+     *          the memory used to k.
+     * @throws IllegalArgumentException if k is less than 8.
+     */
+    public QuantileSketch(int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("The capacity of a quantile sketch must be at least " + MIN_LEVEL_CAPACITY);
+        }
+        this.k = k;
+        this.maxRetained = capacity(0);
+    }
+
+    /**
+     * Creates a copy of a sketch, which can be added to without changing the original.
+     *
+     * @param sketch The sketch to copy.
+     */
+    public QuantileSketch(QuantileSketch sketch) {
+        this.k = sketch.k;
+        this.levels = new double[sketch.levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            levels[h] = sketch.levels[h].clone();
+        }
+        this.levelSizes = sketch.levelSizes.clone();
+        this.retained = sketch.retained;
+        this.maxRetained = sketch.maxRetained;
+        this.count = sketch.count;
+        this.min = sketch.min;
+        this.max = sketch.max;
+        this.random = sketch.random;
+        this.sortedView = sketch.sortedView;
+    }
+
+    /**
+     * Adds a value. NaN values are ignored.
+     *
+     * @param value The value.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        invalidateSortedView();
+        if (count == 0 || value < min) {
+            min = value;
+        }
+        if (count == 0 || value > max) {
+            max = value;
+        }
+        count++;
+        append(0, value);
+        if (retained >= maxRetained) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds all the values summarised by another sketch to this one. The other sketch is not changed.
+     *
+     * @param sketch The sketch to merge into this one.
+     */
+    public void merge(QuantileSketch sketch) {
+        if (sketch.count == 0) {
+            return;
+        }
+        invalidateSortedView();
+        while (levels.length < sketch.levels.length) {
+            addLevel();
+        }
+        for (int h = 0; h < sketch.levels.length; h++) {
+            for (int i = 0; i < sketch.levelSizes[h]; i++) {
+                append(h, sketch.levels[h][i]);
+            }
+        }
+        if (count == 0 || sketch.min < min) {
+            min = sketch.min;
+        }
+        if (count == 0 || sketch.max > max) {
+            max = sketch.max;
+        }
+        count += sketch.count;
+        while (retained >= maxRetained) {
+            compress();
+        }
+    }
+
+    /**
+     * @return The number of values added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Estimates a quantile of the values added, within the error bounds given above.
+     *
+     * @param quantile The quantile, from 0 for the smallest value to 1 for the largest; 0.5 is the median.
+     * @return The smallest value whose rank is at least {@code quantile} times the number of values, or NaN if no
+     * values have been added.
+     */
+    public double quantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (quantile <= 0) {
+            return min;
+        }
+        if (quantile >= 1) {
+            return max;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+
+        // the first value whose cumulative weight reaches the rank; the weights are positive, so the cumulative
+        // weights are strictly increasing
+        SortedView view = sortedView();
+        int index = Arrays.binarySearch(view.cumulativeWeights, rank);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < view.values.length ? view.values[index] : max;
+    }
+
+    /**
+     * The values of all levels in ascending order, each with the sum of its weight and the weights of the values
+     * before it. It is never changed once built, so it can be shared between threads and copies of the sketch.
+     */
+    private static final class SortedView {
+        private final double[] values;
+        private final long[] cumulativeWeights;
+
+        private SortedView(double[] values, long[] cumulativeWeights) {
+            this.values = values;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+    }
+
+    private SortedView sortedView() {
+        SortedView view = sortedView;
+        if (view == null) {
+            view = buildSortedView();
+            sortedView = view;
+        }
+        return view;
+    }
+
+    private void invalidateSortedView() {
+        // a read is cheaper than a write to a volatile field, and most changes are made before the first query
+        if (sortedView != null) {
+            sortedView = null;
+        }
+    }
+
+    /**
+     * Merges the sorted values of all levels, adding up their weights.
+     */
+    private SortedView buildSortedView() {
+        double[][] sorted = new double[levels.length][];
+        int[] next = new int[levels.length];
+        for (int h = 0; h < levels.length; h++) {
+            sorted[h] = Arrays.copyOf(levels[h], levelSizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+        double[] values = new double[retained];
+        long[] cumulativeWeights = new long[retained];
+        long weight = 0;
+        for (int i = 0; i < retained; i++) {
+            int lowest = -1;
+            for (int h = 0; h < sorted.length; h++) {
+                if (next[h] < sorted[h].length && (lowest < 0 || sorted[h][next[h]] < sorted[lowest][next[lowest]])) {
+                    lowest = h;
+                }
+            }
+            values[i] = sorted[lowest][next[lowest]++];
+            weight += 1L << lowest;
+            cumulativeWeights[i] = weight;
+        }
+        return new SortedView(values, cumulativeWeights);
+    }
+
+    /**
+     * @return The capacity of a level, which depends on how many levels there are.
+     */
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(LEVEL_RATIO, depth)));
+    }
+
+    private void append(int level, double value) {
+        if (levelSizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][levelSizes[level]++] = value;
+        retained++;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levels[levels.length - 1] = new double[MIN_LEVEL_CAPACITY];
+        levelSizes = Arrays.copyOf(levelSizes, levelSizes.length + 1);
+        maxRetained = 0;
+        for (int h = 0; h < levels.length; h++) {
+            maxRetained += capacity(h);
+        }
+    }
+
+    /**
+     * Compacts the lowest levels that are over their capacity until the sketch has room again.
+     */
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (levelSizes[h] >= capacity(h)) {
+                if (h + 1 == levels.length) {
+                    addLevel();
+                }
+                compact(h);
+                if (retained < maxRetained) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves one value of every pair of sorted values in a level up to the next level. With an odd number of values
+     * the smallest one stays behind.
+     */
+    private void compact(int level) {
+        double[] values = levels[level];
+        int size = levelSizes[level];
+        Arrays.sort(values, 0, size);
+        int first = size & 1;
+        int offset = nextCoinFlip();
+        for (int i = first; i < size; i += 2) {
+            append(level + 1, values[i + offset]);
+        }
+        levelSizes[level] = first;
+        retained -= size - first;
+    }
+
+    /**
+     * @return 0 or 1, from a xorshift generator.
+     */
+    private int nextCoinFlip() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+}
@@ -0,0 +1,175 @@
+package edu.upenn.cit594.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuantileSketchTests {
+
+    // the rank error documented for the default k, as a fraction of the number of values
+    private static final double RANK_ERROR = 0.017;
+
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    /*
+     * The values 1 to n in a random order, so the rank of a value is the value itself.
+     */
+    private static double[] shuffledRanks(int n, long seed) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i + 1;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            double value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        return values;
+    }
+
+    private static QuantileSketch sketch(double[] values, int from, int to) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = from; i < to; i++) {
+            sketch.add(values[i]);
+        }
+        return sketch;
+    }
+
+    private static void assertWithinRankError(QuantileSketch sketch, int n) {
+        for (double quantile : QUANTILES) {
+            double rank = sketch.quantile(quantile);
+            assertTrue("quantile " + quantile + " has rank " + rank,
+                    Math.abs(rank - quantile * n) <= RANK_ERROR * n);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(Double.NaN);
+
+        assertEquals(0, sketch.getCount());
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    }
+
+    @Test
+    public void testExactBelowK() {
+        Random random = new Random(1);
+        double[] values = new double[QuantileSketch.DEFAULT_K - 1];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 1000;
+            sketch.add(values[i]);
+        }
+        sketch.add(Double.NaN);
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.getCount());
+        for (int rank = 1; rank <= values.length; rank++) {
+            assertEquals(values[rank - 1], sketch.quantile((rank - 0.5) / values.length), 0.0);
+        }
+        assertEquals(values[0], sketch.quantile(0.0), 0.0);
+        assertEquals(values[values.length / 2], sketch.quantile(0.5), 0.0);
+    }
+
+    @Test
+    public void testMinAndMaxAreExact() {
+        double[] values = shuffledRanks(100000, 2);
+        QuantileSketch sketch = sketch(values, 0, values.length);
+
+        assertEquals(1.0, sketch.quantile(0.0), 0.0);
+        assertEquals(100000.0, sketch.quantile(1.0), 0.0);
+        assertEquals(1.0, sketch.quantile(-1.0), 0.0);
+        assertEquals(100000.0, sketch.quantile(2.0), 0.0);
+    }
+
+    @Test
+    public void testRankErrorOnLargeStream() {
+        int n = 1000000;
+        QuantileSketch sketch = sketch(shuffledRanks(n, 3), 0, n);
+
+        assertEquals(n, sketch.getCount());
+        assertWithinRankError(sketch, n);
+    }
+
+    @Test
+    public void testRankErrorOnSortedStream() {
+        int n = 1000000;
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= n; i++) {
+            sketch.add(i);
+        }
+
+        assertWithinRankError(sketch, n);
+    }
+
+    @Test
+    public void testMerge() {
+        int n = 1000000;
+        double[] values = shuffledRanks(n, 4);
+        QuantileSketch merged = sketch(values, 0, n / 3);
+        merged.merge(sketch(values, n / 3, n / 2));
+        merged.merge(new QuantileSketch());
+        merged.merge(sketch(values, n / 2, n));
+
+        assertEquals(n, merged.getCount());
+        assertEquals(1.0, merged.quantile(0.0), 0.0);
+        assertEquals(n, merged.quantile(1.0), 0.0);
+        assertWithinRankError(merged, n);
+    }
+
+    @Test
+    public void testMergeBelowKIsExact() {
+        double[] values = shuffledRanks(QuantileSketch.DEFAULT_K - 1, 5);
+        QuantileSketch merged = sketch(values, 0, 50);
+        merged.merge(sketch(values, 50, values.length));
+
+        for (int rank = 1; rank <= values.length; rank++) {
+            assertEquals(rank, merged.quantile((rank - 0.5) / values.length), 0.0);
+        }
+    }
+
+    @Test
+    public void testMergeDoesNotChangeTheOther() {
+        double[] values = shuffledRanks(10000, 6);
+        QuantileSketch first = sketch(values, 0, 5000);
+        QuantileSketch second = sketch(values, 5000, 10000);
+        double median = second.quantile(0.5);
+
+        first.merge(second);
+
+        assertEquals(5000, second.getCount());
+        assertEquals(median, second.quantile(0.5), 0.0);
+    }
+
+    @Test
+    public void testQueryAfterChange() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1.0);
+        sketch.add(2.0);
+        assertEquals(1.0, sketch.quantile(0.5), 0.0);
+
+        sketch.add(3.0);
+        sketch.add(4.0);
+        assertEquals(2.0, sketch.quantile(0.5), 0.0);
+
+        QuantileSketch copy = new QuantileSketch(sketch);
+        QuantileSketch other = new QuantileSketch();
+        other.add(5.0);
+        other.add(6.0);
+        sketch.merge(other);
+        assertEquals(3.0, sketch.quantile(0.5), 0.0);
+        assertEquals(2.0, copy.quantile(0.5), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsSmallK() {
+        new QuantileSketch(7);
+    }
+}
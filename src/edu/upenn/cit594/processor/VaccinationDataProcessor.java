@@ -1,221 +1,439 @@
-package edu.upenn.cit594.processor;
-import edu.upenn.cit594.datamanagement.CSVFormatException;
-import edu.upenn.cit594.datamanagement.Vaccination;
-import edu.upenn.cit594.datamanagement.DataReader;
-import edu.upenn.cit594.logging.Logger;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.*;
-import java.util.stream.Collectors;
-
-/**
- * Processes vaccination data and provides methods to show various vaccination statistics.
- */
-public class VaccinationDataProcessor {
-    Logger logger = Logger.getInstance();
-
-    private PopulationDataProcessor populationDataProcessor;
-    private DataReader<Vaccination> vaccinationDataReader;  // Updated to use DataReader interface
-    String vaccinationFilePath;
-    List<Vaccination> vaccinationData;
-    private Map<String, Map<String, Double>> vaccinationsPerCapitaCache = new HashMap<>();
-
-
-    /**
-     * Constructor for VaccinationDataProcessor.
-     *
-     * @param vaccinationDataReader The data reader for vaccination data.
-     * @param populationDataProcessor The processor for population data.
-     * @param vaccinationFilePath The file path for vaccination data.
-     */
-    public VaccinationDataProcessor(DataReader<Vaccination> vaccinationDataReader, PopulationDataProcessor populationDataProcessor, String vaccinationFilePath) throws CSVFormatException, IOException {
-        this.vaccinationDataReader = vaccinationDataReader;
-        this.populationDataProcessor = populationDataProcessor;
-        this.vaccinationFilePath = vaccinationFilePath;
-        this.vaccinationData = vaccinationDataReader.readData(vaccinationFilePath);
-        logger.logEvent("Vaccination data file: " + vaccinationFilePath);
-    }
-
-
-    /**
-     * Displays vaccinations per capita for a specified date and vaccination type.
-     *
-     * @param scanner The scanner to read user input.
-     */
-    public void showVaccinationsPerCapita(Scanner scanner) {
-            String vaccinationType;
-            while (true) {
-                vaccinationType = scanner.nextLine().trim(); // Trim to remove leading/trailing whitespaces
-                logger.logEvent("Vaccination type: " + vaccinationType);
-                if ("partial".equalsIgnoreCase(vaccinationType) || "full".equalsIgnoreCase(vaccinationType)) {
-                    break; // Break the loop if the input is valid
-                } else {
-                    System.out.println("Enter the vaccination type (partial or full):");
-                }
-            }
-
-            String dateStr;
-            while (true) {
-                System.out.println("Enter the date in the format YYYY-MM-DD:");
-                dateStr = scanner.next().trim(); // Trim to remove leading/trailing whitespaces
-                System.out.println(dateStr);
-                logger.logEvent("Date: " + dateStr);
-
-                Date specifiedDate = parseDate(dateStr);
-                if (specifiedDate != null) {
-                    Map<String, Map<String, Double>> vaccinationsPerCapita = calculateVaccinationsPerCapita(specifiedDate, vaccinationType);
-                    displayVaccinationsPerCapita(vaccinationsPerCapita);
-                    break; // Break the loop if the input is valid
-                } else {
-                    System.out.println("Invalid date format. Please enter a valid date in the format YYYY-MM-DD.");
-                }
-            }
-    }
-
-
-    /**
-     * Parses a date string into a Date object.
-     *
-     * @param dateStr The date string to be parsed.
-     * @return The parsed Date object or null if parsing fails.
-     */
-    private Date parseDate(String dateStr) {
-        try {
-            return new SimpleDateFormat("yyyy-MM-dd").parse(dateStr);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-
-    /**
-     * Calculates the vaccinations per capita for a specified date and vaccination type (full or partial).
-     *
-     * @param specifiedDate The date for which to calculate the statistics.
-     * @param vaccinationType The type of vaccination (partial or full).
-     * @return A map of ZIP codes to their vaccinations per capita.
-     */
-    private Map<String, Map<String, Double>> calculateVaccinationsPerCapita(Date specifiedDate, String vaccinationType) {
-        String specifiedDateStr = new SimpleDateFormat("yyyy-MM-dd").format(specifiedDate);
-        //if the result is already cached, return the cached result
-        if (vaccinationsPerCapitaCache.containsKey(specifiedDateStr)) {
-            if (vaccinationsPerCapitaCache.get(specifiedDateStr).containsKey(vaccinationType)) {
-              return vaccinationsPerCapitaCache;
-
-            }
-        }
-        Map<String, Map<String, Double>> result = vaccinationData.stream()
-                .filter(v -> v.getEtlTimestamp().startsWith(specifiedDateStr) && v.matchesVaccinationType(vaccinationType))
-                .collect(Collectors.groupingBy(
-                        v -> v.getEtlTimestamp().substring(0, 10),
-                        Collectors.toMap(
-                                Vaccination::getZipCode,
-                                v -> {
-                                    double vaccinationCount = getVaccinationCount(v, vaccinationType);
-                                    double population = getPopulation(v.getZipCode());
-                                    double resultValue = 0.0;
-                                    if (population > 0) {
-                                        resultValue = vaccinationCount / population;
-                                    }
-                                    //Four decimal places
-                                    logger.logEvent(String.format("Vaccinations per capita for %s on %s: %.4f", v.getZipCode(), v.getEtlTimestamp(), resultValue));
-                                    return resultValue;
-                                }
-                        )
-                ));
-
-        // save result to cache
-        vaccinationsPerCapitaCache.putAll(result);
-
-        return result;
-    }
-
-
-
-    /**
-     * Gets the vaccination count based on the vaccination type.
-     *
-     * @param v The Vaccination object.
-     * @param vaccinationType The type of vaccination (partial or full).
-     * @return The count of vaccinations.
-     */
-    private double getVaccinationCount(Vaccination v, String vaccinationType) {
-        if ("partial".equalsIgnoreCase(vaccinationType)) {
-            return v.getPartiallyVaccinated();
-        } else if ("full".equalsIgnoreCase(vaccinationType)) {
-            return v.getFullyVaccinated();
-        }
-        return 0.0;
-    }
-
-
-    /**
-     * Gets the population for a given ZIP code.
-     *
-     * @param zipCode The ZIP code.
-     * @return The population of the ZIP code.
-     */
-    private double getPopulation(String zipCode) {
-        return populationDataProcessor.getPopulationByZipCode(zipCode);
-    }
-
-
-    /**
-     * Displays the vaccinations per capita data.
-     *
-     * @param vaccinationsPerCapita The map of ZIP codes to their vaccinations per capita.
-     */
-    private void displayVaccinationsPerCapita(Map<String, Map<String, Double>> vaccinationsPerCapita) {
-        System.out.println("BEGIN OUTPUT");
-
-        // Check if there are any valid records for the provided date
-        boolean dataFound = vaccinationsPerCapita.values().stream()
-                .flatMap(map -> map.values().stream())
-                .anyMatch(value -> value > 0);
-
-        if (!dataFound) {
-            System.out.println("0");
-        } else {
-            vaccinationsPerCapita.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .forEach(dateEntry -> {
-                        Map<String, Double> zipToVaccinations = dateEntry.getValue();
-                        zipToVaccinations.entrySet().stream()
-                                .sorted(Map.Entry.comparingByKey())
-                                .filter(zipEntry -> zipEntry.getValue() > 0)
-                                .forEach(zipEntry -> {
-                                    String zipCode = zipEntry.getKey();
-                                    Double vaccinationsPerCapitaValue = zipEntry.getValue();
-                                    System.out.printf("%s %.4f%n", zipCode, vaccinationsPerCapitaValue);
-                                });
-                    });
-        }
-
-        System.out.println("END OUTPUT");
-    }
-
-
-    /**
-     * Displays the total number of fully vaccinated individuals by ZIP code.
-     */
-    public int showTotalFullyVaccinatedByZipCode() {
-
-            // Group vaccinations by ZIP code and find the maximum "fully_vaccinated" count for each ZIP code
-            Map<String, DoubleSummaryStatistics> summaryByZipCode = vaccinationData.stream()
-                    .collect(Collectors.groupingBy(
-                            Vaccination::getZipCode,
-                            Collectors.summarizingDouble(Vaccination::getFullyVaccinated)
-                    ));
-
-            // Calculate the sum of maximum "fully_vaccinated" counts for all ZIP codes
-            double totalFullyVaccinated = summaryByZipCode.values().stream()
-                    .mapToDouble(DoubleSummaryStatistics::getMax)
-                    .sum();
-
-            // Display the result
-//            System.out.println((int)totalFullyVaccinated);
-            logger.logEvent("Total fully vaccinated: " + (int)totalFullyVaccinated);
-        return (int)totalFullyVaccinated;
-    }
-
-}
+package edu.upenn.cit594.processor;
+import edu.upenn.cit594.datamanagement.CSVFormatException;
+import edu.upenn.cit594.datamanagement.Vaccination;
+import edu.upenn.cit594.datamanagement.DataReader;
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+import edu.upenn.cit594.logging.Logger;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processes vaccination data and provides methods to show various vaccination statistics.
+ * The vaccination data is loaded and sealed by the constructor and never changes afterwards, so a loaded
+ * processor can answer queries from several threads at once. When the vaccination or population file changes,
+ * a new processor is made with {@link #withAppendedRows(long, long)}, {@link #reload()} or
+ * {@link #withPopulation(CompletableFuture)} instead.
+ */
+public class VaccinationDataProcessor {
+    /**
+     * Receives the points of a time series of vaccinations per capita, in order of date and then of ZIP code.
+     */
+    public interface SeriesConsumer {
+        /**
+         * @param date The date of the point, in the format YYYY-MM-DD.
+         * @param zipCode The ZIP code of the point.
+         * @param vaccinationsPerCapita The vaccinations per capita of the ZIP code on the date.
+         */
+        void accept(String date, String zipCode, double vaccinationsPerCapita);
+    }
+
+    Logger logger = Logger.getInstance();
+
+    private final CompletableFuture<PopulationDataProcessor> populationDataProcessor;  // May still be loading
+    private final DataReader<Vaccination> vaccinationDataReader;  // Updated to use DataReader interface
+    final String vaccinationFilePath;
+    final VaccinationStore vaccinationData;  // Column-oriented, sorted by date and ZIP Code
+    private final Map<String, Map<String, Double>> vaccinationsPerCapitaCache;  // Results by "date:type"
+
+
+    /**
+     * Constructor for VaccinationDataProcessor.
+     *
+     * @param vaccinationDataReader The data reader for vaccination data.
+     * @param populationDataProcessor The processor for population data.
+     * @param vaccinationFilePath The file path for vaccination data.
+     */
+    public VaccinationDataProcessor(DataReader<Vaccination> vaccinationDataReader, PopulationDataProcessor populationDataProcessor, String vaccinationFilePath) throws CSVFormatException, IOException {
+        this(vaccinationDataReader, CompletableFuture.completedFuture(populationDataProcessor), vaccinationFilePath);
+    }
+
+
+    /**
+     * Constructor for a vaccination processor whose population data may still be loading. The vaccination data
+     * is loaded straight away; the population data is only waited for by the queries that use it.
+     *
+     * @param vaccinationDataReader The data reader for vaccination data.
+     * @param populationDataProcessor The processor for population data, once it is loaded.
+     * @param vaccinationFilePath The file path for vaccination data.
+     */
+    public VaccinationDataProcessor(DataReader<Vaccination> vaccinationDataReader, CompletableFuture<PopulationDataProcessor> populationDataProcessor, String vaccinationFilePath) throws CSVFormatException, IOException {
+        this.vaccinationDataReader = vaccinationDataReader;
+        this.populationDataProcessor = populationDataProcessor;
+        this.vaccinationFilePath = vaccinationFilePath;
+        this.vaccinationData = new VaccinationStore();
+        this.vaccinationsPerCapitaCache = new ConcurrentHashMap<>();
+        vaccinationDataReader.streamData(vaccinationFilePath, vaccinationData::add);
+        vaccinationData.seal();
+        logger.logEvent(Logger.Level.AUDIT, "Vaccination data file: " + vaccinationFilePath);
+    }
+
+
+    /**
+     * Constructor for a processor derived from another one, with the same reader and file.
+     *
+     * @param vaccinationDataProcessor The processor the new one is derived from.
+     * @param vaccinationData The sealed vaccination data of the new processor.
+     * @param populationDataProcessor The processor for population data, once it is loaded.
+     * @param vaccinationsPerCapitaCache The cached results that are still valid for the new processor.
+     */
+    private VaccinationDataProcessor(VaccinationDataProcessor vaccinationDataProcessor, VaccinationStore vaccinationData,
+                                     CompletableFuture<PopulationDataProcessor> populationDataProcessor,
+                                     Map<String, Map<String, Double>> vaccinationsPerCapitaCache) {
+        this.vaccinationDataReader = vaccinationDataProcessor.vaccinationDataReader;
+        this.vaccinationFilePath = vaccinationDataProcessor.vaccinationFilePath;
+        this.vaccinationData = vaccinationData;
+        this.populationDataProcessor = populationDataProcessor;
+        this.vaccinationsPerCapitaCache = vaccinationsPerCapitaCache;
+    }
+
+
+    /**
+     * Creates a new processor with the data of this one and the records in a byte range of the vaccination file,
+     * such as the rows appended to it. A new record for a date and ZIP code that is already known replaces the
+     * old one, the same as when the whole file is loaded. Only the dates of the new records lose their cached
+     * results. This processor is not changed.
+     *
+     * @param start The offset of the first appended byte.
+     * @param end The offset just past the last appended row.
+     * @return The new processor, or null if the reader cannot read part of the file, as for JSON files.
+     */
+    public VaccinationDataProcessor withAppendedRows(long start, long end) throws CSVFormatException, IOException {
+        VaccinationStore appendedData = new VaccinationStore(vaccinationData);
+        Set<String> changedDates = new HashSet<>();
+        boolean read = vaccinationDataReader.streamAppended(vaccinationFilePath, start, end, vaccination -> {
+            appendedData.add(vaccination);
+            String timestamp = vaccination.getEtlTimestamp();
+            changedDates.add(timestamp.length() >= 10 ? timestamp.substring(0, 10) : timestamp);
+        });
+        if (!read) {
+            return null;
+        }
+        appendedData.seal();
+
+        // cache keys are "date:type"; keep the results of the dates without new records
+        Map<String, Map<String, Double>> cache = new ConcurrentHashMap<>();
+        vaccinationsPerCapitaCache.forEach((key, result) -> {
+            if (!changedDates.contains(key.substring(0, key.indexOf(':')))) {
+                cache.put(key, result);
+            }
+        });
+        logger.logEvent(Logger.Level.AUDIT, "Vaccination data appended from " + vaccinationFilePath);
+        return new VaccinationDataProcessor(this, appendedData, populationDataProcessor, cache);
+    }
+
+
+    /**
+     * Creates a new processor that loads the whole vaccination file again. This processor is not changed.
+     *
+     * @return The new processor.
+     */
+    public VaccinationDataProcessor reload() throws CSVFormatException, IOException {
+        return new VaccinationDataProcessor(vaccinationDataReader, populationDataProcessor, vaccinationFilePath);
+    }
+
+
+    /**
+     * Creates a new processor with the same vaccination data as this one and new population data. The
+     * vaccination data is shared with this processor; the cached results, which depend on the population, are not.
+     *
+     * @param populationDataProcessor The processor for the new population data, once it is loaded.
+     * @return The new processor.
+     */
+    public VaccinationDataProcessor withPopulation(CompletableFuture<PopulationDataProcessor> populationDataProcessor) {
+        return new VaccinationDataProcessor(this, vaccinationData, populationDataProcessor, new ConcurrentHashMap<>());
+    }
+
+
+    /**
+     * Displays vaccinations per capita for a specified date and vaccination type.
+     *
+     * @param scanner The scanner to read user input.
+     */
+    public void showVaccinationsPerCapita(Scanner scanner) {
+            String vaccinationType;
+            while (true) {
+                vaccinationType = scanner.nextLine().trim(); // Trim to remove leading/trailing whitespaces
+                logger.logEvent(Logger.Level.AUDIT, "Vaccination type: " + vaccinationType);
+                if ("partial".equalsIgnoreCase(vaccinationType) || "full".equalsIgnoreCase(vaccinationType)) {
+                    break; // Break the loop if the input is valid
+                } else {
+                    System.out.println("Enter the vaccination type (partial or full):");
+                }
+            }
+
+            String dateStr;
+            while (true) {
+                System.out.println("Enter the date in the format YYYY-MM-DD:");
+                dateStr = scanner.next().trim(); // Trim to remove leading/trailing whitespaces
+                System.out.println(dateStr);
+                logger.logEvent(Logger.Level.AUDIT, "Date: " + dateStr);
+
+                Date specifiedDate = parseDate(dateStr);
+                if (specifiedDate != null) {
+                    Map<String, Double> vaccinationsPerCapita = calculateVaccinationsPerCapita(specifiedDate, vaccinationType);
+                    displayVaccinationsPerCapita(vaccinationsPerCapita);
+                    break; // Break the loop if the input is valid
+                } else {
+                    System.out.println("Invalid date format. Please enter a valid date in the format YYYY-MM-DD.");
+                }
+            }
+    }
+
+
+    /**
+     * Displays vaccinations per capita for a vaccination type and date given up front, without prompting.
+     *
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param dateStr The date in the format YYYY-MM-DD.
+     * @return false if the type or the date is invalid, in which case nothing is displayed.
+     */
+    public boolean showVaccinationsPerCapita(String vaccinationType, String dateStr) {
+        logger.logEvent(Logger.Level.AUDIT, "Vaccination type: " + vaccinationType);
+        logger.logEvent(Logger.Level.AUDIT, "Date: " + dateStr);
+        Map<String, Double> vaccinationsPerCapita = getVaccinationsPerCapita(vaccinationType, dateStr);
+        if (vaccinationsPerCapita == null) {
+            return false;
+        }
+        displayVaccinationsPerCapita(vaccinationsPerCapita);
+        return true;
+    }
+
+
+    /**
+     * Gets the vaccinations per capita for a vaccination type and date without displaying them.
+     * The result may be shared with other callers and cannot be modified.
+     *
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param dateStr The date in the format YYYY-MM-DD.
+     * @return A map of ZIP codes to their vaccinations per capita, in ZIP Code order, or null if the type or the
+     * date is invalid.
+     */
+    public Map<String, Double> getVaccinationsPerCapita(String vaccinationType, String dateStr) {
+        if (!"partial".equalsIgnoreCase(vaccinationType) && !"full".equalsIgnoreCase(vaccinationType)) {
+            return null;
+        }
+        Date specifiedDate = parseDate(dateStr);
+        if (specifiedDate == null) {
+            return null;
+        }
+        return calculateVaccinationsPerCapita(specifiedDate, vaccinationType);
+    }
+
+
+    /**
+     * Parses a date string into a Date object.
+     *
+     * @param dateStr The date string to be parsed.
+     * @return The parsed Date object or null if parsing fails.
+     */
+    private Date parseDate(String dateStr) {
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd").parse(dateStr);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Calculates the vaccinations per capita for a specified date and vaccination type (full or partial).
+     *
+     * @param specifiedDate The date for which to calculate the statistics.
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @return A map of ZIP codes to their vaccinations per capita, in ZIP Code order.
+     */
+    private Map<String, Double> calculateVaccinationsPerCapita(Date specifiedDate, String vaccinationType) {
+        String specifiedDateStr = new SimpleDateFormat("yyyy-MM-dd").format(specifiedDate);
+        //if the result is already cached, return the cached result
+        String cacheKey = specifiedDateStr + ":" + vaccinationType.toLowerCase();
+        Map<String, Double> cached = vaccinationsPerCapitaCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        // the date index gives the records of the date as one contiguous range of rows, already in ZIP Code order
+        long day = LocalDate.parse(specifiedDateStr).toEpochDay();
+        VaccinationStore.Metric metric = getVaccinationMetric(vaccinationType);
+        Map<String, Double> zipToVaccinations = new LinkedHashMap<>();
+        for (int row = vaccinationData.firstRow(day), end = vaccinationData.firstRow(day + 1); row < end; row++) {
+            String zipCode = vaccinationData.getZipCode(row);
+            double vaccinationCount = metric == null ? 0.0 : vaccinationData.get(metric, row);
+            double population = getPopulation(vaccinationData.getZipId(row));
+            double resultValue = population > 0 ? vaccinationCount / population : 0.0;
+            //Four decimal places, only formatted when debug events are logged
+            logger.logEvent(Logger.Level.DEBUG, () -> String.format("Vaccinations per capita for %s on %s: %.4f", zipCode, specifiedDateStr, resultValue));
+            zipToVaccinations.put(zipCode, resultValue);
+        }
+
+        // save result to cache; two callers may both calculate the same result, and either may be kept
+        zipToVaccinations = Collections.unmodifiableMap(zipToVaccinations);
+        vaccinationsPerCapitaCache.put(cacheKey, zipToVaccinations);
+
+        return zipToVaccinations;
+    }
+
+
+
+    /**
+     * Streams the vaccinations per capita of every ZIP code, or of some of them, on every day of a date range.
+     * The records are already sorted by date and ZIP code, so the whole range is one pass over a contiguous range
+     * of rows, and each point is handed to the consumer as it is calculated: nothing is kept, whatever the length
+     * of the range. Every record in the range is streamed, with 0 for a ZIP code without population.
+     *
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @param startDateStr The first date of the range in the format YYYY-MM-DD.
+     * @param endDateStr The last date of the range in the format YYYY-MM-DD, included.
+     * @param zipCodes The ZIP codes to stream, or null for all of them.
+     * @param consumer The consumer of the points.
+     * @return false if the type or a date is invalid, or the range ends before it starts, in which case nothing is
+     * streamed.
+     */
+    public boolean streamVaccinationsPerCapita(String vaccinationType, String startDateStr, String endDateStr,
+                                               Collection<String> zipCodes, SeriesConsumer consumer) {
+        VaccinationStore.Metric metric = getVaccinationMetric(vaccinationType);
+        Date startDate = parseDate(startDateStr);
+        Date endDate = parseDate(endDateStr);
+        if (metric == null || startDate == null || endDate == null || endDate.before(startDate)) {
+            return false;
+        }
+        boolean[] selected = null;  // by ZIP code id, or null for every ZIP code
+        if (zipCodes != null) {
+            selected = new boolean[ZipCodeDictionary.SIZE];
+            for (String zipCode : zipCodes) {
+                int zipId = ZipCodeDictionary.encode(zipCode);
+                if (zipId != ZipCodeDictionary.NO_ZIP_CODE) {
+                    selected[zipId] = true;
+                }
+            }
+        }
+
+        PopulationDataProcessor population = populationDataProcessor.join();
+        int day = 0;
+        String date = null;  // the date of the current day, formatted once per day
+        for (int row = vaccinationData.firstRow(toEpochDay(startDate)), end = vaccinationData.firstRow(toEpochDay(endDate) + 1);
+             row < end; row++) {
+            int zipId = vaccinationData.getZipId(row);
+            if (selected != null && (zipId == ZipCodeDictionary.NO_ZIP_CODE || !selected[zipId])) {
+                continue;
+            }
+            if (date == null || vaccinationData.getDay(row) != day) {
+                day = vaccinationData.getDay(row);
+                date = LocalDate.ofEpochDay(day).toString();
+            }
+            int zipPopulation = population.getPopulationByZipId(zipId);
+            double vaccinationsPerCapita = zipPopulation > 0 ? (double) vaccinationData.get(metric, row) / zipPopulation : 0.0;
+            consumer.accept(date, vaccinationData.getZipCode(row), vaccinationsPerCapita);
+        }
+        return true;
+    }
+
+
+    /**
+     * Converts a date to the epoch day the vaccination store keys its rows by.
+     */
+    private static long toEpochDay(Date date) {
+        return LocalDate.parse(new SimpleDateFormat("yyyy-MM-dd").format(date)).toEpochDay();
+    }
+
+
+    /**
+     * Offers the vaccinations per capita of every ZIP code on a date to a ranking, in one pass over the records
+     * of the date. ZIP codes without a population are left out.
+     *
+     * @param metric Full or partial vaccinations per capita.
+     * @param dateStr The date in the format YYYY-MM-DD.
+     * @param ranking The ranking to offer the values to.
+     * @return false if the date is invalid, in which case nothing is offered.
+     */
+    public boolean rankZipCodes(ZipCodeMetric metric, String dateStr, ZipCodeRanking ranking) {
+        if (!metric.requiresDate()) {
+            throw new IllegalArgumentException("Not a vaccination metric: " + metric.getName());
+        }
+        Date specifiedDate = parseDate(dateStr);
+        if (specifiedDate == null) {
+            return false;
+        }
+        long day = toEpochDay(specifiedDate);
+        VaccinationStore.Metric column = metric == ZipCodeMetric.PARTIAL_VACCINATIONS_PER_CAPITA ?
+                VaccinationStore.Metric.PARTIALLY_VACCINATED : VaccinationStore.Metric.FULLY_VACCINATED;
+        PopulationDataProcessor population = populationDataProcessor.join();
+        for (int row = vaccinationData.firstRow(day), end = vaccinationData.firstRow(day + 1); row < end; row++) {
+            int zipPopulation = population.getPopulationByZipId(vaccinationData.getZipId(row));
+            if (zipPopulation > 0) {
+                ranking.offer(vaccinationData.getZipId(row), (double) vaccinationData.get(column, row) / zipPopulation);
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Gets the column of the vaccination store that holds the counts for a vaccination type.
+     *
+     * @param vaccinationType The type of vaccination (partial or full).
+     * @return The metric, or null for any other type.
+     */
+    private VaccinationStore.Metric getVaccinationMetric(String vaccinationType) {
+        if ("partial".equalsIgnoreCase(vaccinationType)) {
+            return VaccinationStore.Metric.PARTIALLY_VACCINATED;
+        } else if ("full".equalsIgnoreCase(vaccinationType)) {
+            return VaccinationStore.Metric.FULLY_VACCINATED;
+        }
+        return null;
+    }
+
+
+    /**
+     * Gets the population for a given ZIP code.
+     *
+     * @param zipId The id of the ZIP code in the {@link edu.upenn.cit594.datamanagement.ZipCodeDictionary}.
+     * @return The population of the ZIP code.
+     */
+    private double getPopulation(int zipId) {
+        return populationDataProcessor.join().getPopulationByZipId(zipId);
+    }
+
+
+    /**
+     * Displays the vaccinations per capita data.
+     *
+     * @param vaccinationsPerCapita The map of ZIP codes to their vaccinations per capita, in ZIP Code order.
+     */
+    private void displayVaccinationsPerCapita(Map<String, Double> vaccinationsPerCapita) {
+        System.out.println("BEGIN OUTPUT");
+
+        // Check if there are any valid records for the provided date
+        boolean dataFound = vaccinationsPerCapita.values().stream()
+                .anyMatch(value -> value > 0);
+
+        if (!dataFound) {
+            System.out.println("0");
+        } else {
+            vaccinationsPerCapita.forEach((zipCode, vaccinationsPerCapitaValue) -> {
+                if (vaccinationsPerCapitaValue > 0) {
+                    System.out.printf("%s %.4f%n", zipCode, vaccinationsPerCapitaValue);
+                }
+            });
+        }
+
+        System.out.println("END OUTPUT");
+    }
+
+
+    /**
+     * Displays the total number of fully vaccinated individuals by ZIP code.
+     */
+    public int showTotalFullyVaccinatedByZipCode() {
+
+            // Sum the maximum "fully_vaccinated" count of each ZIP code, which the store found when it was sealed
+            int totalFullyVaccinated = (int) vaccinationData.sumOfZipMaxima(VaccinationStore.Metric.FULLY_VACCINATED);
+
+            // Display the result
+            logger.logEvent("Total fully vaccinated: " + totalFullyVaccinated);
+        return totalFullyVaccinated;
+    }
+
+}
@@ -0,0 +1,386 @@
+package edu.upenn.cit594.processor;
+
+import edu.upenn.cit594.datamanagement.Vaccination;
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Column-oriented storage for vaccination data.
+ * Every count is kept in its own int[] column, the ZIP code as its id in the {@link ZipCodeDictionary}
+ * and the reporting date as an epoch day. Rows are appended while the data is loaded; {@link #seal()} then
+ * sorts them by (day, ZIP code), so all the records of one day are a contiguous range of rows, already in
+ * ZIP code order. A date index built at the same time maps each distinct day to the start of its range, so
+ * {@link #firstRow(long)} searches the days, not the rows.
+ *
+ * Records appended to the source file later go into a copy of the store, made with
+ * {@link #VaccinationStore(VaccinationStore)}. Its rows start out already sorted, so sealing the copy only
+ * sorts the new rows and merges them in, and folds them into the per-ZIP maxima kept from the original.
+ */
+public class VaccinationStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_DAY = Integer.MIN_VALUE;  // day of a record whose timestamp has no valid date; sorts first
+
+    /**
+     * The count columns of the store.
+     */
+    public enum Metric {
+        NEG,
+        POS,
+        DEATHS,
+        HOSPITALIZED,
+        PARTIALLY_VACCINATED,
+        FULLY_VACCINATED,
+        BOOSTED
+    }
+
+    private final int[][] metrics = new int[Metric.values().length][INITIAL_CAPACITY];
+    private int[] zipIds = new int[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private int size;
+    private int sortedRows;  // the leading rows copied from a sealed store, already sorted and deduplicated
+
+    private int[] indexDays = new int[0];        // the distinct days, ascending, once sealed
+    private int[] indexStarts = {0};             // first row of each distinct day, followed by size
+    private long[] zipMaxTotals;                // sum over the ZIP codes of the largest count of each metric
+    private int[][] zipMaxima;                  // largest count of each metric by ZIP code id + 1, once sealed
+    private boolean[] zipSeen;                  // whether any record has the ZIP code id + 1, once sealed
+    private boolean sealed;
+
+    /**
+     * Creates an empty store.
+     */
+    public VaccinationStore() {
+    }
+
+    /**
+     * Creates an unsealed copy of a sealed store, with the same rows and per-ZIP maxima, that further records
+     * can be added to. The original is not changed.
+     *
+     * @param store The sealed store to copy.
+     * @throws IllegalArgumentException if the store is not sealed.
+     */
+    public VaccinationStore(VaccinationStore store) {
+        if (!store.sealed) {
+            throw new IllegalArgumentException("Only a sealed vaccination store can be copied");
+        }
+        int capacity = store.size + INITIAL_CAPACITY;
+        for (int m = 0; m < metrics.length; m++) {
+            metrics[m] = Arrays.copyOf(store.metrics[m], capacity);
+        }
+        zipIds = Arrays.copyOf(store.zipIds, capacity);
+        days = Arrays.copyOf(store.days, capacity);
+        size = store.size;
+        sortedRows = store.size;
+        zipMaxima = new int[metrics.length][];
+        for (int m = 0; m < metrics.length; m++) {
+            zipMaxima[m] = store.zipMaxima[m].clone();
+        }
+        zipSeen = store.zipSeen.clone();
+    }
+
+    /**
+     * Appends a vaccination record to the store. Must not be called once the store is sealed.
+     *
+     * @param vaccination The record to add.
+     */
+    public void add(Vaccination vaccination) {
+        if (sealed) {
+            throw new IllegalStateException("Vaccination store is sealed");
+        }
+        if (size == days.length) {
+            int capacity = size * 2;
+            for (int m = 0; m < metrics.length; m++) {
+                metrics[m] = Arrays.copyOf(metrics[m], capacity);
+            }
+            zipIds = Arrays.copyOf(zipIds, capacity);
+            days = Arrays.copyOf(days, capacity);
+        }
+        metrics[Metric.NEG.ordinal()][size] = vaccination.getNeg();
+        metrics[Metric.POS.ordinal()][size] = vaccination.getPos();
+        metrics[Metric.DEATHS.ordinal()][size] = vaccination.getDeaths();
+        metrics[Metric.HOSPITALIZED.ordinal()][size] = vaccination.getHospitalized();
+        metrics[Metric.PARTIALLY_VACCINATED.ordinal()][size] = vaccination.getPartiallyVaccinated();
+        metrics[Metric.FULLY_VACCINATED.ordinal()][size] = vaccination.getFullyVaccinated();
+        metrics[Metric.BOOSTED.ordinal()][size] = vaccination.getBoosted();
+        zipIds[size] = vaccination.getZipId();
+        days[size] = epochDay(vaccination.getEtlTimestamp());
+        size++;
+    }
+
+    /**
+     * Reads the date at the start of a "YYYY-MM-DD hh:mm:ss" timestamp as an epoch day.
+     *
+     * @return The epoch day, or NO_DAY if the timestamp does not start with a valid date.
+     */
+    private static int epochDay(String timestamp) {
+        if (timestamp == null || timestamp.length() < 10 || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-') {
+            return NO_DAY;
+        }
+        int year = digits(timestamp, 0, 4);
+        int month = digits(timestamp, 5, 7);
+        int day = digits(timestamp, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return NO_DAY;
+        }
+        try {
+            return Math.toIntExact(LocalDate.of(year, month, day).toEpochDay());
+        } catch (DateTimeException e) {
+            return NO_DAY;
+        }
+    }
+
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Finishes loading: totals the per-ZIP maxima, sorts the rows by (day, ZIP code) and keeps only the last record loaded for each (day, ZIP code) pair.
+     */
+    public void seal() {
+        if (sealed) {
+            return;
+        }
+        sealed = true;
+        totalZipMaxima();
+        int[] order = sortedOrder(sortedRows);
+        if (sortedRows > 0) {
+            order = mergeWithSortedRows(order);
+        }
+
+        // gather the columns in sorted order, keeping the last loaded row of each (day, ZIP code)
+        int[] newDays = new int[size];
+        int[] newZipIds = new int[size];
+        int[][] newMetrics = new int[metrics.length][size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            if (count > 0 && newDays[count - 1] == days[row] && newZipIds[count - 1] == zipIds[row]) {
+                count--; // a later record for the same day and ZIP code replaces the earlier one
+            }
+            newDays[count] = days[row];
+            newZipIds[count] = zipIds[row];
+            for (int m = 0; m < metrics.length; m++) {
+                newMetrics[m][count] = metrics[m][row];
+            }
+            count++;
+        }
+        days = Arrays.copyOf(newDays, count);
+        zipIds = Arrays.copyOf(newZipIds, count);
+        for (int m = 0; m < metrics.length; m++) {
+            metrics[m] = Arrays.copyOf(newMetrics[m], count);
+        }
+        size = count;
+        buildDateIndex();
+    }
+
+    /**
+     * Records where the rows of each distinct day start.
+     */
+    private void buildDateIndex() {
+        int dayCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || days[i] != days[i - 1]) {
+                dayCount++;
+            }
+        }
+        indexDays = new int[dayCount];
+        indexStarts = new int[dayCount + 1];
+        int d = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || days[i] != days[i - 1]) {
+                indexDays[d] = days[i];
+                indexStarts[d] = i;
+                d++;
+            }
+        }
+        indexStarts[dayCount] = size;
+    }
+
+    /**
+     * Sums, for every metric, the largest count reported for each ZIP code over all records. The maxima of the
+     * rows copied from another store are kept from it, so only the rows added since are scanned.
+     */
+    private void totalZipMaxima() {
+        if (zipMaxima == null) {
+            // indexed by ZIP code id + 1, so that NO_ZIP_CODE has a slot of its own
+            zipMaxima = new int[metrics.length][ZipCodeDictionary.SIZE + 1];
+            for (int[] max : zipMaxima) {
+                Arrays.fill(max, Integer.MIN_VALUE);
+            }
+            zipSeen = new boolean[ZipCodeDictionary.SIZE + 1];
+        }
+        for (int i = sortedRows; i < size; i++) {
+            zipSeen[zipIds[i] + 1] = true;
+        }
+        zipMaxTotals = new long[metrics.length];
+        for (int m = 0; m < metrics.length; m++) {
+            int[] max = zipMaxima[m];
+            int[] values = metrics[m];
+            for (int i = sortedRows; i < size; i++) {
+                int slot = zipIds[i] + 1;
+                if (values[i] > max[slot]) {
+                    max[slot] = values[i];
+                }
+            }
+            long total = 0;
+            for (int slot = 0; slot < max.length; slot++) {
+                if (zipSeen[slot]) {
+                    total += max[slot];
+                }
+            }
+            zipMaxTotals[m] = total;
+        }
+    }
+
+    /**
+     * Computes the order of the rows from a given row on, sorted by (day, ZIP code), with rows of equal keys
+     * kept in load order. The key and the row number are packed into one long and sorted as primitives when the
+     * range of days allows it, which is always the case for real data.
+     *
+     * @param from The first row to sort.
+     * @return The sorted rows.
+     */
+    private int[] sortedOrder(int from) {
+        int count = size - from;
+        int[] order = new int[count];
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int i = from; i < size; i++) {
+            minDay = Math.min(minDay, days[i]);
+            maxDay = Math.max(maxDay, days[i]);
+        }
+        long zipRange = ZipCodeDictionary.SIZE + 1;
+        long keyRange = count == 0 ? 0 : ((long) maxDay - minDay + 1) * zipRange;
+        if (keyRange <= Integer.MAX_VALUE) {
+            long[] packed = new long[count];
+            for (int i = from; i < size; i++) {
+                long key = ((long) days[i] - minDay) * zipRange + zipIds[i] + 1;
+                packed[i - from] = key << 32 | i;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < count; i++) {
+                order[i] = (int) packed[i];
+            }
+        } else {
+            Integer[] rows = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                rows[i] = from + i;
+            }
+            Arrays.sort(rows, Comparator.<Integer>comparingInt(row -> days[row]).thenComparingInt(row -> zipIds[row]));
+            for (int i = 0; i < count; i++) {
+                order[i] = rows[i];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Merges the sorted order of the rows added to a copied store with its leading rows, which are already
+     * sorted. Of two rows with the same (day, ZIP code), the copied one comes first, as it was loaded first.
+     *
+     * @param added The rows added since the copy, in sorted order.
+     * @return The order of all the rows.
+     */
+    private int[] mergeWithSortedRows(int[] added) {
+        int[] order = new int[size];
+        int copied = 0;
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (next == added.length) {
+                order[i] = copied++;
+            } else if (copied == sortedRows) {
+                order[i] = added[next++];
+            } else {
+                int row = added[next];
+                boolean copiedFirst = days[copied] < days[row]
+                        || (days[copied] == days[row] && zipIds[copied] <= zipIds[row]);
+                order[i] = copiedFirst ? copied++ : added[next++];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @return The number of rows in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the first row of a day. Together with {@code firstRow(day + 1)} this gives the contiguous range
+     * of rows reported on that day. The store must be sealed.
+     *
+     * @param epochDay The day, as {@link LocalDate#toEpochDay()}.
+     * @return The index of the first row whose day is not before the given day.
+     */
+    public int firstRow(long epochDay) {
+        int low = 0;
+        int high = indexDays.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (indexDays[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return indexStarts[low];
+    }
+
+    /**
+     * @param row The row.
+     * @return The day the row was reported on, as {@link LocalDate#toEpochDay()}.
+     */
+    public int getDay(int row) {
+        return days[row];
+    }
+
+    /**
+     * @param row The row.
+     * @return The ZIP code of the row.
+     */
+    public String getZipCode(int row) {
+        return ZipCodeDictionary.getZipCode(zipIds[row]);
+    }
+
+    /**
+     * @param row The row.
+     * @return The id of the ZIP code of the row in the {@link ZipCodeDictionary}.
+     */
+    public int getZipId(int row) {
+        return zipIds[row];
+    }
+
+    /**
+     * @param metric The metric.
+     * @param row    The row.
+     * @return The count of the metric in the row.
+     */
+    public int get(Metric metric, int row) {
+        return metrics[metric.ordinal()][row];
+    }
+
+    /**
+     * Sums the largest count of a metric reported for each ZIP code, over every record loaded including
+     * those replaced by a later record for the same day. The store must be sealed.
+     *
+     * @param metric The metric.
+     * @return The sum of the per-ZIP maxima.
+     */
+    public long sumOfZipMaxima(Metric metric) {
+        return zipMaxTotals[metric.ordinal()];
+    }
+}
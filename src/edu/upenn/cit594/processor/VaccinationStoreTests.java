@@ -0,0 +1,175 @@
+package edu.upenn.cit594.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+
+import edu.upenn.cit594.datamanagement.Vaccination;
+import edu.upenn.cit594.processor.VaccinationStore.Metric;
+
+import org.junit.Test;
+
+public class VaccinationStoreTests {
+
+    private static Vaccination record(String zipCode, String timestamp, int fullyVaccinated) {
+        return new Vaccination(zipCode, 0, 0, 0, 0, 0, fullyVaccinated, 0, timestamp);
+    }
+
+    private static int day(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    @Test
+    public void testRowsAreSortedByDayAndZipCode() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19143", "2021-03-26 04:20:02", 1));
+        store.add(record("19104", "2021-03-26 04:20:02", 2));
+        store.add(record("19143", "2021-03-25 04:20:02", 3));
+        store.add(record("19104", "2021-03-25 04:20:02", 4));
+        store.seal();
+
+        assertEquals(4, store.size());
+        String[] zipCodes = {"19104", "19143", "19104", "19143"};
+        int[] counts = {4, 3, 2, 1};
+        for (int row = 0; row < 4; row++) {
+            assertEquals(zipCodes[row], store.getZipCode(row));
+            assertEquals(row < 2 ? day("2021-03-25") : day("2021-03-26"), store.getDay(row));
+            assertEquals(counts[row], store.get(Metric.FULLY_VACCINATED, row));
+        }
+    }
+
+    @Test
+    public void testLastRecordOfADayAndZipCodeWins() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19104", "2021-03-25 04:20:02", 10));
+        store.add(record("19143", "2021-03-25 04:20:02", 20));
+        // a later record for the same day and ZIP code, at another time of day
+        store.add(record("19104", "2021-03-25 18:00:00", 11));
+        store.add(record("19104", "2021-03-26 04:20:02", 12));
+        store.add(record("19104", "2021-03-25 09:00:00", 13));
+        store.seal();
+
+        assertEquals(3, store.size());
+        assertEquals("19104", store.getZipCode(0));
+        assertEquals(13, store.get(Metric.FULLY_VACCINATED, 0));
+        assertEquals("19143", store.getZipCode(1));
+        assertEquals(20, store.get(Metric.FULLY_VACCINATED, 1));
+        assertEquals(12, store.get(Metric.FULLY_VACCINATED, 2));
+    }
+
+    @Test
+    public void testRecordsWithoutAValidDateSortFirst() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19104", "2021-03-25 04:20:02", 1));
+        store.add(record("19104", "2021-02-30 04:20:02", 2));
+        store.add(record("19143", "not a date", 3));
+        store.add(record("19104", null, 4));
+        store.seal();
+
+        // the two undated records of 19104 count as the same day, so the last one wins
+        assertEquals(3, store.size());
+        assertEquals(4, store.get(Metric.FULLY_VACCINATED, 0));
+        assertEquals(3, store.get(Metric.FULLY_VACCINATED, 1));
+        assertEquals(1, store.get(Metric.FULLY_VACCINATED, 2));
+        assertEquals(2, store.firstRow(day("2021-03-25")));
+        assertEquals(0, store.firstRow(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testSumOfZipMaximaIncludesReplacedRecords() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19104", "2021-03-25 04:20:02", 50));
+        store.add(record("19104", "2021-03-25 18:00:00", 40));
+        store.add(record("19143", "2021-03-26 04:20:02", 7));
+        store.seal();
+
+        assertEquals(57, store.sumOfZipMaxima(Metric.FULLY_VACCINATED));
+        assertEquals(0, store.sumOfZipMaxima(Metric.BOOSTED));
+    }
+
+    @Test
+    public void testAppendedRecordsMergeIntoACopy() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19104", "2021-03-25 04:20:02", 1));
+        store.add(record("19143", "2021-03-27 04:20:02", 2));
+        store.seal();
+
+        VaccinationStore copy = new VaccinationStore(store);
+        copy.add(record("19143", "2021-03-25 04:20:02", 3));
+        copy.add(record("19104", "2021-03-25 18:00:00", 4));
+        copy.add(record("19104", "2021-03-26 04:20:02", 5));
+        copy.seal();
+
+        assertEquals(2, store.size());
+        assertEquals(4, copy.size());
+        int[] counts = {4, 3, 5, 2};
+        for (int row = 0; row < counts.length; row++) {
+            assertEquals(counts[row], copy.get(Metric.FULLY_VACCINATED, row));
+        }
+        assertEquals(8, copy.sumOfZipMaxima(Metric.FULLY_VACCINATED));
+    }
+
+    @Test
+    public void testDateIndex() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19143", "2021-03-27 04:20:02", 1));
+        store.add(record("19104", "2021-03-25 04:20:02", 2));
+        store.add(record("19143", "2021-03-25 04:20:02", 3));
+        store.add(record("19104", "2021-03-27 04:20:02", 4));
+        store.add(record("19130", "2021-03-27 04:20:02", 5));
+        store.add(record("19104", "2021-04-01 04:20:02", 6));
+        store.seal();
+
+        // days with records start where their rows do
+        assertEquals(0, store.firstRow(day("2021-03-25")));
+        assertEquals(2, store.firstRow(day("2021-03-27")));
+        assertEquals(5, store.firstRow(day("2021-04-01")));
+        // days without records start where the next day with records does
+        assertEquals(0, store.firstRow(day("2020-01-01")));
+        assertEquals(2, store.firstRow(day("2021-03-26")));
+        assertEquals(5, store.firstRow(day("2021-03-28")));
+        assertEquals(6, store.firstRow(day("2021-04-02")));
+
+        // the rows of a day are the range up to the first row of the next day
+        int from = store.firstRow(day("2021-03-27"));
+        int to = store.firstRow(day("2021-03-28"));
+        assertEquals(3, to - from);
+        assertEquals("19104", store.getZipCode(from));
+        assertEquals("19130", store.getZipCode(from + 1));
+        assertEquals("19143", store.getZipCode(from + 2));
+    }
+
+    @Test
+    public void testDateIndexOfEmptyStore() {
+        VaccinationStore store = new VaccinationStore();
+        store.seal();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.firstRow(day("2021-03-25")));
+    }
+
+    @Test
+    public void testDateIndexOfAppendedRecords() {
+        VaccinationStore store = new VaccinationStore();
+        store.add(record("19104", "2021-03-25 04:20:02", 1));
+        store.add(record("19104", "2021-03-27 04:20:02", 2));
+        store.seal();
+
+        VaccinationStore copy = new VaccinationStore(store);
+        copy.add(record("19104", "2021-03-26 04:20:02", 3));
+        copy.add(record("19143", "2021-03-26 04:20:02", 4));
+        copy.seal();
+
+        assertEquals(1, store.firstRow(day("2021-03-26")));
+        assertEquals(1, copy.firstRow(day("2021-03-26")));
+        assertEquals(3, copy.firstRow(day("2021-03-27")));
+        assertEquals(4, copy.firstRow(day("2021-03-28")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSealedStoreRejectsRecords() {
+        VaccinationStore store = new VaccinationStore();
+        store.seal();
+        store.add(record("19104", "2021-03-25 04:20:02", 1));
+    }
+}
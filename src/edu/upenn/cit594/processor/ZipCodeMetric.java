@@ -0,0 +1,68 @@
+package edu.upenn.cit594.processor;
+
+/**
+ * The per-ZIP Code metrics that ZIP Codes can be ranked by, each with the datasets it requires.
+ * A metric is named in queries by the same name as the endpoint of the query server that answers it for one
+ * ZIP Code, for example {@code market-value-per-capita}.
+ */
+public enum ZipCodeMetric {
+    POPULATION("population", "population"),
+    FULL_VACCINATIONS_PER_CAPITA("full-vaccinations-per-capita", "covid", "population"),
+    PARTIAL_VACCINATIONS_PER_CAPITA("partial-vaccinations-per-capita", "covid", "population"),
+    AVERAGE_MARKET_VALUE("average-market-value", "properties"),
+    AVERAGE_TOTAL_LIVABLE_AREA("average-total-livable-area", "properties"),
+    MARKET_VALUE_PER_CAPITA("market-value-per-capita", "properties", "population");
+
+    private final String name;
+    private final String[] requiredParameters;
+
+    /**
+     * @param name The name of the metric in queries.
+     * @param requiredParameters The names of the datasets the metric is calculated from.
+     */
+    ZipCodeMetric(String name, String... requiredParameters) {
+        this.name = name;
+        this.requiredParameters = requiredParameters;
+    }
+
+    /**
+     * Looks up a metric by its name in queries, ignoring case.
+     *
+     * @param name The name of the metric.
+     * @return The metric, or null if there is no metric with that name.
+     */
+    public static ZipCodeMetric fromName(String name) {
+        for (ZipCodeMetric metric : values()) {
+            if (metric.name.equalsIgnoreCase(name)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getRequiredParameters() {
+        return requiredParameters;
+    }
+
+    /**
+     * @return true if the metric is calculated for one day, which has to be given with the query.
+     */
+    public boolean requiresDate() {
+        return this == FULL_VACCINATIONS_PER_CAPITA || this == PARTIAL_VACCINATIONS_PER_CAPITA;
+    }
+
+    /**
+     * Formats a value of the metric the way the single-ZIP Code actions display it: vaccinations per capita
+     * with four decimal places, everything else truncated to an integer.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    public String format(double value) {
+        return requiresDate() ? String.format("%.4f", value) : String.valueOf((long) value);
+    }
+}
@@ -0,0 +1,114 @@
+package edu.upenn.cit594.processor;
+
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the K ZIP Codes with the highest or the lowest values of a metric, as the values are offered one
+ * ZIP Code at a time during a single pass over the data.
+ *
+ * Only the best K ZIP Codes seen so far are kept, in a heap whose head is the worst of them, so a ranking takes
+ * O(n log K) time and O(K) memory for n ZIP Codes; an offered value that does not beat the head is rejected
+ * without allocating anything. Ties are broken by ZIP Code, so the same data always gives the same ranking.
+ */
+public class ZipCodeRanking {
+    /**
+     * Which end of the ranking is kept: the highest values, or the lowest.
+     */
+    public enum Order {
+        TOP,
+        BOTTOM
+    }
+
+    /**
+     * A ZIP Code and its value in a ranking.
+     */
+    public static final class Entry {
+        private final int zipId;
+        private final double value;
+
+        Entry(int zipId, double value) {
+            this.zipId = zipId;
+            this.value = value;
+        }
+
+        public String getZipCode() {
+            return ZipCodeDictionary.getZipCode(zipId);
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    private final boolean highest;
+    private final int size;
+    private final Comparator<Entry> best;  // orders the entries from best to worst
+    private final PriorityQueue<Entry> heap;  // the best entries so far, with the worst of them at the head
+
+    /**
+     * @param order Whether the top (highest) or the bottom (lowest) values are kept.
+     * @param size The number of ZIP Codes to keep, K.
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public ZipCodeRanking(Order order, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The number of ZIP Codes to rank must be at least 1");
+        }
+        Comparator<Entry> byValue = Comparator.comparingDouble(entry -> entry.value);
+        if (order == Order.TOP) {
+            byValue = byValue.reversed();
+        }
+        this.highest = order == Order.TOP;
+        this.size = size;
+        this.best = byValue.thenComparingInt(entry -> entry.zipId);
+        // the initial capacity is capped, since K may be given as "every ZIP Code"
+        this.heap = new PriorityQueue<>(Math.min(size, 1024) + 1, best.reversed());
+    }
+
+    /**
+     * Offers the value of a ZIP Code. Values that are NaN are ignored.
+     *
+     * @param zipId The id of the ZIP Code in the {@link ZipCodeDictionary}.
+     * @param value The value of the metric for the ZIP Code.
+     */
+    public void offer(int zipId, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (heap.size() < size) {
+            heap.add(new Entry(zipId, value));
+            return;
+        }
+        Entry worst = heap.peek();
+        if (compare(zipId, value, worst) < 0) {
+            heap.poll();
+            heap.add(new Entry(zipId, value));
+        }
+    }
+
+    /**
+     * Compares an offered value with an entry, in the same order as {@link #best}, without creating an entry
+     * for the value.
+     *
+     * @return A negative number if the offered value ranks before the entry.
+     */
+    private int compare(int zipId, double value, Entry entry) {
+        int byValue = highest ? Double.compare(entry.value, value) : Double.compare(value, entry.value);
+        return byValue != 0 ? byValue : Integer.compare(zipId, entry.zipId);
+    }
+
+    /**
+     * @return The ranked ZIP Codes, best first.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(best);
+        return Collections.unmodifiableList(entries);
+    }
+}
@@ -0,0 +1,249 @@
+package edu.upenn.cit594.ui;
+import edu.upenn.cit594.logging.Logger;
+import edu.upenn.cit594.processor.AverageMarketValueCalculator;
+import edu.upenn.cit594.processor.AverageTotalLivableAreaCalculator;
+import edu.upenn.cit594.processor.DataProcessor;
+import edu.upenn.cit594.processor.MarketValueQuantileCalculator;
+import edu.upenn.cit594.processor.PropertyQuantileCalculator;
+import edu.upenn.cit594.processor.TotalLivableAreaQuantileCalculator;
+import edu.upenn.cit594.processor.ZipCodeMetric;
+import edu.upenn.cit594.processor.ZipCodeRanking;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the queries listed in a file against the loaded data, as a non-interactive alternative to
+ * {@link UserInterface}.
+ *
+ * Each line of the file holds one action number followed by its parameters, separated by whitespace:
+ * <pre>
+ * 2
+ * 3 full 2021-05-01
+ * 4 19149
+ * 8 market-value-per-capita top 20
+ * 8 full-vaccinations-per-capita bottom 20 2021-05-01
+ * 9 full 2021-03-25 2021-06-30 19104 19143
+ * 10 median 19104
+ * 11 p90 19104
+ * </pre>
+ * Blank lines and lines starting with '#' are ignored, and action 0 ends the batch. Only the results are
+ * written, in the same BEGIN OUTPUT / END OUTPUT blocks as the interactive menu; no menu or prompts are
+ * printed, and standard output is buffered for the whole batch. Lines that cannot be run are reported on
+ * standard error.
+ */
+public class BatchQueryRunner {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    Logger logger = Logger.getInstance();
+    private final DataProcessor dataProcessor;
+    private final AverageMarketValueCalculator marketValueCalculator = new AverageMarketValueCalculator();
+    private final AverageTotalLivableAreaCalculator livableAreaCalculator = new AverageTotalLivableAreaCalculator();
+    private final MarketValueQuantileCalculator marketValueQuantileCalculator = new MarketValueQuantileCalculator();
+    private final TotalLivableAreaQuantileCalculator livableAreaQuantileCalculator = new TotalLivableAreaQuantileCalculator();
+
+    /**
+     * Constructs a BatchQueryRunner with a specified DataProcessor.
+     *
+     * @param dataProcessor The data processor to run the queries against.
+     */
+    public BatchQueryRunner(DataProcessor dataProcessor) {
+        this.dataProcessor = dataProcessor;
+    }
+
+    /**
+     * Runs every query in a file, in order.
+     *
+     * @param queriesFilePath The path of the file listing the queries.
+     * @throws IOException if the file cannot be read.
+     */
+    public void run(String queriesFilePath) throws IOException {
+        logger.logEvent(Logger.Level.AUDIT, "Batch queries from " + queriesFilePath);
+        PrintStream console = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(console, OUTPUT_BUFFER_SIZE), false);
+        System.setOut(buffered);
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(queriesFilePath), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                logger.logEvent(Logger.Level.AUDIT, "Batch query: " + line);
+                if (!runQuery(line.split("\\s+"), lineNumber)) {
+                    break;
+                }
+            }
+        } finally {
+            buffered.flush();
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * Runs one query.
+     *
+     * @param query The action number followed by its parameters.
+     * @param lineNumber The line of the file the query is on, for error messages.
+     * @return false if the query ends the batch.
+     */
+    private boolean runQuery(String[] query, int lineNumber) {
+        int action;
+        try {
+            action = Integer.parseInt(query[0]);
+        } catch (NumberFormatException e) {
+            reportError(lineNumber, "Invalid action '" + query[0] + "'");
+            return true;
+        }
+
+        switch (action) {
+            case 0:
+                return false;
+            case 1:
+                dataProcessor.showAvailableActions();
+                break;
+            case 2:
+                dataProcessor.showTotalPopulation();
+                break;
+            case 3:
+                if (hasParameters(query, 2, lineNumber, "a vaccination type and a date")) {
+                    dataProcessor.showVaccinationsPerCapita(query[1], query[2]);
+                }
+                break;
+            case 4:
+                if (hasZipCode(query, lineNumber)) {
+                    dataProcessor.showAveragePropertyMetric(marketValueCalculator, query[1]);
+                }
+                break;
+            case 5:
+                if (hasZipCode(query, lineNumber)) {
+                    dataProcessor.showAveragePropertyMetric(livableAreaCalculator, query[1]);
+                }
+                break;
+            case 6:
+                if (hasZipCode(query, lineNumber)) {
+                    dataProcessor.showTotalMarketValuePerCapita(query[1]);
+                }
+                break;
+            case 7:
+                dataProcessor.showFullyVaxRateToHouseValueCorrelation();
+                break;
+            case 8:
+                runRanking(query, lineNumber);
+                break;
+            case 9:
+                runVaccinationSeries(query, lineNumber);
+                break;
+            case 10:
+                runPropertyQuantile(marketValueQuantileCalculator, query, lineNumber);
+                break;
+            case 11:
+                runPropertyQuantile(livableAreaQuantileCalculator, query, lineNumber);
+                break;
+            default:
+                reportError(lineNumber, "Invalid action " + action + ". Actions are numbered 0 to 11.");
+        }
+        return true;
+    }
+
+    /**
+     * Runs a ranking query: a metric, top or bottom, the number of ZIP Codes and, for the vaccination metrics,
+     * a date.
+     */
+    private void runRanking(String[] query, int lineNumber) {
+        ZipCodeMetric metric = query.length > 1 ? ZipCodeMetric.fromName(query[1]) : null;
+        if (metric == null) {
+            reportError(lineNumber, "Action 8 takes a metric, top or bottom, the number of ZIP Codes and, "
+                    + "for the vaccination metrics, a date");
+            return;
+        }
+        String parameters = metric.requiresDate() ? "top or bottom, the number of ZIP Codes and a date"
+                : "top or bottom and the number of ZIP Codes";
+        if (!hasParameters(query, metric.requiresDate() ? 4 : 3, lineNumber, "a metric, " + parameters)) {
+            return;
+        }
+        if (!"top".equalsIgnoreCase(query[2]) && !"bottom".equalsIgnoreCase(query[2])) {
+            reportError(lineNumber, "Please enter top or bottom.");
+            return;
+        }
+        if (!query[3].matches("\\d{1,9}") || Integer.parseInt(query[3]) == 0) {
+            reportError(lineNumber, "Please enter a positive number of ZIP Codes.");
+            return;
+        }
+        dataProcessor.showZipCodeRanking(metric, ZipCodeRanking.Order.valueOf(query[2].toUpperCase()),
+                Integer.parseInt(query[3]), metric.requiresDate() ? query[4] : null);
+    }
+
+    /**
+     * Runs a vaccination series query: a vaccination type, the first and last dates and, optionally, the ZIP
+     * Codes to list; all of them when none are given.
+     */
+    private void runVaccinationSeries(String[] query, int lineNumber) {
+        if (query.length < 4) {
+            reportError(lineNumber, "Action 9 takes a vaccination type, a first and a last date and, optionally, ZIP Codes");
+            return;
+        }
+        List<String> zipCodes = null;
+        if (query.length > 4) {
+            zipCodes = Arrays.asList(query).subList(4, query.length);
+            for (String zipCode : zipCodes) {
+                if (zipCode.length() != 5) {
+                    reportError(lineNumber, "Please enter a 5-digit zip code.");
+                    return;
+                }
+            }
+        }
+        dataProcessor.showVaccinationSeries(query[1], query[2], query[3], zipCodes);
+    }
+
+    /**
+     * Runs a property quantile query: a quantile, as median or a percentile such as p90, and a ZIP Code.
+     */
+    private void runPropertyQuantile(PropertyQuantileCalculator calculator, String[] query, int lineNumber) {
+        if (!hasParameters(query, 2, lineNumber, "a quantile, such as median or p90, and a ZIP Code")) {
+            return;
+        }
+        double quantile = PropertyQuantileCalculator.parseQuantile(query[1]);
+        if (Double.isNaN(quantile)) {
+            reportError(lineNumber, "Unknown quantile '" + query[1] + "'. Please enter median or a percentile from p0 to p100.");
+            return;
+        }
+        if (query[2].length() != 5) {
+            reportError(lineNumber, "Please enter a 5-digit zip code.");
+            return;
+        }
+        dataProcessor.showPropertyQuantile(calculator, quantile, query[2]);
+    }
+
+    private boolean hasParameters(String[] query, int count, int lineNumber, String description) {
+        if (query.length != count + 1) {
+            reportError(lineNumber, "Action " + query[0] + " takes " + description);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean hasZipCode(String[] query, int lineNumber) {
+        if (!hasParameters(query, 1, lineNumber, "a ZIP Code")) {
+            return false;
+        }
+        if (query[1].length() != 5) {
+            reportError(lineNumber, "Please enter a 5-digit zip code.");
+            return false;
+        }
+        return true;
+    }
+
+    private void reportError(int lineNumber, String message) {
+        System.err.println("Error on line " + lineNumber + " of the queries file: " + message);
+        logger.logEvent(Logger.Level.WARN, "Error on line " + lineNumber + " of the queries file: " + message);
+    }
+}
@@ -0,0 +1,521 @@
+package edu.upenn.cit594.ui;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.upenn.cit594.datamanagement.ZipCodeDictionary;
+import edu.upenn.cit594.logging.Logger;
+import edu.upenn.cit594.processor.AvailableActions;
+import edu.upenn.cit594.processor.AverageMarketValueCalculator;
+import edu.upenn.cit594.processor.AverageTotalLivableAreaCalculator;
+import edu.upenn.cit594.processor.DataProcessor;
+import edu.upenn.cit594.processor.MarketValueQuantileCalculator;
+import edu.upenn.cit594.processor.PropertyAverageCalculator;
+import edu.upenn.cit594.processor.PropertyQuantileCalculator;
+import edu.upenn.cit594.processor.TotalLivableAreaQuantileCalculator;
+import edu.upenn.cit594.processor.ZipCodeMetric;
+import edu.upenn.cit594.processor.ZipCodeRanking;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the queries of the {@link DataProcessor} over HTTP, as an alternative to {@link UserInterface} for
+ * clients that query the loaded data many times.
+ *
+ * Every endpoint answers a GET request with a JSON object:
+ * <pre>
+ * GET /population                                      {"totalPopulation":...}
+ * GET /vaccinations-per-capita?type=full&amp;date=2021-05-01 {"type":...,"date":...,"vaccinationsPerCapita":{"19102":...}}
+ * GET /average-market-value?zip=19104                  {"zipCode":...,"averageMarketValue":...}
+ * GET /average-total-livable-area?zip=19104            {"zipCode":...,"averageTotalLivableArea":...}
+ * GET /market-value-per-capita?zip=19104               {"zipCode":...,"marketValuePerCapita":...}
+ * GET /market-value-quantile?quantile=p90&amp;zip=19104    {"zipCode":...,"quantile":...,"marketValue":...}
+ * GET /total-livable-area-quantile?quantile=median&amp;zip=19104
+ *                                                      {"zipCode":...,"quantile":...,"totalLivableArea":...}
+ * GET /custom-feature                                  {"totalFullyVaccinated":...,"totalPopulation":...,...}
+ * GET /ranking?metric=market-value-per-capita&amp;order=top&amp;k=20[&amp;date=2021-05-01]
+ *                                                      {"metric":...,"order":...,"ranking":[{"zipCode":...,"value":...},...]}
+ * GET /vaccination-series?type=full&amp;start=2021-03-25&amp;end=2021-06-30[&amp;zip=19104,19143]
+ *                                                      {"type":...,"start":...,"end":...,"series":[{"date":...,"zipCode":...,"value":...},...]}
+ * </pre>
+ * The values are the ones the interactive menu displays, with the same truncation to integers. Invalid
+ * parameters are answered with status 400, and a query whose datasets were not provided with status 404; the
+ * body is then {"error":...}. A ranking is answered with status 400 when the datasets of its metric were not
+ * provided, since they depend on the metric parameter.
+ *
+ * A vaccination series can hold millions of points, so it is sent in chunks as the points are calculated rather
+ * than built first. Should it fail after the first chunk, the answer ends without its closing brackets.
+ *
+ * Each request is handled on its own virtual thread when the Java runtime has them, and otherwise on a thread of
+ * a bounded pool, large enough that requests waiting for the datasets they need, or streaming to slow clients, do
+ * not hold up the others.
+ */
+public class QueryServer {
+    private static final int BACKLOG = 1024;  // Connections waiting to be accepted
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;  // Bytes of a streamed answer sent per chunk
+    private static final int MAX_REQUEST_THREADS = 256;  // Requests handled at once without virtual threads
+
+    /**
+     * Answers the query of one endpoint.
+     */
+    private interface Query {
+        /**
+         * @param parameters The decoded parameters of the request.
+         * @return The JSON object to send back.
+         * @throws IllegalArgumentException if a parameter is missing or invalid.
+         */
+        String answer(Map<String, String> parameters);
+    }
+
+    /**
+     * Answers the query of an endpoint whose JSON object is written as it is produced, for answers that are too
+     * large to build in memory first.
+     */
+    private interface StreamingQuery {
+        /**
+         * @param parameters The decoded parameters of the request.
+         * @param response The response to write the JSON object to. Until the query writes to it, it can still
+         *                 fail with an exception and be answered with an error status.
+         * @throws IllegalArgumentException if a parameter is missing or invalid.
+         */
+        void answer(Map<String, String> parameters, StreamingResponse response) throws IOException;
+    }
+
+    /**
+     * A successful response whose status is sent with the first part of the body, which is then sent in chunks.
+     */
+    private static final class StreamingResponse {
+        private final HttpExchange exchange;
+        private Writer out;
+
+        StreamingResponse(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        void write(String json) throws IOException {
+            if (out == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                        STREAM_BUFFER_SIZE);
+            }
+            out.write(json);
+        }
+
+        boolean isStarted() {
+            return out != null;
+        }
+
+        void finish() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    Logger logger = Logger.getInstance();
+    private final DataProcessor dataProcessor;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AverageMarketValueCalculator marketValueCalculator = new AverageMarketValueCalculator();
+    private final AverageTotalLivableAreaCalculator livableAreaCalculator = new AverageTotalLivableAreaCalculator();
+    private final MarketValueQuantileCalculator marketValueQuantileCalculator = new MarketValueQuantileCalculator();
+    private final TotalLivableAreaQuantileCalculator livableAreaQuantileCalculator = new TotalLivableAreaQuantileCalculator();
+
+    /**
+     * Constructs a QueryServer listening on a port. It does not accept requests until it is started.
+     *
+     * @param dataProcessor The data processor to answer the queries with.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be listened on.
+     */
+    public QueryServer(DataProcessor dataProcessor, int port) throws IOException {
+        this.dataProcessor = dataProcessor;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+
+        addEndpoint("/population", AvailableActions.SHOW_TOTAL_POPULATION,
+                parameters -> "{\"totalPopulation\":" + dataProcessor.getTotalPopulation() + "}");
+        addEndpoint("/vaccinations-per-capita", AvailableActions.SHOW_VACCINATIONS_PER_CAPITA,
+                this::vaccinationsPerCapita);
+        addEndpoint("/average-market-value", AvailableActions.SHOW_AVERAGE_MARKET_VALUE,
+                parameters -> averagePropertyMetric(parameters, marketValueCalculator, "averageMarketValue"));
+        addEndpoint("/average-total-livable-area", AvailableActions.SHOW_AVERAGE_TOTAL_LIVABLE_AREA,
+                parameters -> averagePropertyMetric(parameters, livableAreaCalculator, "averageTotalLivableArea"));
+        addEndpoint("/market-value-per-capita", AvailableActions.SHOW_TOTAL_MARKET_VALUE_PER_CAPITA,
+                this::marketValuePerCapita);
+        addEndpoint("/custom-feature", AvailableActions.SHOW_CUSTOM_FEATURE, parameters -> customFeature());
+        addEndpoint("/ranking", AvailableActions.SHOW_ZIP_CODE_RANKING, this::ranking);
+        addEndpoint("/market-value-quantile", AvailableActions.SHOW_MARKET_VALUE_QUANTILE,
+                parameters -> propertyQuantile(parameters, marketValueQuantileCalculator, "marketValue"));
+        addEndpoint("/total-livable-area-quantile", AvailableActions.SHOW_TOTAL_LIVABLE_AREA_QUANTILE,
+                parameters -> propertyQuantile(parameters, livableAreaQuantileCalculator, "totalLivableArea"));
+        addStreamingEndpoint("/vaccination-series", AvailableActions.SHOW_VACCINATION_SERIES, this::vaccinationSeries);
+    }
+
+    /**
+     * Creates the executor that requests are handled on: one virtual thread per request if the runtime supports
+     * them (Java 21 and later), or else a pool of up to {@link #MAX_REQUEST_THREADS} platform threads. A request
+     * can block for a long time, waiting for a dataset that is still loading or for a slow client to read a
+     * vaccination series, so the pool is much larger than the number of processors; past its size, requests wait
+     * in its queue instead of starting a thread each. Idle threads exit after a minute. The virtual thread
+     * executor is looked up reflectively so that the program still compiles and runs on older runtimes.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_REQUEST_THREADS, MAX_REQUEST_THREADS,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "query-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        logger.logEvent("Query server listening on port " + getPort());
+    }
+
+    /**
+     * Stops accepting requests, gives the requests in progress a moment to finish and releases the port.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.logEvent("Query server stopped");
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void addEndpoint(String path, AvailableActions action, Query query) {
+        server.createContext(path, exchange -> {
+            try {
+                handle(exchange, path, action, query, null);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private void addStreamingEndpoint(String path, AvailableActions action, StreamingQuery query) {
+        server.createContext(path, exchange -> {
+            try {
+                handle(exchange, path, action, null, query);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Answers one request to an endpoint, with either its query or its streaming query.
+     */
+    private void handle(HttpExchange exchange, String path, AvailableActions action, Query query,
+                        StreamingQuery streamingQuery) throws IOException {
+        logger.logEvent(Logger.Level.AUDIT, "HTTP request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            send(exchange, 405, error("Only GET requests are supported"));
+            return;
+        }
+        // a context also receives the paths below it, which are not endpoints
+        if (!path.equals(exchange.getRequestURI().getPath())) {
+            send(exchange, 404, error("Unknown endpoint " + exchange.getRequestURI().getPath()));
+            return;
+        }
+        if (!dataProcessor.isAvailable(action)) {
+            send(exchange, 404, error("This query needs the " + String.join(", ", action.getRequiredParameters())
+                    + " data, which was not provided"));
+            return;
+        }
+
+        String body = null;
+        StreamingResponse response = new StreamingResponse(exchange);
+        try {
+            Map<String, String> parameters = parseParameters(exchange.getRequestURI().getRawQuery());
+            if (query != null) {
+                body = query.answer(parameters);
+            } else {
+                streamingQuery.answer(parameters, response);
+            }
+        } catch (IllegalArgumentException e) {
+            fail(exchange, response, 400, error(e.getMessage()));
+            return;
+        } catch (CompletionException e) {
+            logger.logEvent(Logger.Level.ERROR, "Error answering " + exchange.getRequestURI() + ": " + e.getMessage());
+            fail(exchange, response, 500, error("The data could not be loaded"));
+            return;
+        } catch (UncheckedIOException e) {
+            // the client went away while the answer was streamed to it
+            logger.logEvent(Logger.Level.WARN, "Error sending " + exchange.getRequestURI() + ": " + e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            logger.logEvent(Logger.Level.ERROR, "Error answering " + exchange.getRequestURI() + ": " + e);
+            fail(exchange, response, 500, error("Unable to answer the query"));
+            return;
+        }
+        if (query != null) {
+            send(exchange, 200, body);
+        } else {
+            response.finish();
+        }
+    }
+
+    /**
+     * Answers with an error, unless part of a streamed answer has been sent already; the answer then ends without
+     * its closing brackets, so that the client cannot mistake it for a whole one.
+     */
+    private static void fail(HttpExchange exchange, StreamingResponse response, int status, String body) throws IOException {
+        if (!response.isStarted()) {
+            send(exchange, status, body);
+        }
+    }
+
+    private String vaccinationsPerCapita(Map<String, String> parameters) {
+        String type = requireParameter(parameters, "type");
+        String date = requireParameter(parameters, "date");
+        Map<String, Double> vaccinationsPerCapita = dataProcessor.getVaccinationsPerCapita(type, date);
+        if (vaccinationsPerCapita == null) {
+            throw new IllegalArgumentException("The type must be partial or full and the date in the format YYYY-MM-DD");
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"type\":").append(quote(type.toLowerCase()))
+                .append(",\"date\":").append(quote(date))
+                .append(",\"vaccinationsPerCapita\":{");
+        // like the menu, only ZIP Codes with vaccinations are listed
+        boolean first = true;
+        for (Map.Entry<String, Double> entry : vaccinationsPerCapita.entrySet()) {
+            if (entry.getValue() > 0) {
+                if (!first) {
+                    json.append(',');
+                }
+                json.append(quote(entry.getKey())).append(':').append(number(entry.getValue()));
+                first = false;
+            }
+        }
+        return json.append("}}").toString();
+    }
+
+    private String averagePropertyMetric(Map<String, String> parameters, PropertyAverageCalculator calculator,
+                                         String name) {
+        String zipCode = requireZipCode(parameters);
+        int average = (int) dataProcessor.getAveragePropertyMetric(calculator, zipCode);  // Truncate to integer
+        return "{\"zipCode\":" + quote(zipCode) + ",\"" + name + "\":" + average + "}";
+    }
+
+    private String propertyQuantile(Map<String, String> parameters, PropertyQuantileCalculator calculator,
+                                    String name) {
+        String quantileName = requireParameter(parameters, "quantile");
+        double quantile = PropertyQuantileCalculator.parseQuantile(quantileName);
+        if (Double.isNaN(quantile)) {
+            throw new IllegalArgumentException("Unknown quantile '" + quantileName
+                    + "'. Please enter median or a percentile from p0 to p100.");
+        }
+        String zipCode = requireZipCode(parameters);
+        int value = (int) dataProcessor.getPropertyQuantile(calculator, quantile, zipCode);  // Truncate to integer
+        return "{\"zipCode\":" + quote(zipCode) + ",\"quantile\":" + quote(quantileName)
+                + ",\"" + name + "\":" + value + "}";
+    }
+
+    private String marketValuePerCapita(Map<String, String> parameters) {
+        String zipCode = requireZipCode(parameters);
+        int marketValuePerCapita = (int) dataProcessor.getMarketValuePerCapita(zipCode);  // Truncate to integer
+        return "{\"zipCode\":" + quote(zipCode) + ",\"marketValuePerCapita\":" + marketValuePerCapita + "}";
+    }
+
+    private String customFeature() {
+        int totalFullyVaccinated = dataProcessor.getTotalFullyVaccinated();
+        int totalPopulation = dataProcessor.getTotalPopulation();
+        double totalVaxRate = totalPopulation != 0 ? (double) totalFullyVaccinated / totalPopulation * 100 : 0.0;
+        double averageMarketValue = dataProcessor.getAverageMarketValue();
+        return "{\"totalFullyVaccinated\":" + totalFullyVaccinated
+                + ",\"totalPopulation\":" + totalPopulation
+                + ",\"fullyVaccinatedRate\":" + number(totalVaxRate)
+                + ",\"averageMarketValue\":" + number(averageMarketValue) + "}";
+    }
+
+    private void vaccinationSeries(Map<String, String> parameters, StreamingResponse response) throws IOException {
+        String type = requireParameter(parameters, "type");
+        String start = requireParameter(parameters, "start");
+        String end = requireParameter(parameters, "end");
+        List<String> zipCodes = null;
+        if (parameters.containsKey("zip")) {
+            zipCodes = Arrays.asList(requireParameter(parameters, "zip").split(","));
+            for (String zipCode : zipCodes) {
+                if (ZipCodeDictionary.encode(zipCode) == ZipCodeDictionary.NO_ZIP_CODE) {
+                    throw new IllegalArgumentException("Please enter 5-digit zip codes.");
+                }
+            }
+        }
+
+        String head = "{\"type\":" + quote(type.toLowerCase()) + ",\"start\":" + quote(start)
+                + ",\"end\":" + quote(end) + ",\"series\":[";
+        boolean[] first = {true};
+        boolean valid = dataProcessor.streamVaccinationsPerCapita(type, start, end, zipCodes, (date, zipCode, value) -> {
+            try {
+                // the status is only sent with the first point, since an invalid query streams nothing
+                response.write((first[0] ? head : ",") + "{\"date\":\"" + date + "\",\"zipCode\":\"" + zipCode
+                        + "\",\"value\":" + number(value) + "}");
+                first[0] = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (!valid) {
+            throw new IllegalArgumentException("The type must be partial or full and the dates in the format "
+                    + "YYYY-MM-DD, with the end not before the start");
+        }
+        response.write((first[0] ? head : "") + "]}");
+    }
+
+    private String ranking(Map<String, String> parameters) {
+        ZipCodeMetric metric = ZipCodeMetric.fromName(requireParameter(parameters, "metric"));
+        if (metric == null) {
+            throw new IllegalArgumentException("Unknown metric '" + parameters.get("metric") + "'");
+        }
+        if (!dataProcessor.isAvailable(metric)) {
+            throw new IllegalArgumentException("The metric " + metric.getName() + " needs the "
+                    + String.join(", ", metric.getRequiredParameters()) + " data, which was not provided");
+        }
+        String order = requireParameter(parameters, "order");
+        if (!"top".equalsIgnoreCase(order) && !"bottom".equalsIgnoreCase(order)) {
+            throw new IllegalArgumentException("The order must be top or bottom");
+        }
+        String size = requireParameter(parameters, "k");
+        if (!size.matches("\\d{1,9}") || Integer.parseInt(size) == 0) {
+            throw new IllegalArgumentException("k must be a positive number");
+        }
+        String date = metric.requiresDate() ? requireParameter(parameters, "date") : null;
+        List<ZipCodeRanking.Entry> ranking = dataProcessor.getZipCodeRanking(metric,
+                ZipCodeRanking.Order.valueOf(order.toUpperCase()), Integer.parseInt(size), date);
+        if (ranking == null) {
+            throw new IllegalArgumentException("The date must be in the format YYYY-MM-DD");
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"metric\":").append(quote(metric.getName()))
+                .append(",\"order\":").append(quote(order.toLowerCase()));
+        if (date != null) {
+            json.append(",\"date\":").append(quote(date));
+        }
+        json.append(",\"ranking\":[");
+        for (int i = 0; i < ranking.size(); i++) {
+            ZipCodeRanking.Entry entry = ranking.get(i);
+            // like the menu, only vaccinations per capita keep their fraction
+            String value = metric.requiresDate() ? number(entry.getValue()) : String.valueOf((long) entry.getValue());
+            json.append(i == 0 ? "" : ",").append("{\"zipCode\":").append(quote(entry.getZipCode()))
+                    .append(",\"value\":").append(value).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String requireParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter '" + name + "'");
+        }
+        return value;
+    }
+
+    private static String requireZipCode(Map<String, String> parameters) {
+        String zipCode = requireParameter(parameters, "zip");
+        if (ZipCodeDictionary.encode(zipCode) == ZipCodeDictionary.NO_ZIP_CODE) {
+            throw new IllegalArgumentException("Please enter a 5-digit zip code.");
+        }
+        return zipCode;
+    }
+
+    /**
+     * Decodes the parameters of a query string. When a parameter is given more than once, the first value is used.
+     */
+    private static Map<String, String> parseParameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    /**
+     * @return A number in JSON, or null for a value JSON cannot represent.
+     */
+    private static String number(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+
+    /**
+     * @return A string in JSON, with the characters that JSON does not allow unescaped escaped.
+     */
+    private static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -3,6 +3,8 @@ import edu.upenn.cit594.logging.Logger;
 import edu.upenn.cit594.processor.AverageMarketValueCalculator;
 import edu.upenn.cit594.processor.AverageTotalLivableAreaCalculator;
 import edu.upenn.cit594.processor.DataProcessor;
+import edu.upenn.cit594.processor.MarketValueQuantileCalculator;
+import edu.upenn.cit594.processor.TotalLivableAreaQuantileCalculator;
 import java.util.Scanner;
 
 /**
@@ -30,7 +32,7 @@ public class UserInterface {
             System.out.flush();
             int choice = readIntInput(scanner);
             System.out.println();
-            logger.logEvent("User input: " + choice);
+            logger.logEvent(Logger.Level.AUDIT, "User input: " + choice);
             switch (choice) {
                 case 0:
                     System.out.println("BEGIN OUTPUT");
@@ -57,8 +59,20 @@ public class UserInterface {
                 case 7:
                     dataProcessor.showFullyVaxRateToHouseValueCorrelation();
                     break;
+                case 8:
+                    dataProcessor.showZipCodeRanking(scanner);
+                    break;
+                case 9:
+                    dataProcessor.showVaccinationSeries(scanner);
+                    break;
+                case 10:
+                    dataProcessor.showPropertyQuantile(new MarketValueQuantileCalculator(), scanner);
+                    break;
+                case 11:
+                    dataProcessor.showPropertyQuantile(new TotalLivableAreaQuantileCalculator(), scanner);
+                    break;
                 default:
-                    System.out.println("Error: Invalid choice. Please enter a number between 0 and 7.");
+                    System.out.println("Error: Invalid choice. Please enter a number between 0 and 11.");
             }
         }
     }
@@ -72,6 +86,10 @@ public class UserInterface {
         System.out.println("5. Show the average total livable area for properties in a specified ZIP Code.");
         System.out.println("6. Show the total market value of properties, per capita, for a specified ZIP Code.");
         System.out.println("7. Show the fully vaccination rate in relations to average house value across all ZIP codes");
+        System.out.println("8. Show the ZIP Codes with the highest or lowest values of a metric.");
+        System.out.println("9. Show the vaccinations per capita for each ZIP Code on each day of a date range.");
+        System.out.println("10. Show a quantile, such as the median, of the market value for properties in a specified ZIP Code.");
+        System.out.println("11. Show a quantile, such as the median, of the total livable area for properties in a specified ZIP Code.");
     }
 
 
@@ -84,7 +102,7 @@ public class UserInterface {
     private int readIntInput(Scanner scanner) {
         while (!scanner.hasNextInt()) {
             System.out.println(scanner.next());
-            logger.logEvent("Error: Invalid input. Please enter a number.");
+            logger.logEvent(Logger.Level.WARN, "Error: Invalid input. Please enter a number.");
             System.out.println("Error: Invalid input. Please enter a number.");
             System.out.print("> ");
             System.out.flush();
@@ -1,4 +1,9 @@
 package edu.upenn.cit594.util;
+import edu.upenn.cit594.processor.PropertyQuantileCalculator;
+import edu.upenn.cit594.processor.ZipCodeMetric;
+import edu.upenn.cit594.processor.ZipCodeRanking;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 public class getParameter {
@@ -14,6 +19,111 @@ public class getParameter {
             }
         }
         }
+
+    //get the metric to rank the ZIP Codes by from user
+    public ZipCodeMetric getRankingMetric(Scanner scanner) {
+        StringBuilder names = new StringBuilder();
+        for (ZipCodeMetric metric : ZipCodeMetric.values()) {
+            names.append(names.length() == 0 ? "" : ", ").append(metric.getName());
+        }
+        System.out.println("Enter the metric (" + names + "):");
+        while (true) {
+            String name = nextNonEmptyLine(scanner);
+            ZipCodeMetric metric = ZipCodeMetric.fromName(name);
+            if (metric != null) {
+                return metric;
+            }
+            System.out.println("Unknown metric '" + name + "'. Enter the metric (" + names + "):");
+        }
+    }
+
+    //get whether the top or the bottom of the ranking is wanted from user
+    public ZipCodeRanking.Order getRankingOrder(Scanner scanner) {
+        System.out.println("Enter top or bottom:");
+        while (true) {
+            String order = nextNonEmptyLine(scanner);
+            if ("top".equalsIgnoreCase(order) || "bottom".equalsIgnoreCase(order)) {
+                return ZipCodeRanking.Order.valueOf(order.toUpperCase());
+            }
+            System.out.println("Enter top or bottom:");
+        }
+    }
+
+    //get the number of ZIP Codes to rank from user
+    public int getRankingSize(Scanner scanner) {
+        System.out.println("Enter the number of ZIP Codes:");
+        while (true) {
+            String size = nextNonEmptyLine(scanner);
+            if (size.matches("\\d{1,9}") && Integer.parseInt(size) > 0) {
+                return Integer.parseInt(size);
+            }
+            System.out.println("Please enter a positive number of ZIP Codes.");
+        }
+    }
+
+    //get a quantile from user, as median or a percentile such as p90 or p99
+    public double getQuantile(Scanner scanner) {
+        System.out.println("Enter the quantile (median, p90, p99 or another percentile as pNN):");
+        while (true) {
+            String name = nextNonEmptyLine(scanner);
+            double quantile = PropertyQuantileCalculator.parseQuantile(name);
+            if (!Double.isNaN(quantile)) {
+                return quantile;
+            }
+            System.out.println("Unknown quantile '" + name + "'. Enter median or a percentile from p0 to p100:");
+        }
+    }
+
+    //get the vaccination type from user
+    public String getVaccinationType(Scanner scanner) {
+        System.out.println("Enter the vaccination type (partial or full):");
+        while (true) {
+            String vaccinationType = nextNonEmptyLine(scanner);
+            if ("partial".equalsIgnoreCase(vaccinationType) || "full".equalsIgnoreCase(vaccinationType)) {
+                return vaccinationType;
+            }
+            System.out.println("Enter the vaccination type (partial or full):");
+        }
+    }
+
+    //get a list of zip codes from user, separated by spaces; an empty line means every zip code (null)
+    public List<String> getZipCodes(Scanner scanner) {
+        System.out.println("Enter the 5-digit zip codes separated by spaces, or nothing for all of them:");
+        while (true) {
+            String line = scanner.nextLine().trim();
+            if (line.isEmpty()) {
+                return null;
+            }
+            List<String> zipCodes = new ArrayList<>();
+            for (String zipCode : line.split("\\s+")) {
+                if (zipCode.length() != 5) {
+                    zipCodes = null;
+                    break;
+                }
+                zipCodes.add(zipCode);
+            }
+            if (zipCodes != null) {
+                return zipCodes;
+            }
+            System.out.println("Please enter 5-digit zip codes.");
+        }
+    }
+
+    //get a date from user; it is checked by the query it is used for
+    public String getDate(Scanner scanner) {
+        System.out.println("Enter the date in the format YYYY-MM-DD:");
+        return nextNonEmptyLine(scanner);
+    }
+
+    // the rest of the line the menu choice was on is empty, and so are lines the user only pressed enter on
+    private String nextNonEmptyLine(Scanner scanner) {
+        while (true) {
+            String line = scanner.nextLine().trim();
+            if (!line.isEmpty()) {
+                return line;
+            }
+        }
+    }
     }
 
 